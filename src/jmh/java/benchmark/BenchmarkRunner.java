@@ -0,0 +1,28 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lance les benchmarks JMH avec le profileur gc activé par défaut
+ * (taux d'allocation et octets alloués par opération)
+ *
+ * Accepte les mêmes arguments que org.openjdk.jmh.Main, par exemple :
+ * java -cp target/xml-json-converter-1.0.0.jar benchmark.BenchmarkRunner XmlToJson -p size=1MB
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,155 @@
+package benchmark;
+
+/**
+ * Génère des documents XML et JSON de forme et de taille données pour les benchmarks
+ *
+ * Formes disponibles :
+ * - wide : beaucoup d'enregistrements frères sous la racine
+ * - deep : des chaînes d'éléments imbriqués sur DEEP_LEVELS niveaux
+ * - attributes : des éléments portant de nombreux attributs
+ * - text : des éléments contenant de longs textes (avec caractères à échapper)
+ *
+ * Les documents JSON suivent les conventions "@attr" / "#text" du convertisseur,
+ * de sorte que les deux sens de conversion traitent des structures équivalentes.
+ */
+public final class DocumentGenerator {
+
+    // Profondeur des chaînes pour la forme "deep"
+    static final int DEEP_LEVELS = 64;
+
+    private static final String LOREM =
+            "Lorem ipsum dolor sit amet, consectetur <adipiscing> elit & sed do \"eiusmod\" tempor. ";
+
+    private DocumentGenerator() {
+    }
+
+    /**
+     * Convertit une taille lisible ("1KB", "16MB", "1GB") en nombre de caractères
+     */
+    public static long parseSize(String size) {
+        String value = size.trim().toUpperCase();
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String digits = unit == 1 ? value : value.substring(0, value.length() - 2);
+        return Long.parseLong(digits) * unit;
+    }
+
+    /**
+     * Génère un document XML d'environ targetSize caractères
+     */
+    public static String xml(String shape, long targetSize) {
+        StringBuilder out = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, targetSize + 4096));
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n");
+
+        int i = 0;
+        while (out.length() < targetSize) {
+            switch (shape) {
+                case "wide":
+                    out.append("  <item id=\"").append(i).append("\">")
+                       .append("<name>Item ").append(i).append("</name>")
+                       .append("<value>").append(i * 31 % 1000).append("</value>")
+                       .append("</item>\n");
+                    break;
+                case "deep":
+                    for (int level = 0; level < DEEP_LEVELS; level++) {
+                        out.append("<n").append(level).append('>');
+                    }
+                    out.append(i);
+                    for (int level = DEEP_LEVELS - 1; level >= 0; level--) {
+                        out.append("</n").append(level).append('>');
+                    }
+                    out.append('\n');
+                    break;
+                case "attributes":
+                    out.append("  <item");
+                    for (int a = 0; a < 8; a++) {
+                        out.append(" a").append(a).append("=\"v").append(i).append('-').append(a).append('"');
+                    }
+                    out.append("/>\n");
+                    break;
+                case "text":
+                    out.append("  <p>");
+                    for (int k = 0; k < 12; k++) {
+                        out.append(LOREM.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;"));
+                    }
+                    out.append("</p>\n");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Forme inconnue : " + shape);
+            }
+            i++;
+        }
+
+        return out.append("</root>\n").toString();
+    }
+
+    /**
+     * Génère un document JSON d'environ targetSize caractères
+     */
+    public static String json(String shape, long targetSize) {
+        StringBuilder out = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, targetSize + 4096));
+
+        switch (shape) {
+            case "wide":
+            case "attributes":
+                out.append("{\"root\": {\"item\": [\n");
+                break;
+            case "deep":
+                out.append("{\"root\": {\"n0\": [\n");
+                break;
+            case "text":
+                out.append("{\"root\": {\"p\": [\n");
+                break;
+            default:
+                throw new IllegalArgumentException("Forme inconnue : " + shape);
+        }
+
+        int i = 0;
+        while (out.length() < targetSize || i < 2) {
+            if (i > 0) {
+                out.append(",\n");
+            }
+            switch (shape) {
+                case "wide":
+                    out.append("  {\"@id\": \"").append(i).append("\", \"name\": \"Item ").append(i)
+                       .append("\", \"value\": ").append(i * 31 % 1000).append('}');
+                    break;
+                case "deep":
+                    for (int level = 1; level < DEEP_LEVELS; level++) {
+                        out.append("{\"n").append(level).append("\": ");
+                    }
+                    out.append(i);
+                    for (int level = 1; level < DEEP_LEVELS; level++) {
+                        out.append('}');
+                    }
+                    break;
+                case "attributes":
+                    out.append("  {");
+                    for (int a = 0; a < 8; a++) {
+                        if (a > 0) {
+                            out.append(", ");
+                        }
+                        out.append("\"@a").append(a).append("\": \"v").append(i).append('-').append(a).append('"');
+                    }
+                    out.append('}');
+                    break;
+                default:
+                    out.append("  \"");
+                    for (int k = 0; k < 12; k++) {
+                        out.append(LOREM.replace("\"", "\\\""));
+                    }
+                    out.append('"');
+                    break;
+            }
+            i++;
+        }
+
+        return out.append("\n]}}\n").toString();
+    }
+}
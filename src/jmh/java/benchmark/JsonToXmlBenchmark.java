@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.ConversionEngine.Direction;
+import service.JsonToXmlService;
+import service.ParallelJsonToXmlService;
+import service.JsonToXmlStreamService;
+import service.OutputFormat;
+import service.TapeConversionService;
+import service.TokenTape;
+import service.api.JsonToXmlApiService;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare les moteurs JSON → XML sur des documents générés
+ *
+ * Débit et percentiles de latence sont mesurés ensemble (Throughput + SampleTime) ;
+ * l'allocation par opération est obtenue avec le profileur gc (BenchmarkRunner l'active).
+ * Tailles plus grandes : -p size=128MB,500MB (prévoir -jvmArgsAppend -Xmx16g)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonToXmlBenchmark {
+
+    @Param({"wide", "deep", "attributes", "text"})
+    private String shape;
+
+    @Param({"1KB", "64KB", "1MB", "16MB"})
+    private String size;
+
+    private String json;
+    // Document déjà analysé : coût de l'écriture seule
+    private TokenTape tape;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        json = DocumentGenerator.json(shape, DocumentGenerator.parseSize(size));
+        try {
+            tape = TokenTape.fromJson(new StringReader(json));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public String fromScratch() throws Exception {
+        return new JsonToXmlService().convert(json);
+    }
+
+    @Benchmark
+    public String streaming() throws Exception {
+        return new JsonToXmlStreamService().convert(json);
+    }
+
+    @Benchmark
+    public String parallel() throws Exception {
+        return new ParallelJsonToXmlService().convert(json);
+    }
+
+    @Benchmark
+    public String withApi() throws Exception {
+        return new JsonToXmlApiService().convert(json);
+    }
+
+    @Benchmark
+    public String tokenTape() throws Exception {
+        return new TapeConversionService(Direction.JSON_TO_XML).convert(json);
+    }
+
+    @Benchmark
+    public String tokenTapeWriteOnly() throws Exception {
+        StringWriter output = new StringWriter();
+        tape.writeXml(output, OutputFormat.PRETTY);
+        return output.toString();
+    }
+}
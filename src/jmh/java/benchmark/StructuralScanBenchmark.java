@@ -0,0 +1,65 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.JsonToXmlStreamService;
+import service.OutputFormat;
+import service.ParallelJsonToXmlService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balayage JSON scalaire ou vectorisé (jdk.incubator.vector) sur les mêmes documents
+ *
+ * Chaque variante tourne dans sa propre JVM : le balayage est choisi au chargement.
+ * Les variantes "vector" demandent un jar construit avec -Pjmh,vector ;
+ * sans la classe vectorielle, elles mesurent la version scalaire.
+ * - streaming : lecture des chaînes par le lexer ;
+ * - parallel : pré-balayage des caractères structurels de tout le document, puis conversion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StructuralScanBenchmark {
+
+    private static final String SCALAR = "-Dconverter.vector=false";
+    private static final String VECTOR = "--add-modules=jdk.incubator.vector";
+
+    @Param({"wide", "text"})
+    private String shape;
+
+    @Param({"16MB"})
+    private String size;
+
+    private String json;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        json = DocumentGenerator.json(shape, DocumentGenerator.parseSize(size));
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", SCALAR})
+    public String streamingScalar() throws Exception {
+        return new JsonToXmlStreamService(OutputFormat.COMPACT).convert(json);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", VECTOR})
+    public String streamingVector() throws Exception {
+        return new JsonToXmlStreamService(OutputFormat.COMPACT).convert(json);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", SCALAR})
+    public String parallelScalar() throws Exception {
+        return new ParallelJsonToXmlService().withFormat(OutputFormat.COMPACT).convert(json);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", VECTOR})
+    public String parallelVector() throws Exception {
+        return new ParallelJsonToXmlService().withFormat(OutputFormat.COMPACT).convert(json);
+    }
+}
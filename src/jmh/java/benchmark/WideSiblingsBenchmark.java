@@ -0,0 +1,40 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.XmlToJsonService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vérifie que la conversion XML → JSON (DOM) reste linéaire
+ * quand un élément possède un grand nombre de frères de même nom
+ *
+ * Le temps par opération doit croître proportionnellement à "siblings"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WideSiblingsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int siblings;
+
+    private String xml;
+
+    @Setup
+    public void generate() {
+        StringBuilder builder = new StringBuilder("<rows>");
+        for (int i = 0; i < siblings; i++) {
+            builder.append("<row id=\"").append(i).append("\">value ").append(i).append("</row>");
+        }
+        xml = builder.append("</rows>").toString();
+    }
+
+    @Benchmark
+    public String xmlToJsonDom() throws Exception {
+        return new XmlToJsonService().convert(xml);
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.ConversionEngine.Direction;
+import service.ParallelXmlToJsonService;
+import service.XmlToJsonService;
+import service.XmlToJsonStreamService;
+import service.OutputFormat;
+import service.TapeConversionService;
+import service.TokenTape;
+import service.api.XmlToJsonApiService;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare les moteurs XML → JSON sur des documents générés
+ *
+ * Débit et percentiles de latence sont mesurés ensemble (Throughput + SampleTime) ;
+ * l'allocation par opération est obtenue avec le profileur gc (BenchmarkRunner l'active).
+ * Tailles plus grandes : -p size=128MB,500MB (prévoir -jvmArgsAppend -Xmx16g)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class XmlToJsonBenchmark {
+
+    @Param({"wide", "deep", "attributes", "text"})
+    private String shape;
+
+    @Param({"1KB", "64KB", "1MB", "16MB"})
+    private String size;
+
+    private String xml;
+    // Document déjà analysé : coût de l'écriture seule
+    private TokenTape tape;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        xml = DocumentGenerator.xml(shape, DocumentGenerator.parseSize(size));
+        try {
+            tape = TokenTape.fromXml(new StringReader(xml));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public String fromScratch() throws Exception {
+        return new XmlToJsonService().convert(xml);
+    }
+
+    @Benchmark
+    public String streaming() throws Exception {
+        return new XmlToJsonStreamService().convert(xml);
+    }
+
+    @Benchmark
+    public String parallel() throws Exception {
+        return new ParallelXmlToJsonService().convert(xml);
+    }
+
+    @Benchmark
+    public String withApi() throws Exception {
+        return new XmlToJsonApiService().convert(xml);
+    }
+
+    @Benchmark
+    public String tokenTape() throws Exception {
+        return new TapeConversionService(Direction.XML_TO_JSON).convert(xml);
+    }
+
+    @Benchmark
+    public String tokenTapeWriteOnly() throws Exception {
+        StringWriter output = new StringWriter();
+        tape.writeJson(output, OutputFormat.PRETTY);
+        return output.toString();
+    }
+}
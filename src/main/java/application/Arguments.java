@@ -0,0 +1,41 @@
+package application;
+
+/**
+ * Lecture des valeurs d'options de la ligne de commande (BatchConverter, ConversionServer)
+ * Une valeur absente ou invalide lève une IllegalArgumentException dont le message est
+ * affiché avec l'usage.
+ */
+final class Arguments {
+
+    private Arguments() {
+    }
+
+    /**
+     * Valeur de l'option args[index - 1]
+     * @param index Position de la valeur (déjà avancée par l'appelant : args[++i])
+     */
+    static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Valeur manquante après " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Valeur entière de l'option args[index - 1], comprise entre min et max
+     */
+    static long number(String[] args, int index, long min, long max) {
+        String value = value(args, index);
+        long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nombre attendu après " + args[index - 1] + " : " + value);
+        }
+        if (number < min || number > max) {
+            throw new IllegalArgumentException("Valeur hors limites pour " + args[index - 1] + " : " + value
+                    + " (de " + min + " à " + max + ")");
+        }
+        return number;
+    }
+}
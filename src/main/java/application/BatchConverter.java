@@ -0,0 +1,285 @@
+package application;
+
+import service.CachingConversionEngine;
+import service.ConversionCache;
+import service.ConversionEngine;
+import service.ConversionEngine.Direction;
+import service.ConversionEngines;
+import service.ConversionMetrics;
+import service.OutputFormat;
+import util.FileUtils;
+import util.LatencyRecorder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Point d'entrée en ligne de commande (sans interface graphique)
+ * Convertit toute une arborescence de fichiers avec un pool de threads
+ *
+ * Usage :
+ * java -cp xml-json-converter.jar application.BatchConverter
+ *      --direction xml2json|json2xml --input DOSSIER --output DOSSIER
+ *      [--engine auto|scratch|stream|parallel|api|tape] [--threads N] [--virtual]
+ *      [--compact | --indent N] [--cache MO] [--select CHEMIN | --ndjson CHEMIN]
+ *
+ * En xml2json uniquement, un chemin (voir RecordSelector) limite la conversion à certains éléments :
+ * --select /catalog/book[@id='2']/price écrit le tableau JSON des éléments trouvés,
+ * --ndjson book écrit un fichier .ndjson avec une ligne JSON compacte par élément.
+ */
+public class BatchConverter {
+
+    private final ConversionEngine engine;
+    // Null sans --cache
+    private final ConversionCache cache;
+    private final String sourceExtension;
+    private final String targetExtension;
+    private final int threads;
+    private final boolean virtualThreads;
+
+    // Statistiques partagées entre les workers
+    private final AtomicLong convertedFiles = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param cache Cache des résultats (fichiers identiques convertis une seule fois), ou null
+     * @param select Chemin des éléments à extraire (tableau JSON), ou null
+     * @param records Sélecteur des enregistrements pour une sortie NDJSON, ou null
+     */
+    public BatchConverter(String direction, String engine, OutputFormat format, ConversionCache cache,
+                          String select, String records, int threads, boolean virtualThreads) {
+        boolean xmlToJson = "xml2json".equals(direction);
+        if (!xmlToJson && !"json2xml".equals(direction)) {
+            throw new IllegalArgumentException("Direction inconnue : " + direction);
+        }
+        if ((select != null || records != null) && !xmlToJson) {
+            throw new IllegalArgumentException("--select et --ndjson ne sont disponibles qu'en xml2json");
+        }
+        if (select != null && records != null) {
+            throw new IllegalArgumentException("--select et --ndjson sont incompatibles");
+        }
+        ConversionEngine selected;
+        String namespace;
+        if (records != null) {
+            selected = ConversionEngines.ndjson(records);
+            namespace = "ndjson:" + records;
+        } else if (select != null) {
+            selected = ConversionEngines.select(select);
+            namespace = "select:" + select;
+        } else {
+            selected = ConversionEngines.get(engine, xmlToJson ? Direction.XML_TO_JSON : Direction.JSON_TO_XML);
+            namespace = engine + ":" + direction;
+        }
+        if (cache != null) {
+            // La mise en forme complète l'espace de noms via withFormat
+            selected = new CachingConversionEngine(selected, cache, namespace);
+        }
+        this.engine = selected.withFormat(format);
+        this.cache = cache;
+        this.sourceExtension = xmlToJson ? ".xml" : ".json";
+        this.targetExtension = records != null ? ".ndjson" : xmlToJson ? ".json" : ".xml";
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+    }
+
+    public static void main(String[] args) {
+        System.exit(execute(args));
+    }
+
+    /**
+     * Lit les arguments et convertit l'arborescence
+     * @return Code de sortie : 0 si tout est converti, 1 si des fichiers ont échoué,
+     *         2 si les arguments sont invalides ou si la conversion n'a pas pu commencer
+     */
+    static int execute(String[] args) {
+        String direction = null;
+        String engine = "stream";
+        String input = null;
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean virtualThreads = false;
+        OutputFormat format = OutputFormat.PRETTY;
+        ConversionCache cache = null;
+        String select = null;
+        String records = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--direction": direction = Arguments.value(args, ++i); break;
+                    case "--engine":    engine = Arguments.value(args, ++i); break;
+                    case "--input":     input = Arguments.value(args, ++i); break;
+                    case "--output":    output = Arguments.value(args, ++i); break;
+                    case "--threads":   threads = (int) Arguments.number(args, ++i, 1, Integer.MAX_VALUE); break;
+                    case "--virtual":   virtualThreads = true; break;
+                    case "--compact":   format = OutputFormat.COMPACT; break;
+                    case "--indent":    format = OutputFormat.pretty((int) Arguments.number(args, ++i, 0, Integer.MAX_VALUE)); break;
+                    case "--cache":     cache = new ConversionCache(Arguments.number(args, ++i, 1, Long.MAX_VALUE >> 20) << 20); break;
+                    case "--select":    select = Arguments.value(args, ++i); break;
+                    case "--ndjson":    records = Arguments.value(args, ++i); break;
+                    default:
+                        return usage("Argument inconnu : " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Valeur manquante ou invalide (y compris largeur d'indentation refusée par OutputFormat)
+            return usage(e.getMessage());
+        }
+
+        if (direction == null || input == null || output == null) {
+            return usage("Arguments --direction, --input et --output obligatoires");
+        }
+
+        try {
+            BatchConverter batch = new BatchConverter(direction, engine, format, cache, select, records,
+                    threads, virtualThreads);
+            return batch.run(Paths.get(input), Paths.get(output)) ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Erreur : " + e.getMessage());
+            return 2;
+        }
+    }
+
+    /**
+     * Convertit tous les fichiers du dossier source vers le dossier cible
+     * @return true si aucun fichier n'a échoué
+     */
+    public boolean run(Path inputDir, Path outputDir) throws Exception {
+        if (!Files.isDirectory(inputDir)) {
+            throw new IOException("Le dossier source n'existe pas : " + inputDir);
+        }
+
+        ExecutorService executor = createExecutor();
+
+        // Limite le nombre de fichiers en cours : la liste n'est jamais entièrement en mémoire
+        Semaphore inFlight = new Semaphore(threads * 2);
+        long start = System.nanoTime();
+
+        try (Stream<Path> files = Files.walk(inputDir)) {
+            files.filter(Files::isRegularFile)
+                 .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(sourceExtension))
+                 .forEach(path -> {
+                     inFlight.acquireUninterruptibly();
+                     executor.execute(() -> {
+                         try {
+                             convertOne(path, targetPath(inputDir, outputDir, path));
+                         } finally {
+                             inFlight.release();
+                         }
+                     });
+                 });
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        printSummary(System.nanoTime() - start);
+        return failures.isEmpty();
+    }
+
+    private void convertOne(Path input, Path output) {
+        long start = System.nanoTime();
+        try {
+            Path parent = output.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (OutputStream stream = FileUtils.openOutputStream(output.toFile())) {
+                // Le moteur reçoit le fichier : le moteur parallèle le découpe par positions d'octets
+                engine.convert(input, stream);
+            }
+
+            bytesIn.addAndGet(Files.size(input));
+            bytesOut.addAndGet(Files.size(output));
+            convertedFiles.incrementAndGet();
+            latencies.record(System.nanoTime() - start);
+        } catch (Exception | StackOverflowError e) {
+            // Un document trop imbriqué pour un moteur récursif est un échec comme un autre
+            failures.add(input + " : " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            // Pas de fichier de sortie partiel
+            try {
+                Files.deleteIfExists(output);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private Path targetPath(Path inputDir, Path outputDir, Path input) {
+        String relative = inputDir.relativize(input).toString();
+        String base = relative.substring(0, relative.length() - sourceExtension.length());
+        return outputDir.resolve(base + targetExtension);
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long files = convertedFiles.get();
+
+        System.out.println("=== Conversion terminée ===");
+        System.out.printf(Locale.ROOT, "Fichiers convertis : %d en %.2f s%n", files, seconds);
+        System.out.printf(Locale.ROOT, "Débit              : %.1f fichiers/s, %.2f Mo/s (entrée), %.2f Mo/s (sortie)%n",
+                files / seconds, bytesIn.get() / 1048576.0 / seconds, bytesOut.get() / 1048576.0 / seconds);
+        System.out.printf(Locale.ROOT, "Latence par fichier: p50 = %.2f ms, p99 = %.2f ms%n",
+                latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6);
+        if (cache != null) {
+            System.out.println("Cache              : " + cache.stats());
+        }
+        for (ConversionMetrics metrics : ConversionMetrics.all()) {
+            if (metrics.getConversions() > 0) {
+                System.out.println("Moteur             : " + metrics.summary());
+            }
+        }
+        System.out.println("Échecs             : " + failures.size());
+
+        synchronized (failures) {
+            for (String failure : failures.subList(0, Math.min(20, failures.size()))) {
+                System.out.println("  - " + failure);
+            }
+        }
+        if (failures.size() > 20) {
+            System.out.println("  ... et " + (failures.size() - 20) + " autres");
+        }
+    }
+
+    /**
+     * Pool de threads classique, ou un thread virtuel par fichier si la JVM le permet (Java 21+)
+     * Le nombre de fichiers en cours reste limité par le sémaphore de run()
+     */
+    private ExecutorService createExecutor() {
+        if (virtualThreads) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Threads virtuels indisponibles sur cette JVM, utilisation d'un pool classique");
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    // Affiche le message et l'usage ; renvoie le code de sortie des arguments invalides
+    private static int usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage : BatchConverter --direction xml2json|json2xml --input DOSSIER --output DOSSIER");
+        System.err.println("                       [--engine " + String.join("|", ConversionEngines.ids())
+                + "] [--threads N] [--virtual] [--compact | --indent N] [--cache MO]");
+        System.err.println("                       [--select CHEMIN | --ndjson CHEMIN]");
+        return 2;
+    }
+}
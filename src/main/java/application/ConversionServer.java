@@ -0,0 +1,448 @@
+package application;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import service.CachingConversionEngine;
+import service.ConversionCache;
+import service.ConversionEngine;
+import service.ConversionEngine.Direction;
+import service.ConversionEngines;
+import service.ConversionMetrics;
+import service.OutputFormat;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Serveur HTTP de conversion (JDK com.sun.net.httpserver), à l'écoute sur localhost uniquement
+ *
+ * - POST /xml2json et POST /json2xml : le corps de la requête est lu en flux et la sortie est
+ *   écrite directement dans la réponse (chunked), sans chaîne de sortie complète en mémoire.
+ *   Le moteur streaming XML → JSON n'écrit la valeur de la racine qu'une fois celle-ci refermée :
+ *   sa réponse commence après la lecture du document, pas au fil de la lecture
+ *   Paramètres facultatifs : ?engine=ID&amp;compact ou ?indent=N
+ *   ?select=CHEMIN (xml2json) : tableau JSON des seuls éléments sélectionnés, moteur streaming
+ * - POST /xml2ndjson?record=ENREGISTREMENT : une ligne JSON compacte par élément sélectionné
+ *   (application/x-ndjson), par exemple ?record=book ou ?record=/catalog/book
+ * - GET /stats : compteurs du serveur et mesures des moteurs, en JSON
+ *
+ * Un thread virtuel par requête (Java 21+), sinon un thread classique par requête (pool extensible).
+ * Au-delà de maxConcurrent requêtes en cours, la requête est refusée (503) : aucune file
+ * d'attente ne se forme dans le serveur.
+ *
+ * Usage :
+ * java -cp xml-json-converter.jar application.ConversionServer
+ *      [--port 8080] [--engine auto|scratch|stream|parallel|api|tape] [--max-concurrent N]
+ *      [--compact | --indent N] [--cache MO]
+ */
+public class ConversionServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String defaultEngine;
+    private final OutputFormat defaultFormat;
+    // Null sans --cache
+    private final ConversionCache cache;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+
+    // Statistiques partagées entre les requêtes
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    /**
+     * @param port Port d'écoute sur l'adresse de bouclage (0 : port libre choisi par le système)
+     * @param cache Cache des résultats, ou null
+     */
+    public ConversionServer(int port, String engine, OutputFormat format, ConversionCache cache,
+                            int maxConcurrent) throws IOException {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Nombre de requêtes simultanées invalide : " + maxConcurrent);
+        }
+        // Vérifie l'identifiant dès le démarrage
+        ConversionEngines.get(engine, Direction.XML_TO_JSON);
+
+        this.defaultEngine = engine;
+        this.defaultFormat = format;
+        this.cache = cache;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.executor = createExecutor();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/xml2json", exchange -> convert(exchange, "application/json",
+                query -> engine(query, Direction.XML_TO_JSON)));
+        server.createContext("/json2xml", exchange -> convert(exchange, "application/xml",
+                query -> engine(query, Direction.JSON_TO_XML)));
+        server.createContext("/xml2ndjson", exchange -> convert(exchange, "application/x-ndjson",
+                this::ndjsonEngine));
+        server.createContext("/stats", this::stats);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) {
+        int port = 8080;
+        String engine = "stream";
+        int maxConcurrent = Runtime.getRuntime().availableProcessors() * 4;
+        OutputFormat format = OutputFormat.PRETTY;
+        ConversionCache cache = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":           port = (int) Arguments.number(args, ++i, 0, 65535); break;
+                    case "--engine":         engine = Arguments.value(args, ++i); break;
+                    case "--max-concurrent": maxConcurrent = (int) Arguments.number(args, ++i, 1, Integer.MAX_VALUE); break;
+                    case "--compact":        format = OutputFormat.COMPACT; break;
+                    case "--indent":         format = OutputFormat.pretty((int) Arguments.number(args, ++i, 0, Integer.MAX_VALUE)); break;
+                    case "--cache":          cache = new ConversionCache(Arguments.number(args, ++i, 1, Long.MAX_VALUE >> 20) << 20); break;
+                    default:
+                        usage("Argument inconnu : " + args[i]);
+                        return;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Valeur manquante ou invalide (y compris largeur d'indentation refusée par OutputFormat)
+            usage(e.getMessage());
+            return;
+        }
+
+        try {
+            ConversionServer server = new ConversionServer(port, engine, format, cache, maxConcurrent);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            server.start();
+            System.out.println("Serveur de conversion à l'écoute sur http://" + server.address()
+                    + " (POST /xml2json, POST /json2xml, POST /xml2ndjson, GET /stats)");
+        } catch (Exception e) {
+            System.err.println("Erreur : " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Arrête le serveur en laissant au plus delaySeconds aux requêtes en cours
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Adresse effective (utile avec le port 0)
+     */
+    public String address() {
+        InetSocketAddress address = server.getAddress();
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * @param engines Moteur de la requête d'après ses paramètres (IllegalArgumentException : réponse 400)
+     */
+    private void convert(HttpExchange exchange, String contentType,
+                         Function<Map<String, String>, ConversionEngine> engines) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendText(exchange, 405, "Méthode POST attendue");
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            // Refus immédiat plutôt qu'une attente sans limite
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendText(exchange, 503, "Serveur saturé (" + maxConcurrent + " requêtes en cours)");
+            return;
+        }
+        requests.incrementAndGet();
+        CountingInput body = new CountingInput(exchange.getRequestBody());
+        ResponseStream response = new ResponseStream(exchange, contentType);
+        try {
+            ConversionEngine engine = engines.apply(query(exchange));
+            Reader reader = new BufferedReader(new InputStreamReader(body, charset(exchange)), 1 << 16);
+            engine.convert(reader, response);
+            response.finish();
+            exchange.close();
+        } catch (Exception | StackOverflowError e) {
+            // Un document trop imbriqué pour un moteur récursif est une requête invalide comme une autre
+            failures.incrementAndGet();
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (response.committed) {
+                // Réponse déjà partie : la connexion est coupée par le serveur,
+                // le client ne reçoit pas de fin de flux et détecte l'erreur
+                throw new IOException("Conversion interrompue : " + message, e);
+            }
+            sendText(exchange, 400, message);
+        } finally {
+            bytesIn.addAndGet(body.count);
+            bytesOut.addAndGet(response.count);
+            permits.release();
+        }
+    }
+
+    /**
+     * Moteur de la requête : ?engine=ID ou ?select=CHEMIN, ?compact, ?indent=N, sinon les valeurs du serveur
+     */
+    private ConversionEngine engine(Map<String, String> query, Direction direction) {
+        String id = query.getOrDefault("engine", defaultEngine);
+        OutputFormat format = defaultFormat;
+        if (query.containsKey("compact")) {
+            format = OutputFormat.COMPACT;
+        } else if (query.containsKey("indent")) {
+            try {
+                format = OutputFormat.pretty(Integer.parseInt(query.get("indent")));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Indentation invalide : " + query.get("indent"));
+            }
+        }
+        String select = query.get("select");
+        ConversionEngine engine;
+        String namespace;
+        if (select != null && direction == Direction.XML_TO_JSON) {
+            engine = ConversionEngines.select(select);
+            namespace = "select:" + select;
+        } else if (select != null) {
+            throw new IllegalArgumentException("Paramètre select disponible en xml2json uniquement");
+        } else {
+            engine = ConversionEngines.get(id, direction);
+            namespace = id.toLowerCase(Locale.ROOT) + ":" + direction;
+        }
+        if (cache != null) {
+            engine = new CachingConversionEngine(engine, cache, namespace);
+        }
+        return engine.withFormat(format);
+    }
+
+    /**
+     * Moteur NDJSON : ?record=ENREGISTREMENT obligatoire, sortie toujours compacte
+     */
+    private ConversionEngine ndjsonEngine(Map<String, String> query) {
+        String record = query.get("record");
+        if (record == null) {
+            throw new IllegalArgumentException("Paramètre record obligatoire (ex. ?record=book)");
+        }
+        ConversionEngine engine = ConversionEngines.ndjson(record);
+        if (cache != null) {
+            engine = new CachingConversionEngine(engine, cache, "ndjson:" + record);
+        }
+        return engine;
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT,
+                "{\"uptimeSeconds\":%.1f,\"requests\":%d,\"inFlight\":%d,\"maxConcurrent\":%d,"
+                        + "\"rejected\":%d,\"failures\":%d,\"bytesIn\":%d,\"bytesOut\":%d,\"requestsPerSecond\":%.2f",
+                seconds, requests.get(), maxConcurrent - permits.availablePermits(), maxConcurrent,
+                rejected.get(), failures.get(), bytesIn.get(), bytesOut.get(), requests.get() / seconds));
+        if (cache != null) {
+            ConversionCache.Stats cacheStats = cache.stats();
+            json.append(String.format(Locale.ROOT, ",\"cache\":{\"hits\":%d,\"misses\":%d,\"hitRate\":%.3f,"
+                            + "\"entries\":%d,\"bytes\":%d,\"evictions\":%d}",
+                    cacheStats.hits, cacheStats.misses, cacheStats.hitRate(), cacheStats.entries,
+                    cacheStats.bytes, cacheStats.evictions));
+        }
+        json.append(",\"engines\":[");
+        boolean first = true;
+        for (ConversionMetrics metrics : ConversionMetrics.all()) {
+            if (metrics.getConversions() + metrics.getFailures() == 0) {
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(String.format(Locale.ROOT,
+                    "{\"engine\":\"%s\",\"direction\":\"%s\",\"conversions\":%d,\"failures\":%d,"
+                            + "\"throughputMBps\":%.2f,\"p50Millis\":%.3f,\"p90Millis\":%.3f,"
+                            + "\"p99Millis\":%.3f,\"maxMillis\":%.3f}",
+                    metrics.getEngine(), metrics.getDirection(), metrics.getConversions(), metrics.getFailures(),
+                    metrics.getThroughputMBps(), metrics.getLatencyP50Millis(), metrics.getLatencyP90Millis(),
+                    metrics.getLatencyP99Millis(), metrics.getLatencyMaxMillis()));
+        }
+        json.append("]}");
+
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Encodage du corps d'après Content-Type (UTF-8 par défaut)
+     */
+    private static Charset charset(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                parameter = parameter.trim();
+                if (parameter.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(parameter.substring(8).replace("\"", ""));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Encodage inconnu : " + parameter.substring(8));
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Un thread virtuel par requête si la JVM le permet (Java 21+), sinon un pool extensible
+     * Un pool de taille fixe mettrait les requêtes en file avant le contrôle de concurrence
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Threads virtuels indisponibles sur cette JVM, utilisation d'un pool classique");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage : ConversionServer [--port 8080] [--engine " + String.join("|", ConversionEngines.ids())
+                + "] [--max-concurrent N] [--compact | --indent N] [--cache MO]");
+        System.exit(2);
+    }
+
+    /**
+     * Corps de la requête, avec le nombre d'octets lus
+     */
+    private static final class CountingInput extends FilterInputStream {
+        long count;
+
+        CountingInput(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Corps de la réponse : les en-têtes (200, chunked) ne partent qu'avec le premier octet,
+     * pour qu'une erreur détectée avant puisse encore être renvoyée avec son code
+     */
+    private static final class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final String contentType;
+        private OutputStream body;
+        boolean committed;
+        long count;
+
+        ResponseStream(HttpExchange exchange, String contentType) {
+            this.exchange = exchange;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            commit().write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            commit().write(buffer, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Rien à envoyer tant que la réponse n'a pas commencé
+            if (committed) {
+                body.flush();
+            }
+        }
+
+        /**
+         * Termine la réponse (en-têtes compris si la sortie est vide)
+         */
+        void finish() throws IOException {
+            commit().close();
+        }
+
+        private OutputStream commit() throws IOException {
+            if (!committed) {
+                exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+                exchange.sendResponseHeaders(200, 0);
+                body = exchange.getResponseBody();
+                committed = true;
+            }
+            return body;
+        }
+    }
+}
@@ -1,19 +1,35 @@
 package controller;
 
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
 import javafx.stage.FileChooser;
-import service.XmlToJsonService;
-import service.JsonToXmlService;
+import service.ConversionEngine;
+import service.ConversionEngine.Direction;
+import service.ConversionEngines;
+import service.ConversionMetrics;
+import util.CancellableWriter;
 import util.FileUtils;
+import util.ProgressInputStream;
+import util.ProgressReader;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
 import javafx.scene.control.ChoiceBox;
-import service.api.XmlToJsonApiService;
-import service.api.JsonToXmlApiService;
 
 /**
  * Contrôleur principal pour l'interface de conversion XML/JSON
@@ -47,8 +63,30 @@ public class ConverterController {
     @FXML
     private ChoiceBox<String> methodChoiceBox;
     
+    @FXML
+    private Button cancelButton;
+    
+    @FXML
+    private ProgressBar progressBar;
+    
+    @FXML
+    private Label statusLabel; // Mesures de la dernière conversion
+    
     private String currentType; // "xml" ou "json"
     
+    private Task<String> currentTask; // Conversion en cours, null sinon
+    
+    private File sourceFile; // Gros fichier affiché en aperçu seulement, null sinon
+    
+    // Résultat de la dernière conversion, et fichier de la conversion en cours (temporaires), null sinon
+    // Lus aussi par le hook d'arrêt, qui les supprime
+    private volatile File resultFile;
+    private volatile File spoolFile;
+    
+    // Au-delà de cette taille, un fichier (source ou résultat) n'est pas chargé dans sa zone de texte
+    private static final long PREVIEW_THRESHOLD = 4L << 20;
+    private static final int PREVIEW_CHARS = 64 * 1024;
+    
     /**
      * Initialisation du contrôleur
      */
@@ -57,10 +95,19 @@ public class ConverterController {
         // Configuration initiale
         outputTextArea.setEditable(false);
         saveButton.setDisable(true);
+        cancelButton.setVisible(false);
+        progressBar.setVisible(false);
+        
+        // Choix du moteur : liste fournie par le registre
+        methodChoiceBox.getItems().addAll(ConversionEngines.labels());
+        methodChoiceBox.setValue(ConversionEngines.AUTO); // valeur par défaut
         
-        // Choix de la méthode de conversion
-        methodChoiceBox.getItems().addAll("From Scratch", "With API");
-        methodChoiceBox.setValue("From Scratch"); // valeur par défaut
+        // Un seul hook pour les fichiers temporaires encore présents à la fermeture :
+        // deleteOnExit sur chaque résultat ferait grossir sa liste à chaque conversion
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            deleteQuietly(spoolFile);
+            deleteQuietly(resultFile);
+        }, "temp-cleanup"));
     }
     
     /**
@@ -78,10 +125,10 @@ public class ConverterController {
         
         if (file != null) {
             try {
-                String content = FileUtils.readFile(file);
-                inputTextArea.setText(content);
+                showInput(file);
                 currentType = "xml";
                 outputTextArea.clear();
+                deleteResult();
                 saveButton.setDisable(true);
                 showInfo("Fichier XML chargé avec succès!");
             } catch (Exception e) {
@@ -105,10 +152,10 @@ public class ConverterController {
         
         if (file != null) {
             try {
-                String content = FileUtils.readFile(file);
-                inputTextArea.setText(content);
+                showInput(file);
                 currentType = "json";
                 outputTextArea.clear();
+                deleteResult();
                 saveButton.setDisable(true);
                 showInfo("Fichier JSON chargé avec succès!");
             } catch (Exception e) {
@@ -117,45 +164,40 @@ public class ConverterController {
         }
     }
     
+    /**
+     * Affiche le fichier chargé dans la zone de saisie
+     * Au-delà de PREVIEW_THRESHOLD, seul un aperçu est affiché (non modifiable) :
+     * la conversion relira le fichier en flux.
+     */
+    private void showInput(File file) throws IOException {
+        if (file.length() > PREVIEW_THRESHOLD) {
+            sourceFile = file;
+            inputTextArea.setText(FileUtils.readPreview(file, PREVIEW_CHARS) + "\n...");
+            inputTextArea.setEditable(false);
+        } else {
+            sourceFile = null;
+            inputTextArea.setText(FileUtils.readFile(file));
+            inputTextArea.setEditable(true);
+        }
+    }
+    
     /**
      * Convertit XML vers JSON
      */
     @FXML
     private void handleXmlToJson() {
-        String xmlContent = inputTextArea.getText().trim();
+        // Contenu de la zone de saisie, ou null si un gros fichier sera lu en flux
+        String xmlContent = sourceFile == null ? inputTextArea.getText().trim() : null;
         
-        if (xmlContent.isEmpty()) {
+        if (xmlContent != null && xmlContent.isEmpty()) {
             showWarning("Veuillez charger ou saisir du contenu XML d'abord.");
             return;
         }
         
-        try {
-            String jsonResult;
-
-            // Vérification de la méthode choisie par l'utilisateur
-            if ("From Scratch".equals(methodChoiceBox.getValue())) {
-                // Appel du service de conversion manuel (DOM + StringBuilder)
-                XmlToJsonService converter = new XmlToJsonService();
-                jsonResult = converter.convert(xmlContent);
-            } else {
-                // Appel du service de conversion basé sur des API (Jackson Tree Model)
-                XmlToJsonApiService converter = new XmlToJsonApiService();
-                jsonResult = converter.convert(xmlContent);
-            }
-
-            // Affichage du résultat dans l'interface
-            outputTextArea.setText(jsonResult);
-
-            // Mise à jour du type courant pour la sauvegarde
-            currentType = "json";
-            saveButton.setDisable(false);
-
-            showSuccess("XML → JSON conversion successful!");
-
-        } catch (Exception e) {
-            // Gestion centralisée des erreurs
-            showError("Error during XML → JSON conversion: " + e.getMessage());
-        }
+        // Moteur choisi par l'utilisateur
+        ConversionEngine engine = ConversionEngines.get(methodChoiceBox.getValue(), Direction.XML_TO_JSON);
+        
+        runConversion(xmlContent, engine, "json", "XML → JSON");
     }
     
     /**
@@ -163,37 +205,152 @@ public class ConverterController {
      */
     @FXML
     private void handleJsonToXml() {
-        String jsonContent = inputTextArea.getText().trim();
+        // Contenu de la zone de saisie, ou null si un gros fichier sera lu en flux
+        String jsonContent = sourceFile == null ? inputTextArea.getText().trim() : null;
         
-        if (jsonContent.isEmpty()) {
+        if (jsonContent != null && jsonContent.isEmpty()) {
             showWarning("Veuillez charger ou saisir du contenu JSON d'abord.");
             return;
         }
         
-        try {
-            String xmlResult;
-
-            // Sélection dynamique de la méthode de conversion
-            if ("From Scratch".equals(methodChoiceBox.getValue())) {
-                // Conversion JSON → XML implémentée manuellement
-                JsonToXmlService converter = new JsonToXmlService();
-                xmlResult = converter.convert(jsonContent);
-            } else {
-                // Conversion JSON → XML via API (Jackson Tree Model)
-                JsonToXmlApiService converter = new JsonToXmlApiService();
-                xmlResult = converter.convert(jsonContent);
+        // Sélection dynamique du moteur de conversion
+        ConversionEngine engine = ConversionEngines.get(methodChoiceBox.getValue(), Direction.JSON_TO_XML);
+        
+        runConversion(jsonContent, engine, "xml", "JSON → XML");
+    }
+    
+    /**
+     * Annule la conversion en cours
+     */
+    @FXML
+    private void handleCancel() {
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+    }
+    
+    /**
+     * Lance la conversion dans une tâche de fond
+     * La progression suit les octets du fichier source (ou les caractères du texte saisi)
+     * consommés par le convertisseur. Le résultat est écrit dans un fichier temporaire ;
+     * outputTextArea n'en reçoit qu'un aperçu au-delà de PREVIEW_THRESHOLD, et la sauvegarde
+     * recopie le fichier.
+     * L'annulation est vue à chaque lecture de la source et à chaque écriture du résultat.
+     */
+    private void runConversion(String content, ConversionEngine engine, String resultType, String label) {
+        File file = sourceFile;
+        
+        // Mesures relevées sur le thread de conversion, affichées sur le thread JavaFX
+        AtomicReference<ConversionMetrics.Sample> sample = new AtomicReference<>();
+        AtomicReference<File> result = new AtomicReference<>();
+        
+        Task<String> task = new Task<String>() {
+            @Override
+            protected String call() throws Exception {
+                // Progression dans l'unité du total : octets pour un fichier (un caractère non ASCII
+                // en vaut plusieurs), caractères pour le texte saisi
+                long total = file != null ? file.length() : content.length();
+                LongConsumer progress = consumed -> updateProgress(Math.min(consumed, total), total);
+                
+                File target = File.createTempFile("conversion", "." + resultType);
+                result.set(target);
+                spoolFile = target;
+                
+                // Le fichier est lu en flux depuis le disque, jamais chargé en entier
+                try (Reader reader = file != null
+                        ? new InputStreamReader(new ProgressInputStream(FileUtils.openInputStream(file),
+                                progress, this::isCancelled), StandardCharsets.UTF_8)
+                        : new ProgressReader(new StringReader(content), progress, this::isCancelled);
+                     Writer output = new CancellableWriter(FileUtils.openWriter(target), this::isCancelled)) {
+                    try {
+                        engine.convert(reader, output);
+                    } finally {
+                        sample.set(ConversionMetrics.lastSample());
+                    }
+                }
+                if (isCancelled()) {
+                    return null;
+                }
+                
+                // Texte à afficher, lu ici plutôt que sur le thread JavaFX
+                if (target.length() > PREVIEW_THRESHOLD) {
+                    return FileUtils.readPreview(target, PREVIEW_CHARS) + "\n...";
+                }
+                return FileUtils.readFile(target);
             }
-
-            // Affichage du résultat XML
-            outputTextArea.setText(xmlResult);
-
-            currentType = "xml";
+        };
+        
+        task.setOnSucceeded(event -> {
+            setRunning(null);
+            
+            // Affichage du résultat dans l'interface ; le résultat précédent est supprimé
+            deleteResult();
+            resultFile = result.get();
+            spoolFile = null;
+            outputTextArea.setText(task.getValue());
+            showMetrics(sample.get());
+            
+            // Mise à jour du type courant pour la sauvegarde
+            currentType = resultType;
             saveButton.setDisable(false);
-
-            showSuccess("JSON → XML conversion successful!");
-
-        } catch (Exception e) {
-            showError("Error during JSON → XML conversion: " + e.getMessage());
+            
+            showSuccess(label + " conversion successful!");
+        });
+        
+        task.setOnFailed(event -> {
+            setRunning(null);
+            deleteQuietly(result.get());
+            spoolFile = null;
+            showMetrics(sample.get());
+            // Gestion centralisée des erreurs ; un Error (StackOverflowError...) n'a souvent pas de message
+            Throwable error = task.getException();
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            showError("Error during " + label + " conversion: " + message);
+        });
+        
+        task.setOnCancelled(event -> {
+            setRunning(null);
+            deleteQuietly(result.get());
+            spoolFile = null;
+            showInfo("Conversion cancelled.");
+        });
+        
+        setRunning(task);
+        
+        Thread worker = new Thread(task, "conversion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Ligne d'état sous le résultat : tailles, durée, débit, phases et nœuds
+     */
+    private void showMetrics(ConversionMetrics.Sample sample) {
+        statusLabel.setText(sample == null ? "" : sample.toString());
+    }
+    
+    /**
+     * Met l'interface en mode "conversion en cours" (task non null) ou la rétablit
+     */
+    private void setRunning(Task<String> task) {
+        currentTask = task;
+        boolean running = task != null;
+        
+        xmlToJsonButton.setDisable(running);
+        jsonToXmlButton.setDisable(running);
+        loadXmlButton.setDisable(running);
+        loadJsonButton.setDisable(running);
+        clearButton.setDisable(running);
+        methodChoiceBox.setDisable(running);
+        
+        cancelButton.setVisible(running);
+        progressBar.setVisible(running);
+        progressBar.progressProperty().unbind();
+        if (running) {
+            saveButton.setDisable(true);
+            progressBar.progressProperty().bind(task.progressProperty());
+        } else {
+            progressBar.setProgress(0);
         }
     }
     
@@ -202,9 +359,7 @@ public class ConverterController {
      */
     @FXML
     private void handleSave() {
-        String content = outputTextArea.getText();
-        
-        if (content.isEmpty()) {
+        if (resultFile == null) {
             showWarning("Aucun contenu à sauvegarder.");
             return;
         }
@@ -228,7 +383,8 @@ public class ConverterController {
         
         if (file != null) {
             try {
-                FileUtils.writeFile(file, content);
+                // Copie du résultat complet, pas de l'aperçu affiché
+                Files.copy(resultFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 showSuccess("Fichier sauvegardé avec succès: " + file.getName());
             } catch (Exception e) {
                 showError("Erreur lors de la sauvegarde: " + e.getMessage());
@@ -241,12 +397,31 @@ public class ConverterController {
      */
     @FXML
     private void handleClear() {
+        sourceFile = null;
+        inputTextArea.setEditable(true);
         inputTextArea.clear();
         outputTextArea.clear();
+        deleteResult();
+        statusLabel.setText("");
         currentType = null;
         saveButton.setDisable(true);
     }
     
+    /**
+     * Supprime le fichier du dernier résultat
+     */
+    private void deleteResult() {
+        deleteQuietly(resultFile);
+        resultFile = null;
+    }
+    
+    private static void deleteQuietly(File file) {
+        // En cas d'échec (fichier encore ouvert), supprimé à la fermeture de l'application (deleteOnExit)
+        if (file != null && !file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+    
     // Méthodes utilitaires pour les alertes
     
     private void showSuccess(String message) {
@@ -0,0 +1,179 @@
+package service;
+
+import java.io.CharArrayReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Moteur "Auto" : choisit le moteur le plus adapté à l'entrée
+ *
+ * - petite entrée (moins de 1 Mo) → moteur arborescent (DOM / arbre Java), le plus rapide
+ * - grande entrée → moteur streaming, mémoire bornée
+ * - XML très imbriqué (48 niveaux et plus) jusqu'à 16 Mo → DOM : le streaming garde un tampon
+ *   par élément ouvert et y recopie chaque valeur (1,2 à 1,5 fois plus lent mesuré de 48 à 96
+ *   niveaux ; plus rapide à 32). En JSON → XML, le streaming est aussi rapide que l'arbre
+ *   dès 2 Mo, même à 64 niveaux : la profondeur n'y change rien.
+ * - XML de 256 niveaux et plus → streaming, quelle que soit la taille : le parcours DOM
+ *   (XmlToJsonService.convertElement) est récursif et déborde la pile vers 2 500 niveaux
+ *   sur une pile de 1 Mo, alors que le streaming va jusqu'à 10 000 niveaux et refuse proprement
+ *   au-delà (limite de profondeur du parser StAX, voir XmlFactories.MAX_DEPTH).
+ *
+ * La taille vient de la chaîne, ou d'un échantillon lu en tête du flux. En XML, la profondeur
+ * est estimée sur les premiers caractères, puis mesurée sur tout le contenu quand il irait
+ * au DOM. Les moteurs arborescent et streaming produisent exactement la même sortie :
+ * le choix ne change que le temps et la mémoire. Seule exception, un grand objet JSON dont
+ * un attribut ou une clé répétée arrive après des éléments déjà écrits est refusé par le
+ * streaming : une chaîne est alors convertie par l'arbre, un flux est refusé.
+ */
+public class AutoConversionEngine implements ConversionEngine {
+
+    // En dessous, l'entrée est convertie par le moteur arborescent
+    static final int SIZE_THRESHOLD = 1 << 20;
+
+    // Au-dessus, le streaming est gardé quelle que soit la profondeur
+    static final int DEEP_SIZE_LIMIT = 16 << 20;
+
+    // Profondeur d'imbrication à partir de laquelle un document XML est "profond"
+    static final int DEEP_NESTING = 48;
+
+    // Profondeur XML à partir de laquelle le DOM (récursif) risque un StackOverflowError
+    static final int MAX_TREE_NESTING = 256;
+
+    // Taille initiale du tampon d'échantillon, et caractères analysés par la sonde
+    private static final int PROBE_CHARS = 1 << 16;
+
+    private final Direction direction;
+    private final ConversionEngine tree;
+    private final ConversionEngine streaming;
+
+    public AutoConversionEngine(Direction direction, ConversionEngine tree, ConversionEngine streaming) {
+        this.direction = direction;
+        this.tree = tree;
+        this.streaming = streaming;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new AutoConversionEngine(direction, tree.withFormat(format), streaming.withFormat(format));
+    }
+
+    public String convert(String content) throws Exception {
+        int depth = nestingDepth(content, Math.min(content.length(), PROBE_CHARS));
+        if (select(content.length(), depth) == tree) {
+            // Le DOM est récursif : c'est la profondeur de tout le document qui compte
+            depth = nestingDepth(content, content.length());
+        }
+        ConversionEngine engine = select(content.length(), depth);
+        try {
+            return engine.convert(content);
+        } catch (JsonToXmlStreamService.LateMemberException e) {
+            // Attribut ou clé répétée après des éléments déjà écrits : l'arbre sait le placer
+            return tree.convert(content);
+        }
+    }
+
+    /**
+     * Lit au plus SIZE_THRESHOLD caractères (DEEP_SIZE_LIMIT pour un XML profond) : si le flux
+     * se termine avant, sa taille est connue et il est converti depuis l'échantillon ;
+     * sinon l'échantillon est remis en tête du flux.
+     */
+    public void convert(Reader input, Writer output) throws Exception {
+        Sample sample = new Sample();
+        sample.fill(input, SIZE_THRESHOLD);
+        int depth = nestingDepth(CharBuffer.wrap(sample.chars, 0, sample.length),
+                Math.min(sample.length, PROBE_CHARS));
+        if (!sample.ended && select(DEEP_SIZE_LIMIT - 1, depth) == tree) {
+            // Peut-être sous DEEP_SIZE_LIMIT : il faut lire plus loin pour le savoir
+            sample.fill(input, DEEP_SIZE_LIMIT);
+        }
+
+        if (sample.ended) {
+            if (select(sample.length, depth) == tree) {
+                depth = nestingDepth(CharBuffer.wrap(sample.chars, 0, sample.length), sample.length);
+            }
+            select(sample.length, depth).convert(new CharArrayReader(sample.chars, 0, sample.length), output);
+            return;
+        }
+
+        PushbackReader rest = new PushbackReader(input, sample.length);
+        rest.unread(sample.chars, 0, sample.length);
+        // Taille totale inconnue : le streaming est le choix sûr
+        select(-1, depth).convert(rest, output);
+    }
+
+    /**
+     * Choix du moteur
+     * @param size Taille de l'entrée en caractères, -1 si inconnue (au moins SIZE_THRESHOLD)
+     * @param depth Profondeur estimée sur les premiers caractères, ou sur tout le contenu
+     */
+    ConversionEngine select(long size, int depth) {
+        if (direction == Direction.XML_TO_JSON && depth >= MAX_TREE_NESTING) {
+            return streaming;
+        }
+        if (size >= 0 && size < SIZE_THRESHOLD) {
+            return tree;
+        }
+        if (direction == Direction.XML_TO_JSON && depth >= DEEP_NESTING && size >= 0 && size < DEEP_SIZE_LIMIT) {
+            return tree;
+        }
+        return streaming;
+    }
+
+    /**
+     * Profondeur maximale d'imbrication XML sur les premiers caractères (estimation)
+     * Les commentaires XML ne sont pas analysés finement. En JSON → XML, la profondeur
+     * ne change pas le choix du moteur : rien n'est parcouru et le résultat vaut 0.
+     */
+    private int nestingDepth(CharSequence text, int length) {
+        if (direction != Direction.XML_TO_JSON) {
+            return 0;
+        }
+        int depth = 0;
+        int max = 0;
+        for (int i = 0; i < length - 1; i++) {
+            if (text.charAt(i) != '<') {
+                continue;
+            }
+            char next = text.charAt(i + 1);
+            if (next == '/') {
+                depth--;
+            } else if (next != '?' && next != '!') {
+                int end = i + 1;
+                while (end < length && text.charAt(end) != '>') {
+                    end++;
+                }
+                // Balise auto-fermante : pas de nouveau niveau
+                if (end < length && text.charAt(end - 1) != '/') {
+                    max = Math.max(max, ++depth);
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Début du flux, agrandi au besoin : une petite entrée n'alloue pas SIZE_THRESHOLD caractères
+     */
+    private static final class Sample {
+        char[] chars = new char[PROBE_CHARS];
+        int length;
+        boolean ended;
+
+        void fill(Reader input, int limit) throws Exception {
+            while (length < limit) {
+                if (length == chars.length) {
+                    chars = Arrays.copyOf(chars, Math.min(chars.length * 2, limit));
+                }
+                int count = input.read(chars, length, chars.length - length);
+                if (count < 0) {
+                    ended = true;
+                    return;
+                }
+                length += count;
+            }
+        }
+    }
+}
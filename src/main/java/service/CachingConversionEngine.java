@@ -0,0 +1,78 @@
+package service;
+
+import java.io.CharArrayReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Moteur qui sert les conversions répétées depuis un {@link ConversionCache}
+ *
+ * Enveloppe un autre moteur : une entrée déjà convertie avec le même moteur et la même
+ * mise en forme est renvoyée sans être reconvertie. L'espace de noms identifie le moteur
+ * enveloppé dans le cache, qui peut ainsi être partagé entre plusieurs moteurs.
+ *
+ * Sur un flux, l'entrée n'est lue en mémoire que jusqu'à la taille maximale d'une entrée
+ * du cache ; au-delà, elle est convertie en streaming par le moteur enveloppé, sans cache.
+ */
+public class CachingConversionEngine implements ConversionEngine {
+
+    // Taille initiale du tampon de lecture
+    private static final int PROBE_CHARS = 1 << 16;
+
+    private final ConversionEngine engine;
+    private final ConversionCache cache;
+    private final String namespace;
+
+    /**
+     * @param namespace Identifiant du moteur dans le cache (moteur, sens, mise en forme)
+     */
+    public CachingConversionEngine(ConversionEngine engine, ConversionCache cache, String namespace) {
+        this.engine = engine;
+        this.cache = cache;
+        this.namespace = namespace;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new CachingConversionEngine(engine.withFormat(format), cache, namespace + "/" + format);
+    }
+
+    public String convert(String content) throws Exception {
+        String output = cache.get(namespace, content);
+        if (output == null) {
+            output = engine.convert(content);
+            cache.put(namespace, content, output);
+        }
+        return output;
+    }
+
+    public void convert(Reader input, Writer output) throws Exception {
+        long limit = Math.min(cache.maxEntryChars(), Integer.MAX_VALUE - 16);
+        char[] content = new char[(int) Math.min(PROBE_CHARS, limit + 1)];
+        int length = 0;
+        int count;
+        while (length <= limit) {
+            if (length == content.length) {
+                content = Arrays.copyOf(content, (int) Math.min(content.length * 2L, limit + 1));
+            }
+            count = input.read(content, length, content.length - length);
+            if (count < 0) {
+                break;
+            }
+            length += count;
+        }
+
+        if (length <= limit) {
+            output.write(convert(new String(content, 0, length)));
+            output.flush();
+            return;
+        }
+
+        // Trop grand pour le cache : conversion en streaming
+        PushbackReader rest = new PushbackReader(input, length);
+        rest.unread(content, 0, length);
+        engine.convert(rest, output);
+    }
+}
@@ -0,0 +1,198 @@
+package service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache LRU des résultats de conversion, adressé par le contenu
+ *
+ * La clé est un hachage 64 bits rapide de l'entrée, complété par un espace de noms
+ * (moteur, sens, mise en forme). L'entrée elle-même est conservée et comparée lors
+ * d'un succès : une collision de hachage ne peut pas renvoyer un mauvais résultat.
+ *
+ * La taille est bornée par le nombre d'octets retenus (entrée + sortie) ; les entrées
+ * les moins récemment utilisées sont évincées. Un résultat plus grand que le quart
+ * de la capacité n'est pas mis en cache.
+ *
+ * Thread-safe : les accès à la table sont synchronisés, les conversions se font hors verrou.
+ */
+public final class ConversionCache {
+
+    // Surcoût estimé d'une entrée (objets clé, entrée, nœud de la table)
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxBytes Capacité en octets (estimation de la mémoire retenue)
+     */
+    public ConversionCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Capacité du cache invalide : " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Taille maximale (en caractères) d'une entrée mise en cache
+     */
+    public long maxEntryChars() {
+        return maxBytes / 4 / Character.BYTES;
+    }
+
+    /**
+     * Résultat en cache pour cette entrée, ou null
+     */
+    public String get(String namespace, String input) {
+        Key key = new Key(namespace, input);
+        synchronized (this) {
+            String output = entries.get(key);
+            if (output == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Mémorise un résultat, en évinçant les entrées les plus anciennes si nécessaire
+     */
+    public void put(String namespace, String input, String output) {
+        long size = sizeOf(input, output);
+        if (size > maxBytes / 4) {
+            return;
+        }
+        Key key = new Key(namespace, input);
+        synchronized (this) {
+            String previous = entries.put(key, output);
+            bytes += size;
+            if (previous != null) {
+                bytes -= sizeOf(input, previous);
+            }
+            Iterator<Map.Entry<Key, String>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, String> entry = eldest.next();
+                bytes -= sizeOf(entry.getKey().input, entry.getValue());
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Instantané des compteurs
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+
+    private static long sizeOf(String input, String output) {
+        // Estimation haute : 2 octets par caractère
+        return ENTRY_OVERHEAD + (long) Character.BYTES * (input.length() + output.length());
+    }
+
+    /**
+     * Hachage 64 bits du contenu, 4 caractères par tour, finalisé comme MurmurHash3
+     */
+    static long hash(String text) {
+        long h = 0x9E3779B97F4A7C15L ^ text.length();
+        int length = text.length();
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long k = text.charAt(i)
+                    | (long) text.charAt(i + 1) << 16
+                    | (long) text.charAt(i + 2) << 32
+                    | (long) text.charAt(i + 3) << 48;
+            k *= 0x87C37B91114253D5L;
+            k = Long.rotateLeft(k, 31) * 0x4CF5AD432745937FL;
+            h = Long.rotateLeft(h ^ k, 27) * 5 + 0x52DCE729;
+        }
+        for (; i < length; i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Clé : espace de noms + hachage, l'entrée servant à lever les collisions
+     */
+    private static final class Key {
+        final String namespace;
+        final String input;
+        final long hash;
+
+        Key(String namespace, String input) {
+            this.namespace = namespace;
+            this.input = input;
+            this.hash = hash(input);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32)) * 31 + namespace.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && namespace.equals(key.namespace) && input.equals(key.input);
+        }
+    }
+
+    /**
+     * Compteurs du cache à un instant donné
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int entries;
+        public final long bytes;
+        public final long maxBytes;
+
+        Stats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Proportion de succès, entre 0 et 1
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d succès / %d échecs (%.1f %%), %d entrées, %.1f / %.1f Mo, %d évictions",
+                    hits, misses, 100 * hitRate(), entries, bytes / 1048576.0, maxBytes / 1048576.0, evictions);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package service;
+
+import util.FileUtils;
+import util.Utf8Sink;
+
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Moteur de conversion dans un sens donné (XML → JSON ou JSON → XML)
+ * Les implémentations sont sans état entre deux appels et partageables entre threads.
+ */
+public interface ConversionEngine {
+
+    /**
+     * Sens de conversion
+     */
+    enum Direction {
+        XML_TO_JSON,
+        JSON_TO_XML
+    }
+
+    /**
+     * Convertit un contenu complet
+     * @param content Contenu source
+     * @return Contenu converti
+     */
+    String convert(String content) throws Exception;
+
+    /**
+     * Convertit un flux de caractères vers un autre
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    void convert(Reader input, Writer output) throws Exception;
+
+    /**
+     * Variante du moteur qui produit la sortie dans la mise en forme donnée
+     * Par défaut le moteur est renvoyé tel quel : sa sortie n'est pas configurable
+     */
+    default ConversionEngine withFormat(OutputFormat format) {
+        return this;
+    }
+
+    /**
+     * Convertit un flux de caractères vers un flux d'octets UTF-8
+     * La sortie est encodée par blocs : sa taille ne pèse pas sur le tas.
+     * Le flux est vidé (flush) mais pas fermé
+     */
+    default void convert(Reader input, OutputStream output) throws Exception {
+        Utf8Sink sink = new Utf8Sink(output);
+        convert(input, sink);
+        sink.finish();
+    }
+
+    /**
+     * Convertit un flux de caractères vers un canal (fichier, socket) en UTF-8
+     * Le canal n'est pas fermé
+     */
+    default void convert(Reader input, WritableByteChannel output) throws Exception {
+        Utf8Sink sink = new Utf8Sink(output);
+        convert(input, sink);
+        sink.finish();
+    }
+
+    /**
+     * Convertit un fichier UTF-8
+     * Par défaut le fichier est lu en flux ; un moteur parallèle le découpe par positions
+     * d'octets et lit chaque morceau directement dans le fichier.
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    default void convert(Path input, Writer output) throws Exception {
+        try (Reader reader = FileUtils.openReader(input.toFile())) {
+            convert(reader, output);
+        }
+    }
+
+    /**
+     * Convertit un fichier UTF-8 vers un flux d'octets UTF-8
+     * Le flux est vidé (flush) mais pas fermé
+     */
+    default void convert(Path input, OutputStream output) throws Exception {
+        try (Reader reader = FileUtils.openReader(input.toFile())) {
+            convert(reader, output);
+        }
+    }
+}
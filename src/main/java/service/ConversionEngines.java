@@ -0,0 +1,127 @@
+package service;
+
+import service.ConversionEngine.Direction;
+import service.api.JsonToXmlApiService;
+import service.api.XmlToJsonApiService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registre des moteurs de conversion disponibles
+ *
+ * Chaque moteur est enregistré sous un identifiant court (ligne de commande)
+ * et un libellé (interface graphique), avec une implémentation par sens.
+ * Un nouveau moteur s'ajoute par register() sans toucher au contrôleur.
+ * Chaque moteur enregistré est mesuré (voir {@link ConversionMetrics}).
+ */
+public final class ConversionEngines {
+
+    public static final String AUTO = "Auto";
+
+    private static final List<Entry> ENTRIES = new ArrayList<>();
+
+    static {
+        XmlToJsonService xmlToJson = new XmlToJsonService();
+        JsonToXmlService jsonToXml = new JsonToXmlService();
+        XmlToJsonStreamService xmlToJsonStream = new XmlToJsonStreamService();
+        JsonToXmlStreamService jsonToXmlStream = new JsonToXmlStreamService();
+
+        register("auto", AUTO,
+                new AutoConversionEngine(Direction.XML_TO_JSON, xmlToJson, xmlToJsonStream),
+                new AutoConversionEngine(Direction.JSON_TO_XML, jsonToXml, jsonToXmlStream));
+        register("scratch", "From Scratch", xmlToJson, jsonToXml);
+        register("stream", "Streaming", xmlToJsonStream, jsonToXmlStream);
+        register("parallel", "Parallel", new ParallelXmlToJsonService(), new ParallelJsonToXmlService());
+        register("api", "With API", new XmlToJsonApiService(), new JsonToXmlApiService());
+        register("tape", "Token Tape", new TapeConversionService(Direction.XML_TO_JSON),
+                new TapeConversionService(Direction.JSON_TO_XML));
+    }
+
+    private ConversionEngines() {
+    }
+
+    /**
+     * Enregistre (ou remplace) un moteur
+     * @param id Identifiant court, ex. "stream"
+     * @param label Libellé affiché, ex. "Streaming"
+     * @param xmlToJson Implémentation XML → JSON
+     * @param jsonToXml Implémentation JSON → XML
+     */
+    public static synchronized void register(String id, String label,
+                                             ConversionEngine xmlToJson, ConversionEngine jsonToXml) {
+        ENTRIES.removeIf(entry -> entry.id.equalsIgnoreCase(id));
+        ENTRIES.add(new Entry(id, label,
+                new MeteredConversionEngine(xmlToJson, ConversionMetrics.of(id, Direction.XML_TO_JSON)),
+                new MeteredConversionEngine(jsonToXml, ConversionMetrics.of(id, Direction.JSON_TO_XML))));
+    }
+
+    /**
+     * Recherche un moteur par identifiant ou par libellé (sans tenir compte de la casse)
+     * @throws IllegalArgumentException Si aucun moteur ne correspond
+     */
+    public static synchronized ConversionEngine get(String name, Direction direction) {
+        for (Entry entry : ENTRIES) {
+            if (entry.id.equalsIgnoreCase(name) || entry.label.equalsIgnoreCase(name)) {
+                return direction == Direction.XML_TO_JSON ? entry.xmlToJson : entry.jsonToXml;
+            }
+        }
+        throw new IllegalArgumentException("Moteur inconnu : " + name);
+    }
+
+    /**
+     * Moteur XML → NDJSON (une ligne JSON par enregistrement), mesuré sous l'identifiant "ndjson"
+     * @param selector Nom ou chemin des éléments enregistrements (voir {@link RecordSelector})
+     */
+    public static ConversionEngine ndjson(String selector) {
+        return new MeteredConversionEngine(new XmlToNdjsonService(RecordSelector.parse(selector)),
+                ConversionMetrics.of("ndjson", Direction.XML_TO_JSON));
+    }
+
+    /**
+     * Moteur XML → JSON d'extraction : tableau des éléments sélectionnés, mesuré sous l'identifiant "select"
+     * Les sous-arbres non sélectionnés sont sautés pendant la lecture (moteur streaming).
+     * @param selector Chemin des éléments à extraire (voir {@link RecordSelector})
+     */
+    public static ConversionEngine select(String selector) {
+        return new MeteredConversionEngine(
+                new XmlToJsonStreamService(OutputFormat.PRETTY, RecordSelector.parse(selector)),
+                ConversionMetrics.of("select", Direction.XML_TO_JSON));
+    }
+
+    /**
+     * Libellés des moteurs, dans l'ordre d'enregistrement
+     */
+    public static synchronized List<String> labels() {
+        List<String> labels = new ArrayList<>();
+        for (Entry entry : ENTRIES) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+
+    /**
+     * Identifiants courts des moteurs, dans l'ordre d'enregistrement
+     */
+    public static synchronized List<String> ids() {
+        List<String> ids = new ArrayList<>();
+        for (Entry entry : ENTRIES) {
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    private static final class Entry {
+        final String id;
+        final String label;
+        final ConversionEngine xmlToJson;
+        final ConversionEngine jsonToXml;
+
+        Entry(String id, String label, ConversionEngine xmlToJson, ConversionEngine jsonToXml) {
+            this.id = id;
+            this.label = label;
+            this.xmlToJson = xmlToJson;
+            this.jsonToXml = jsonToXml;
+        }
+    }
+}
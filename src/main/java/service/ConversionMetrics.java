@@ -0,0 +1,464 @@
+package service;
+
+import service.ConversionEngine.Direction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures des conversions d'un moteur dans un sens : durée par phase, tailles, nœuds, débit
+ *
+ * Une conversion en cours est suivie par un {@link Recording} propre au thread : les moteurs
+ * signalent leurs changements de phase par {@link #enter(Phase)}, sans rien connaître
+ * de la mesure (appel sans effet hors d'une conversion mesurée). Les durées de lecture
+ * et d'écriture sont prises dans les appels au Reader et au Writer (voir MeteredConversionEngine).
+ *
+ * Les totaux sont agrégés par instance et exposés en JMX ; le détail de la dernière
+ * conversion du thread est disponible par {@link #lastSample()}.
+ */
+public final class ConversionMetrics implements ConversionMetricsMXBean {
+
+    /**
+     * Phases d'une conversion
+     * Les moteurs streaming analysent et convertissent en un seul passage : tout est CONVERT.
+     * L'échappement, trop fin pour être chronométré à part, compte dans CONVERT.
+     */
+    public enum Phase {
+        READ("lecture"),         // Dans les appels au Reader (E/S, décodage)
+        PARSE("analyse"),        // Construction de l'arbre (moteurs arborescents)
+        CONVERT("conversion"),   // Parcours et production de la sortie
+        WRITE("écriture");       // Dans les appels au Writer, ou sérialisation finale
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final String DOMAIN = "xmljson";
+
+    // Latences : 8 intervalles exacts puis 4 par puissance de 2 (précision de 25 %)
+    private static final int BUCKETS = 8 + 60 * 4;
+
+    private static final Map<String, ConversionMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Recording> ACTIVE = new ThreadLocal<>();
+    private static final ThreadLocal<Sample> LAST = new ThreadLocal<>();
+
+    private final String engine;
+    private final Direction direction;
+
+    private final LongAdder conversions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder inputChars = new LongAdder();
+    private final LongAdder outputChars = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private ConversionMetrics(String engine, Direction direction) {
+        this.engine = engine;
+        this.direction = direction;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Mesures d'un moteur, créées et enregistrées en JMX au premier appel
+     * @param engine Identifiant court du moteur (voir ConversionEngines)
+     */
+    public static ConversionMetrics of(String engine, Direction direction) {
+        return REGISTRY.computeIfAbsent(engine + ":" + direction, key -> {
+            ConversionMetrics metrics = new ConversionMetrics(engine, direction);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(
+                        DOMAIN + ":type=ConversionMetrics,engine=" + engine + ",direction=" + direction));
+            } catch (JMException | SecurityException e) {
+                // Sans JMX, les mesures restent consultables dans le processus
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Toutes les mesures créées
+     */
+    public static Collection<ConversionMetrics> all() {
+        return new ArrayList<>(REGISTRY.values());
+    }
+
+    /**
+     * Détail de la dernière conversion mesurée sur le thread courant, ou null
+     */
+    public static Sample lastSample() {
+        return LAST.get();
+    }
+
+    /**
+     * Passe la conversion en cours du thread dans une nouvelle phase
+     * @return Phase précédente, à rétablir au besoin ; null hors d'une conversion mesurée
+     */
+    public static Phase enter(Phase phase) {
+        Recording recording = ACTIVE.get();
+        return recording == null ? null : recording.enter(phase);
+    }
+
+    /**
+     * Ajoute des nœuds au compte de la conversion en cours du thread
+     */
+    public static void addNodes(long count) {
+        Recording recording = ACTIVE.get();
+        if (recording != null) {
+            recording.nodes += count;
+        }
+    }
+
+    /**
+     * Démarre la mesure d'une conversion sur le thread courant
+     * @return null si une conversion est déjà mesurée sur ce thread (moteurs imbriqués)
+     */
+    Recording start() {
+        if (ACTIVE.get() != null) {
+            return null;
+        }
+        Recording recording = new Recording();
+        ACTIVE.set(recording);
+        return recording;
+    }
+
+    /**
+     * Termine la mesure et l'ajoute aux totaux
+     */
+    void finish(Recording recording, boolean succeeded) {
+        recording.enter(recording.phase);
+        ACTIVE.remove();
+        long total = System.nanoTime() - recording.start;
+
+        Sample sample = new Sample(engine, direction, recording.nanos, total,
+                recording.inputChars, recording.outputChars, recording.nodes, succeeded);
+        LAST.set(sample);
+
+        if (!succeeded) {
+            failures.increment();
+            return;
+        }
+        conversions.increment();
+        inputChars.add(recording.inputChars);
+        outputChars.add(recording.outputChars);
+        nodes.add(recording.nodes);
+        totalNanos.add(total);
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i].add(recording.nanos[i]);
+        }
+        latencies.incrementAndGet(bucket(total));
+        maxNanos.accumulateAndGet(total, Math::max);
+    }
+
+    /**
+     * Résumé sur une ligne (ligne de commande)
+     */
+    public String summary() {
+        double total = totalNanos.sum();
+        StringBuilder builder = new StringBuilder(String.format(Locale.ROOT,
+                "%s %s : %d conversions, %.2f Mo/s, p50 = %.2f ms, p99 = %.2f ms",
+                engine, direction, getConversions(), getThroughputMBps(),
+                getLatencyP50Millis(), getLatencyP99Millis()));
+        for (Phase phase : Phase.values()) {
+            builder.append(String.format(Locale.ROOT, ", %s %.0f %%", phase.label(),
+                    total == 0 ? 0 : 100 * phaseNanos[phase.ordinal()].sum() / total));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String getEngine() {
+        return engine;
+    }
+
+    @Override
+    public String getDirection() {
+        return direction.toString();
+    }
+
+    @Override
+    public long getConversions() {
+        return conversions.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getInputChars() {
+        return inputChars.sum();
+    }
+
+    @Override
+    public long getOutputChars() {
+        return outputChars.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getReadMillis() {
+        return phaseNanos[Phase.READ.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getParseMillis() {
+        return phaseNanos[Phase.PARSE.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getConvertMillis() {
+        return phaseNanos[Phase.CONVERT.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getWriteMillis() {
+        return phaseNanos[Phase.WRITE.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getThroughputMBps() {
+        long nanos = totalNanos.sum();
+        return nanos == 0 ? 0 : inputChars.sum() / 1048576.0 / (nanos / 1e9);
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return percentile(50) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return percentile(90) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return percentile(99) / 1e6;
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public String[] getLatencyHistogram() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = latencies.get(i);
+            if (count > 0) {
+                lines.add(String.format(Locale.ROOT, "≤ %.3f ms : %d", upperBound(i) / 1e6, count));
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public void reset() {
+        conversions.reset();
+        failures.reset();
+        inputChars.reset();
+        outputChars.reset();
+        nodes.reset();
+        totalNanos.reset();
+        for (LongAdder adder : phaseNanos) {
+            adder.reset();
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            latencies.set(i, 0);
+        }
+        maxNanos.set(0);
+    }
+
+    /**
+     * Percentile des latences (borne haute de l'intervalle, au plus le maximum observé)
+     */
+    private long percentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += latencies.get(i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        for (int i = 0; i < BUCKETS; i++) {
+            rank -= latencies.get(i);
+            if (rank <= 0) {
+                return Math.min(upperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Intervalle d'une durée : valeur exacte sous 8 ns, puis 3 bits de tête
+     */
+    private static int bucket(long nanos) {
+        if (nanos < 8) {
+            return (int) Math.max(nanos, 0);
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(nanos);
+        int mantissa = (int) (nanos >>> (bits - 3));
+        return 8 + (bits - 4) * 4 + (mantissa - 4);
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < 8) {
+            return bucket;
+        }
+        int bits = (bucket - 8) / 4 + 4;
+        int mantissa = (bucket - 8) % 4 + 4;
+        return ((long) (mantissa + 1) << (bits - 3)) - 1;
+    }
+
+    /**
+     * Mesure d'une conversion en cours (un seul thread)
+     */
+    static final class Recording {
+        private final long start = System.nanoTime();
+        private final long[] nanos = new long[Phase.values().length];
+        private long mark = start;
+        private Phase phase = Phase.CONVERT;
+
+        long inputChars;
+        long outputChars;
+        long nodes;
+
+        /**
+         * Impute le temps écoulé à la phase courante et passe à la suivante
+         */
+        Phase enter(Phase next) {
+            long now = System.nanoTime();
+            nanos[phase.ordinal()] += now - mark;
+            mark = now;
+            Phase previous = phase;
+            phase = next;
+            return previous;
+        }
+    }
+
+    /**
+     * Détail d'une conversion terminée
+     */
+    public static final class Sample {
+        private final String engine;
+        private final Direction direction;
+        private final long[] phaseNanos;
+        private final long totalNanos;
+        private final long inputChars;
+        private final long outputChars;
+        private final long nodes;
+        private final boolean succeeded;
+
+        Sample(String engine, Direction direction, long[] phaseNanos, long totalNanos,
+               long inputChars, long outputChars, long nodes, boolean succeeded) {
+            this.engine = engine;
+            this.direction = direction;
+            this.phaseNanos = phaseNanos.clone();
+            this.totalNanos = totalNanos;
+            this.inputChars = inputChars;
+            this.outputChars = outputChars;
+            this.nodes = nodes;
+            this.succeeded = succeeded;
+        }
+
+        public String engine() {
+            return engine;
+        }
+
+        public Direction direction() {
+            return direction;
+        }
+
+        public long phaseNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        public long inputChars() {
+            return inputChars;
+        }
+
+        public long outputChars() {
+            return outputChars;
+        }
+
+        public long nodes() {
+            return nodes;
+        }
+
+        public boolean succeeded() {
+            return succeeded;
+        }
+
+        /**
+         * Débit en entrée, en Mo/s
+         */
+        public double throughputMBps() {
+            return totalNanos == 0 ? 0 : inputChars / 1048576.0 / (totalNanos / 1e9);
+        }
+
+        /**
+         * Ligne d'état : tailles, durée, débit, puis durée de chaque phase non vide
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(String.format(Locale.ROOT,
+                    "%s : %s → %s en %.2f ms (%.1f Mo/s)",
+                    engine, size(inputChars), size(outputChars), totalNanos / 1e6, throughputMBps()));
+            for (Phase phase : Phase.values()) {
+                long nanos = phaseNanos[phase.ordinal()];
+                if (nanos > 0) {
+                    builder.append(String.format(Locale.ROOT, " · %s %.2f ms", phase.label(), nanos / 1e6));
+                }
+            }
+            if (nodes > 0) {
+                builder.append(" · ").append(nodes).append(" nœuds");
+            }
+            return builder.toString();
+        }
+
+        private static String size(long chars) {
+            return chars < 1 << 20
+                    ? String.format(Locale.ROOT, "%.1f Ko", chars / 1024.0)
+                    : String.format(Locale.ROOT, "%.2f Mo", chars / 1048576.0);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package service;
+
+/**
+ * Compteurs agrégés d'un moteur, exposés en JMX (JConsole, VisualVM...)
+ * ObjectName : xmljson:type=ConversionMetrics,engine=ID,direction=SENS
+ *
+ * Tailles en caractères, durées en millisecondes.
+ */
+public interface ConversionMetricsMXBean {
+
+    String getEngine();
+
+    String getDirection();
+
+    long getConversions();
+
+    long getFailures();
+
+    long getInputChars();
+
+    long getOutputChars();
+
+    /**
+     * Éléments XML lus ou écrits, ou clés et valeurs JSON lues
+     */
+    long getNodes();
+
+    double getReadMillis();
+
+    double getParseMillis();
+
+    double getConvertMillis();
+
+    double getWriteMillis();
+
+    double getTotalMillis();
+
+    /**
+     * Débit moyen en entrée, en Mo/s
+     */
+    double getThroughputMBps();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP90Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyMaxMillis();
+
+    /**
+     * Histogramme des latences : une ligne "≤ borne : nombre" par intervalle non vide
+     */
+    String[] getLatencyHistogram();
+
+    /**
+     * Remet tous les compteurs à zéro
+     */
+    void reset();
+}
@@ -0,0 +1,201 @@
+package service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Échappement JSON et XML en un seul passage, piloté par des tables
+ *
+ * Chaque caractère ASCII a une entrée : null s'il est recopié tel quel, sinon son remplacement.
+ * Les portions sans caractère spécial sont copiées d'un bloc dans la sortie ; un texte
+ * qui n'a rien à échapper ne provoque aucune allocation.
+ *
+ * - JSON : '"', '\\' et tous les caractères de contrôle (< 0x20), en forme courte
+ *   (\n, \t...) ou \\u00XX
+ * - XML : '&', '<', '>', '"', '\'' ; '\r' en &#13; pour qu'il survive à la normalisation
+ *   des fins de ligne, et dans les attributs '\t' et '\n' aussi. Les caractères interdits
+ *   en XML 1.0 (contrôles, substituts isolés, U+FFFE, U+FFFF) deviennent U+FFFD.
+ */
+final class Escaper {
+
+    private static final String[] JSON = new String[128];
+    private static final String[] XML_TEXT = new String[128];
+    private static final String[] XML_ATTRIBUTE = new String[128];
+
+    private static final String XML_INVALID = "\uFFFD";
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            JSON[c] = String.format("\\u%04x", c);
+            XML_TEXT[c] = XML_INVALID;
+        }
+        JSON['\b'] = "\\b";
+        JSON['\f'] = "\\f";
+        JSON['\n'] = "\\n";
+        JSON['\r'] = "\\r";
+        JSON['\t'] = "\\t";
+        JSON['"'] = "\\\"";
+        JSON['\\'] = "\\\\";
+
+        XML_TEXT['\t'] = null;
+        XML_TEXT['\n'] = null;
+        XML_TEXT['\r'] = "&#13;";
+        XML_TEXT['&'] = "&amp;";
+        XML_TEXT['<'] = "&lt;";
+        XML_TEXT['>'] = "&gt;";
+        XML_TEXT['"'] = "&quot;";
+        XML_TEXT['\''] = "&apos;";
+
+        System.arraycopy(XML_TEXT, 0, XML_ATTRIBUTE, 0, XML_TEXT.length);
+        XML_ATTRIBUTE['\t'] = "&#9;";
+        XML_ATTRIBUTE['\n'] = "&#10;";
+    }
+
+    private Escaper() {
+    }
+
+    /**
+     * Écrit le contenu d'une chaîne JSON (sans les guillemets)
+     */
+    static void escapeJson(String text, StringBuilder out) {
+        escape(text, JSON, false, out);
+    }
+
+    static void escapeJson(String text, Writer out) throws IOException {
+        escape(text, JSON, false, out);
+    }
+
+    /**
+     * Écrit le texte d'un élément XML
+     */
+    static void escapeXmlText(String text, StringBuilder out) {
+        escape(text, XML_TEXT, true, out);
+    }
+
+    static void escapeXmlText(String text, Writer out) throws IOException {
+        escape(text, XML_TEXT, true, out);
+    }
+
+    /**
+     * Écrit la valeur d'un attribut XML (sans les guillemets)
+     */
+    static void escapeXmlAttribute(String text, StringBuilder out) {
+        escape(text, XML_ATTRIBUTE, true, out);
+    }
+
+    static void escapeXmlAttribute(String text, Writer out) throws IOException {
+        escape(text, XML_ATTRIBUTE, true, out);
+    }
+
+    /**
+     * Variantes sur une portion de tableau de caractères (texte d'une {@link TokenTape})
+     */
+    static void escapeJson(char[] text, int start, int length, Writer out) throws IOException {
+        escape(text, start, start + length, JSON, false, out);
+    }
+
+    static void escapeXmlText(char[] text, int start, int length, Writer out) throws IOException {
+        escape(text, start, start + length, XML_TEXT, true, out);
+    }
+
+    static void escapeXmlAttribute(char[] text, int start, int length, Writer out) throws IOException {
+        escape(text, start, start + length, XML_ATTRIBUTE, true, out);
+    }
+
+    private static void escape(String text, String[] table, boolean xml, StringBuilder out) {
+        int length = text.length();
+        int i = next(text, 0, table, xml);
+        if (i == length) {
+            // Cas courant : rien à échapper, copie d'un bloc
+            out.append(text);
+            return;
+        }
+        int start = 0;
+        while (i < length) {
+            out.append(text, start, i).append(replacement(text.charAt(i), table));
+            start = i + 1;
+            i = next(text, start, table, xml);
+        }
+        out.append(text, start, length);
+    }
+
+    private static void escape(String text, String[] table, boolean xml, Writer out) throws IOException {
+        int length = text.length();
+        int i = next(text, 0, table, xml);
+        if (i == length) {
+            out.write(text);
+            return;
+        }
+        int start = 0;
+        while (i < length) {
+            out.write(text, start, i - start);
+            out.write(replacement(text.charAt(i), table));
+            start = i + 1;
+            i = next(text, start, table, xml);
+        }
+        out.write(text, start, length - start);
+    }
+
+    private static void escape(char[] text, int start, int end, String[] table, boolean xml, Writer out)
+            throws IOException {
+        int i = next(text, start, end, table, xml);
+        while (i < end) {
+            out.write(text, start, i - start);
+            out.write(replacement(text[i], table));
+            start = i + 1;
+            i = next(text, start, end, table, xml);
+        }
+        out.write(text, start, end - start);
+    }
+
+    /**
+     * Position du prochain caractère à remplacer, ou la longueur du texte
+     */
+    private static int next(String text, int from, String[] table, boolean xml) {
+        int length = text.length();
+        for (int i = from; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 128) {
+                if (table[c] != null) {
+                    return i;
+                }
+            } else if (xml && c >= Character.MIN_SURROGATE) {
+                if (c >= 0xFFFE) {
+                    return i;
+                }
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    return i;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static int next(char[] text, int from, int end, String[] table, boolean xml) {
+        for (int i = from; i < end; i++) {
+            char c = text[i];
+            if (c < 128) {
+                if (table[c] != null) {
+                    return i;
+                }
+            } else if (xml && c >= Character.MIN_SURROGATE) {
+                if (c >= 0xFFFE) {
+                    return i;
+                }
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text[i + 1])) {
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    return i;
+                }
+            }
+        }
+        return end;
+    }
+
+    private static String replacement(char c, String[] table) {
+        return c < 128 ? table[c] : XML_INVALID;
+    }
+}
@@ -0,0 +1,559 @@
+package service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Analyseur lexical JSON (from scratch)
+ * Parcourt le texte en un seul passage avec un curseur unique sur un tableau de caractères,
+ * sans découper de sous-chaînes intermédiaires : chaque caractère n'est lu qu'une fois,
+ * quelle que soit la profondeur du document.
+ *
+ * Le contenu peut être entièrement en mémoire ou lu progressivement depuis un Reader.
+ */
+public final class JsonLexer {
+
+    /**
+     * Types de jetons produits par le lexer
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, COLON, COMMA,
+        STRING, NUMBER, TRUE, FALSE, NULL, END
+    }
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private static final StructuralScanner SCANNER = StructuralScanner.get();
+
+    // Source progressive (null si tout le contenu est déjà dans le tampon)
+    private final Reader source;
+
+    private char[] buffer;
+    private int pos;
+    private int limit;
+
+    // Nombre de caractères déjà consommés avant le début du tampon
+    private long consumed;
+
+    // Début de la partie du tampon gardée lors des rechargements (-1 : aucune)
+    private int mark = -1;
+
+    // Imbrication dans l'élément parcouru par skipElement
+    private int skipNesting;
+
+    // Bitmap structurelle de la région [regionStart, regionEnd) du tampon, gardée d'un élément
+    // au suivant ; null si une chaîne dépasse la région (parcours caractère par caractère)
+    private long[] regionBits;
+    private long regionStart;
+    private long regionEnd;
+
+    // Valeur du dernier jeton STRING ou NUMBER :
+    // soit une tranche du tampon, soit le texte décodé dans "decoded"
+    private int valueStart;
+    private int valueEnd;
+    private boolean valueDecoded;
+    private final StringBuilder decoded = new StringBuilder();
+
+    // Table des noms du thread, obtenue à la première clé lue
+    private SymbolTable symbols;
+
+    // Objets, tableaux, clés et valeurs simples lus
+    private long nodes;
+
+    /**
+     * Lexer sur un contenu entièrement en mémoire
+     */
+    public JsonLexer(CharSequence json) {
+        this.source = null;
+        this.buffer = json.toString().toCharArray();
+        this.limit = buffer.length;
+    }
+
+    /**
+     * Lexer sur un extrait d'un contenu plus long (sans copie)
+     * @param offset Position de json[0] dans le contenu : les erreurs donnent la position dans le document
+     */
+    JsonLexer(char[] json, long offset) {
+        this.source = null;
+        this.buffer = json;
+        this.limit = json.length;
+        this.consumed = offset;
+    }
+
+    /**
+     * Lexer sur un flux, lu par blocs
+     */
+    public JsonLexer(Reader source) {
+        this.source = source;
+        this.buffer = new char[READ_BUFFER_SIZE];
+    }
+
+    /**
+     * Lit le jeton suivant
+     */
+    public Token next() throws Exception {
+        int c = skipWhitespace();
+        if (c < 0) {
+            return Token.END;
+        }
+
+        switch (c) {
+            case '{': pos++; nodes++; return Token.BEGIN_OBJECT;
+            case '}': pos++; return Token.END_OBJECT;
+            case '[': pos++; nodes++; return Token.BEGIN_ARRAY;
+            case ']': pos++; return Token.END_ARRAY;
+            case ':': pos++; return Token.COLON;
+            case ',': pos++; return Token.COMMA;
+            case '"':
+                pos++;
+                nodes++;
+                readString();
+                return Token.STRING;
+            case 't':
+                nodes++;
+                readLiteral("true");
+                return Token.TRUE;
+            case 'f':
+                nodes++;
+                readLiteral("false");
+                return Token.FALSE;
+            case 'n':
+                nodes++;
+                readLiteral("null");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    nodes++;
+                    readNumber();
+                    return Token.NUMBER;
+                }
+                throw error("Caractère inattendu '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Valeur du dernier jeton STRING (déséchappée) ou NUMBER (texte brut)
+     * Valide jusqu'au prochain appel de next()
+     */
+    public String stringValue() {
+        if (valueDecoded) {
+            return decoded.toString();
+        }
+        return new String(buffer, valueStart, valueEnd - valueStart);
+    }
+
+    /**
+     * Valeur du dernier jeton NUMBER, analysée seulement si un accesseur numérique est appelé
+     */
+    public JsonNumber numberValue() {
+        return new JsonNumber(stringValue());
+    }
+
+    /**
+     * Écrit la valeur du dernier jeton STRING ou NUMBER telle quelle, sans chaîne intermédiaire
+     */
+    void writeValue(Writer out) throws IOException {
+        if (valueDecoded) {
+            out.append(decoded);
+        } else {
+            out.write(buffer, valueStart, valueEnd - valueStart);
+        }
+    }
+
+    /**
+     * Longueur de la valeur du dernier jeton STRING ou NUMBER
+     */
+    int valueLength() {
+        return valueDecoded ? decoded.length() : valueEnd - valueStart;
+    }
+
+    /**
+     * Copie la valeur du dernier jeton STRING ou NUMBER dans dest, sans chaîne intermédiaire
+     */
+    void copyValue(char[] dest, int offset) {
+        if (valueDecoded) {
+            decoded.getChars(0, decoded.length(), dest, offset);
+        } else {
+            System.arraycopy(buffer, valueStart, dest, offset, valueEnd - valueStart);
+        }
+    }
+
+    /**
+     * Valeur du dernier jeton STRING sous forme de symbole (clé d'objet)
+     * Un nom déjà rencontré est retrouvé sans créer de chaîne
+     */
+    SymbolTable.Symbol symbolValue() {
+        if (symbols == null) {
+            symbols = SymbolTable.local();
+        }
+        if (valueDecoded) {
+            return symbols.lookup(decoded.toString());
+        }
+        return symbols.lookup(buffer, valueStart, valueEnd - valueStart);
+    }
+
+    /**
+     * Nombre d'objets, tableaux, clés et valeurs simples lus jusqu'ici
+     */
+    long nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Position (en caractères depuis le début) du prochain caractère à lire
+     */
+    public long position() {
+        return consumed + pos;
+    }
+
+    /**
+     * Garde dans le tampon tout ce qui est lu à partir d'ici, jusqu'au prochain mark() ou release()
+     */
+    void mark() {
+        mark = pos;
+    }
+
+    void release() {
+        mark = -1;
+    }
+
+    /**
+     * Copie des caractères lus entre la marque et une position déjà atteinte
+     */
+    char[] marked(long end) {
+        return Arrays.copyOfRange(buffer, mark, (int) (end - consumed));
+    }
+
+    /**
+     * Reprend la lecture à une position comprise entre la marque et la fin du tampon
+     */
+    void seek(long position) {
+        pos = (int) (position - consumed);
+    }
+
+    /**
+     * Avance jusqu'à la fin de l'élément de tableau qui commence ici : ',' ou ']' de premier
+     * niveau, non consommé. Seuls les chaînes et l'imbrication sont suivis (bitmap de
+     * {@link StructuralScanner}) ; les valeurs sont validées plus tard, par le lexer de la tranche.
+     * À appeler après mark() : les caractères parcourus restent dans le tampon.
+     * @param budget Nombre de caractères au-delà duquel l'élément est abandonné
+     * @return ',' ou ']' ; -1 si l'élément est vide, trop long, non terminé ou mal imbriqué
+     */
+    int skipElement(int budget) throws IOException {
+        int c = skipWhitespace();
+        if (c < 0 || c == ',' || c == ']' || c == '}') {
+            return -1;
+        }
+        long end = position() + budget;
+        skipNesting = 0;
+
+        while (position() < end) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            long from = position();
+            if (from < regionStart || from >= regionEnd) {
+                regionBits = SCANNER.structurals(buffer, pos, limit);
+                regionStart = from;
+                regionEnd = consumed + limit;
+            }
+            if (regionBits != null) {
+                int offset = (int) (from - regionStart);
+                for (int word = offset >>> 6; word < regionBits.length; word++) {
+                    long bits = regionBits[word];
+                    if (word == offset >>> 6) {
+                        bits &= -1L << offset;
+                    }
+                    for (; bits != 0; bits &= bits - 1) {
+                        int i = (int) (regionStart - consumed) + (word << 6) + Long.numberOfTrailingZeros(bits);
+                        int result = skipStructural(buffer[i]);
+                        if (result != 0) {
+                            pos = i;
+                            return result;
+                        }
+                    }
+                }
+                pos = (int) (regionEnd - consumed);
+                continue;
+            }
+
+            // Une chaîne continue après le tampon : caractère par caractère jusqu'à sa fin
+            boolean inString = false;
+            do {
+                if (pos == limit && !fill()) {
+                    return -1;
+                }
+                char ch = buffer[pos++];
+                if (inString) {
+                    if (ch == '\\') {
+                        if (pos == limit && !fill()) {
+                            return -1;
+                        }
+                        pos++;
+                    } else if (ch == '"') {
+                        inString = false;
+                    }
+                } else if (ch == '"') {
+                    inString = true;
+                } else if (ch == '{' || ch == '}' || ch == '[' || ch == ']' || ch == ',') {
+                    int result = skipStructural(ch);
+                    if (result != 0) {
+                        pos--;
+                        return result;
+                    }
+                }
+            } while ((inString || pos < limit) && position() < end);
+        }
+        return -1;
+    }
+
+    /**
+     * @return ',' ou ']' en fin d'élément, -1 si mal imbriqué, 0 pour continuer
+     */
+    private int skipStructural(char c) {
+        if (c == '{' || c == '[') {
+            skipNesting++;
+            return 0;
+        }
+        if (skipNesting > 0) {
+            if (c != ',') {
+                skipNesting--;
+            }
+            return 0;
+        }
+        return c == '}' ? -1 : c;
+    }
+
+    /**
+     * Saute les espaces et renvoie le prochain caractère sans le consommer (-1 en fin de contenu)
+     */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Lit une chaîne (le guillemet ouvrant est déjà consommé)
+     * Tant qu'aucun échappement n'est rencontré, la valeur reste une tranche du tampon.
+     */
+    private void readString() throws Exception {
+        valueDecoded = false;
+        int start = pos;
+
+        while (true) {
+            // Saut des caractères ordinaires, plusieurs à la fois si le balayage est vectorisé
+            pos = SCANNER.stringEnd(buffer, pos, limit);
+            if (pos == limit) {
+                // Le tampon va être rechargé : la valeur est recopiée au fur et à mesure
+                appendDecoded(start, pos);
+                if (!fill()) {
+                    throw error("Chaîne non terminée");
+                }
+                start = pos;
+                continue;
+            }
+
+            char c = buffer[pos];
+            if (c == '"') {
+                if (valueDecoded) {
+                    appendDecoded(start, pos);
+                } else {
+                    valueStart = start;
+                    valueEnd = pos;
+                }
+                pos++;
+                return;
+            }
+            if (c == '\\') {
+                appendDecoded(start, pos);
+                pos++;
+                readEscape();
+                start = pos;
+                continue;
+            }
+            throw error("Caractère de contrôle non échappé dans une chaîne");
+        }
+    }
+
+    /**
+     * Décode une séquence d'échappement (le '\' est déjà consommé)
+     */
+    private void readEscape() throws Exception {
+        char c = readChar("Échappement non terminé");
+        switch (c) {
+            case '"':  decoded.append('"'); break;
+            case '\\': decoded.append('\\'); break;
+            case '/':  decoded.append('/'); break;
+            case 'b':  decoded.append('\b'); break;
+            case 'f':  decoded.append('\f'); break;
+            case 'n':  decoded.append('\n'); break;
+            case 'r':  decoded.append('\r'); break;
+            case 't':  decoded.append('\t'); break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(readChar("Échappement unicode non terminé"), 16);
+                    if (digit < 0) {
+                        throw error("Échappement unicode invalide");
+                    }
+                    code = (code << 4) | digit;
+                }
+                decoded.append((char) code);
+                break;
+            default:
+                throw error("Échappement invalide '\\" + c + "'");
+        }
+    }
+
+    /**
+     * Lit un nombre JSON : -?(0|[1-9]chiffres)(.fraction)?(exposant)?
+     */
+    private void readNumber() throws Exception {
+        valueDecoded = false;
+        int start = pos;
+
+        if (peek() == '-') {
+            start = advanceIn(start);
+        }
+        if (!isDigit(peek())) {
+            throw error("Nombre invalide");
+        }
+        if (peek() == '0') {
+            // Pas de zéro en tête (01, -007) : le texte est recopié tel quel dans le XML
+            start = advanceIn(start);
+            if (isDigit(peek())) {
+                throw error("Nombre invalide (zéro en tête)");
+            }
+        }
+        while (isDigit(peek())) {
+            start = advanceIn(start);
+        }
+        if (peek() == '.') {
+            start = advanceIn(start);
+            if (!isDigit(peek())) {
+                throw error("Nombre invalide");
+            }
+            while (isDigit(peek())) {
+                start = advanceIn(start);
+            }
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            start = advanceIn(start);
+            if (peek() == '+' || peek() == '-') {
+                start = advanceIn(start);
+            }
+            if (!isDigit(peek())) {
+                throw error("Nombre invalide");
+            }
+            while (isDigit(peek())) {
+                start = advanceIn(start);
+            }
+        }
+
+        if (valueDecoded) {
+            appendDecoded(start, pos);
+        } else {
+            valueStart = start;
+            valueEnd = pos;
+        }
+    }
+
+    /**
+     * Avance d'un caractère dans le jeton en cours ; si le tampon doit être rechargé,
+     * la partie déjà lue du jeton est recopiée. Renvoie le nouveau début de tranche.
+     */
+    private int advanceIn(int start) throws IOException {
+        pos++;
+        if (pos == limit && source != null) {
+            appendDecoded(start, pos);
+            fill();
+            return pos;
+        }
+        return start;
+    }
+
+    private void readLiteral(String literal) throws Exception {
+        for (int i = 0; i < literal.length(); i++) {
+            if (pos == limit && !fill()) {
+                throw error("Valeur JSON invalide");
+            }
+            if (buffer[pos] != literal.charAt(i)) {
+                throw error("Valeur JSON invalide");
+            }
+            pos++;
+        }
+    }
+
+    private void appendDecoded(int start, int end) {
+        if (!valueDecoded) {
+            decoded.setLength(0);
+            valueDecoded = true;
+        }
+        decoded.append(buffer, start, end - start);
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private char readChar(String eofMessage) throws Exception {
+        if (pos == limit && !fill()) {
+            throw error(eofMessage);
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Recharge le tampon depuis la source ; renvoie false en fin de contenu
+     */
+    private boolean fill() throws IOException {
+        if (source == null) {
+            return false;
+        }
+        if (mark < 0) {
+            consumed += limit;
+            limit = 0;
+        } else {
+            // La partie marquée est ramenée en tête ; le tampon double s'il en est à moitié plein,
+            // pour que chaque lecture en apporte au moins autant qu'elle en recopie
+            int kept = limit - mark;
+            char[] target = kept > buffer.length / 2 ? new char[buffer.length * 2] : buffer;
+            System.arraycopy(buffer, mark, target, 0, kept);
+            buffer = target;
+            consumed += mark;
+            mark = 0;
+            limit = kept;
+        }
+        pos = limit;
+        int n;
+        do {
+            n = source.read(buffer, limit, buffer.length - limit);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private Exception error(String message) {
+        return new Exception(message + " à la position " + position());
+    }
+}
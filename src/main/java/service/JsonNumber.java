@@ -0,0 +1,91 @@
+package service;
+
+import java.math.BigDecimal;
+
+/**
+ * Nombre JSON gardé sous sa forme lexicale
+ *
+ * toString renvoie le texte source tel quel : les conversions le recopient sans le relire,
+ * quelle que soit sa taille ou sa notation (1.0E10, 12345678901, -0, 1.50).
+ * Il n'est analysé qu'à la première demande d'une valeur numérique ; bigDecimalValue est exacte,
+ * les autres accesseurs suivent les conversions de {@link Number}.
+ */
+public final class JsonNumber extends Number {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String text;
+    // Valeur exacte, calculée à la première demande
+    private transient BigDecimal value;
+
+    /**
+     * @param text Texte d'un nombre JSON déjà validé par le lexer
+     */
+    JsonNumber(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Vrai si le nombre est écrit sans partie décimale ni exposant
+     */
+    public boolean isIntegral() {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public BigDecimal bigDecimalValue() {
+        BigDecimal result = value;
+        if (result == null) {
+            result = new BigDecimal(text);
+            value = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    @Override
+    public long longValue() {
+        // Entier court : lu directement, sans BigDecimal
+        if (text.length() <= 18 && isIntegral()) {
+            return Long.parseLong(text);
+        }
+        return bigDecimalValue().longValue();
+    }
+
+    @Override
+    public float floatValue() {
+        return Float.parseFloat(text);
+    }
+
+    @Override
+    public double doubleValue() {
+        return Double.parseDouble(text);
+    }
+
+    /**
+     * Égalité sur le texte source : 1.0 et 1.00 sont différents
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof JsonNumber && text.equals(((JsonNumber) other).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
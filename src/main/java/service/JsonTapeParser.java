@@ -0,0 +1,109 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Analyse d'un document JSON vers une {@link TokenTape} (modèle JSON)
+ * Itératif : la profondeur d'imbrication ne dépend pas de la pile d'appels.
+ * Les nombres sont gardés sous forme de texte ; ils sont interprétés par l'écrivain.
+ */
+final class JsonTapeParser {
+
+    private JsonTapeParser() {
+    }
+
+    static TokenTape parse(JsonLexer lexer) throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.PARSE);
+        TokenTape tape = new TokenTape();
+
+        // Conteneurs ouverts
+        int[] open = new int[32];
+        int depth = 0;
+
+        JsonLexer.Token token = lexer.next();
+        while (true) {
+            // token : premier jeton d'une valeur
+            switch (token) {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    boolean object = token == JsonLexer.Token.BEGIN_OBJECT;
+                    int index = tape.open(object ? TokenTape.OBJECT : TokenTape.ARRAY, null);
+                    token = lexer.next();
+                    if (token == (object ? JsonLexer.Token.END_OBJECT : JsonLexer.Token.END_ARRAY)) {
+                        tape.close(index);
+                        break;
+                    }
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                    }
+                    open[depth++] = index;
+                    if (object) {
+                        token = readKey(lexer, tape, token);
+                    }
+                    // Premier membre du conteneur
+                    continue;
+                case STRING:
+                    tape.text(TokenTape.STRING, lexer);
+                    break;
+                case NUMBER:
+                    tape.text(TokenTape.NUMBER, lexer);
+                    break;
+                case TRUE:
+                    tape.literal(TokenTape.TRUE);
+                    break;
+                case FALSE:
+                    tape.literal(TokenTape.FALSE);
+                    break;
+                case NULL:
+                    tape.literal(TokenTape.NULL);
+                    break;
+                default:
+                    throw new Exception("Valeur JSON attendue à la position " + lexer.position());
+            }
+
+            // Valeur terminée : membre suivant, ou fermeture des conteneurs terminés
+            while (depth > 0) {
+                int container = open[depth - 1];
+                boolean object = tape.kind(container) == TokenTape.OBJECT;
+                token = lexer.next();
+                if (token == JsonLexer.Token.COMMA) {
+                    token = lexer.next();
+                    if (object) {
+                        token = readKey(lexer, tape, token);
+                    }
+                    break;
+                }
+                if (token != (object ? JsonLexer.Token.END_OBJECT : JsonLexer.Token.END_ARRAY)) {
+                    throw new Exception((object ? "',' ou '}'" : "',' ou ']'")
+                            + " attendu à la position " + lexer.position());
+                }
+                tape.close(container);
+                depth--;
+            }
+            if (depth == 0) {
+                break;
+            }
+        }
+
+        if (lexer.next() != JsonLexer.Token.END) {
+            throw new Exception("Contenu inattendu après la valeur JSON à la position " + lexer.position());
+        }
+        ConversionMetrics.addNodes(lexer.nodeCount());
+        return tape;
+    }
+
+    /**
+     * Ajoute la clé et lit le ':' qui la suit
+     * @return Premier jeton de la valeur
+     */
+    private static JsonLexer.Token readKey(JsonLexer lexer, TokenTape tape, JsonLexer.Token token) throws Exception {
+        if (token != JsonLexer.Token.STRING) {
+            throw new Exception("Clé attendue à la position " + lexer.position());
+        }
+        tape.name(TokenTape.KEY, lexer.symbolValue());
+        if (lexer.next() != JsonLexer.Token.COLON) {
+            throw new Exception("':' attendu après la clé");
+        }
+        return lexer.next();
+    }
+}
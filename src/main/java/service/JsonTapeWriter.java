@@ -0,0 +1,222 @@
+package service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Écriture JSON d'une {@link TokenTape}
+ *
+ * - modèle JSON : réécrit tel quel dans la mise en forme demandée ;
+ * - modèle XML : conventions de {@link XmlToJsonService} (attributs "@attr", "#text" si l'élément
+ *   a aussi des enfants, tableaux pour les enfants de même nom même non contigus, null si vide).
+ *
+ * Les enfants d'un élément sont regroupés par nom sans collection : un marquage par index
+ * de nom repère le premier enfant de chaque groupe, les membres suivants sont retrouvés
+ * en sautant de frère en frère.
+ */
+final class JsonTapeWriter {
+
+    private final TokenTape tape;
+    private final OutputFormat format;
+    private final Writer out;
+
+    // Par index de nom : élément dont les enfants sont en cours de regroupement, et position du groupe
+    private final int[] groupOwner;
+    private final int[] groupSlot;
+    // Pile des groupes : premier enfant, effectif
+    private int[] groups = new int[32];
+    private int groupTop;
+
+    JsonTapeWriter(TokenTape tape, OutputFormat format, Writer out) {
+        this.tape = tape;
+        this.format = format;
+        this.out = out;
+        this.groupOwner = new int[tape.nameCount()];
+        this.groupSlot = new int[tape.nameCount()];
+    }
+
+    void writeDocument() throws IOException {
+        ConversionMetrics.enter(ConversionMetrics.Phase.CONVERT);
+        if (tape.kind(0) == TokenTape.ELEMENT) {
+            // { "racine": valeur }
+            out.write("{");
+            format.newline(out, 1);
+            out.write(tape.name(0).jsonKey());
+            out.write(format.nameSeparator());
+            writeElement(0, 1);
+            format.newline(out, 0);
+            out.write("}");
+        } else {
+            writeValue(0, 0);
+        }
+    }
+
+    /**
+     * @return Index du jeton qui suit la valeur
+     */
+    private int writeValue(int index, int level) throws IOException {
+        switch (tape.kind(index)) {
+            case TokenTape.OBJECT:
+            case TokenTape.ARRAY:
+                return writeContainer(index, level);
+            case TokenTape.ELEMENT:
+                writeElement(index, level);
+                return tape.next(index);
+            case TokenTape.NUMBER:
+                out.write(tape.textBuffer(), tape.textStart(index), tape.textLength(index));
+                return index + 1;
+            case TokenTape.TRUE:
+                out.write("true");
+                return index + 1;
+            case TokenTape.FALSE:
+                out.write("false");
+                return index + 1;
+            case TokenTape.NULL:
+                out.write("null");
+                return index + 1;
+            default:
+                writeString(index);
+                return index + 1;
+        }
+    }
+
+    private int writeContainer(int index, int level) throws IOException {
+        boolean object = tape.kind(index) == TokenTape.OBJECT;
+        int end = tape.next(index);
+        int i = index + 1;
+        if (i == end) {
+            out.write(object ? "{}" : "[]");
+            return end;
+        }
+
+        out.write(object ? "{" : "[");
+        while (i < end) {
+            if (i > index + 1) {
+                out.write(",");
+            }
+            format.newline(out, level + 1);
+            if (object) {
+                out.write(tape.name(i).jsonKey());
+                out.write(format.nameSeparator());
+                i++;
+            }
+            i = writeValue(i, level + 1);
+        }
+        format.newline(out, level);
+        out.write(object ? "}" : "]");
+        return end;
+    }
+
+    /**
+     * Valeur JSON d'un élément XML, comme XmlToJsonService.convertElement
+     */
+    private void writeElement(int index, int level) throws IOException {
+        int end = tape.next(index);
+        int attributesEnd = index + 1;
+        while (attributesEnd < end && tape.kind(attributesEnd) == TokenTape.ATTRIBUTE) {
+            attributesEnd += 2;
+        }
+        boolean hasAttributes = attributesEnd > index + 1;
+
+        // Premier passage : dernier texte, et groupes d'enfants dans l'ordre de première apparition
+        int text = -1;
+        int groupBase = groupTop;
+        for (int i = attributesEnd; i < end; i = tape.next(i)) {
+            if (tape.kind(i) == TokenTape.TEXT) {
+                text = i;
+                continue;
+            }
+            int name = tape.nameId(i);
+            if (groupOwner[name] == index + 1 && groupSlot[name] >= groupBase) {
+                groups[groupSlot[name] + 1]++;
+            } else {
+                if (groupTop + 2 > groups.length) {
+                    groups = Arrays.copyOf(groups, groups.length * 2);
+                }
+                groupOwner[name] = index + 1;
+                groupSlot[name] = groupTop;
+                groups[groupTop++] = i;
+                groups[groupTop++] = 1;
+            }
+        }
+        int groupEnd = groupTop;
+        boolean hasChildren = groupEnd > groupBase;
+
+        // Élément simple (texte uniquement) ou vide
+        if (!hasChildren && !hasAttributes) {
+            if (text >= 0) {
+                writeString(text);
+            } else {
+                out.write("null");
+            }
+            return;
+        }
+
+        out.write("{");
+        boolean firstProperty = true;
+
+        for (int i = index + 1; i < attributesEnd; i += 2) {
+            firstProperty = separator(firstProperty, level);
+            out.write(tape.name(i).jsonAttributeKey());
+            out.write(format.nameSeparator());
+            writeString(i + 1);
+        }
+
+        if (text >= 0 && hasChildren) {
+            firstProperty = separator(firstProperty, level);
+            out.write("\"#text\"");
+            out.write(format.nameSeparator());
+            writeString(text);
+        }
+
+        // Second passage : un groupe à la fois (les appels récursifs empilent au-dessus de groupEnd)
+        for (int g = groupBase; g < groupEnd; g += 2) {
+            int child = groups[g];
+            int count = groups[g + 1];
+            firstProperty = separator(firstProperty, level);
+            out.write(tape.name(child).jsonKey());
+            out.write(format.nameSeparator());
+
+            if (count == 1) {
+                writeElement(child, level + 1);
+                continue;
+            }
+            int name = tape.nameId(child);
+            out.write("[");
+            for (int i = child, written = 0; written < count; i = tape.next(i)) {
+                if (tape.kind(i) == TokenTape.ELEMENT && tape.nameId(i) == name) {
+                    if (written++ > 0) {
+                        out.write(",");
+                    }
+                    format.newline(out, level + 2);
+                    writeElement(i, level + 2);
+                }
+            }
+            format.newline(out, level + 1);
+            out.write("]");
+        }
+        groupTop = groupBase;
+
+        format.newline(out, level);
+        out.write("}");
+    }
+
+    /**
+     * Virgule (sauf pour la première propriété) et retour à la ligne d'une propriété de niveau level + 1
+     * @return false : les propriétés suivantes ne sont plus les premières
+     */
+    private boolean separator(boolean firstProperty, int level) throws IOException {
+        if (!firstProperty) {
+            out.write(",");
+        }
+        format.newline(out, level + 1);
+        return false;
+    }
+
+    private void writeString(int index) throws IOException {
+        out.write("\"");
+        Escaper.escapeJson(tape.textBuffer(), tape.textStart(index), tape.textLength(index), out);
+        out.write("\"");
+    }
+}
@@ -1,16 +1,36 @@
 package service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.*;
 
 /**
  * Service de conversion JSON vers XML (from scratch)
  * Parse le JSON manuellement et construit le XML
+ * Les nombres restent sous leur forme source ({@link JsonNumber}) et sont recopiés à l'identique
+ * Le service ne garde aucun état entre deux appels : une instance peut être partagée entre threads
  */
-public class JsonToXmlService {
+public class JsonToXmlService implements ConversionEngine {
     
-    private StringBuilder xmlBuilder;
-    private int indentLevel;
-    private static final String INDENT = "  ";
+    // Taille du tampon au-delà de laquelle la sortie sur flux est déversée
+    private static final int SPILL_SIZE = 1 << 16;
+    
+    // Mise en forme du XML produit
+    private final OutputFormat format;
+    
+    public JsonToXmlService() {
+        this(OutputFormat.PRETTY);
+    }
+    
+    public JsonToXmlService(OutputFormat format) {
+        this.format = format;
+    }
+    
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new JsonToXmlService(format);
+    }
     
     /**
      * Convertit une chaîne JSON en XML
@@ -18,270 +38,169 @@ public class JsonToXmlService {
      * @return Chaîne XML formatée
      */
     public String convert(String jsonContent) throws Exception {
-        xmlBuilder = new StringBuilder();
-        indentLevel = 0;
+        return toXml(parseJson(new JsonLexer(jsonContent)), null).toString();
+    }
+    
+    /**
+     * Variante sur flux : le lexer consomme le JSON par blocs et le XML
+     * est déversé dans le writer par blocs de SPILL_SIZE caractères
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convert(Reader jsonReader, Writer xmlWriter) throws Exception {
+        xmlWriter.append(toXml(parseJson(new JsonLexer(jsonReader)), xmlWriter));
+        xmlWriter.flush();
+    }
+    
+    /**
+     * @param sink Destination des blocs déjà produits, null pour tout garder en mémoire
+     * @return Fin du XML non encore déversée
+     */
+    private StringBuilder toXml(Object jsonObj, Writer sink) throws Exception {
+        StringBuilder xmlBuilder = new StringBuilder();
+        SymbolTable symbols = SymbolTable.local();
         
         // Ajouter la déclaration XML
-        xmlBuilder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        
-        // Parser le JSON
-        Object jsonObj = parseJson(jsonContent.trim());
+        xmlBuilder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        format.lineEnd(xmlBuilder);
         
         // Convertir en XML
         if (jsonObj instanceof Map) {
             Map<String, Object> rootMap = (Map<String, Object>) jsonObj;
             for (Map.Entry<String, Object> entry : rootMap.entrySet()) {
-                convertToXml(entry.getKey(), entry.getValue());
+                convertToXml(entry.getKey(), entry.getValue(), xmlBuilder, 0, symbols, sink);
             }
         } else {
             throw new Exception("Le JSON doit commencer par un objet");
         }
         
-        return xmlBuilder.toString();
+        return xmlBuilder;
     }
     
     /**
      * Parse une chaîne JSON en structure Java
+     * Un seul passage du lexer sur le texte, sans sous-chaînes intermédiaires
      */
-    private Object parseJson(String json) throws Exception {
-        json = json.trim();
-        
-        if (json.startsWith("{")) {
-            return parseObject(json);
-        } else if (json.startsWith("[")) {
-            return parseArray(json);
-        } else if (json.startsWith("\"")) {
-            return parseString(json);
-        } else if (json.equals("null")) {
-            return null;
-        } else if (json.equals("true") || json.equals("false")) {
-            return Boolean.parseBoolean(json);
-        } else {
-            // Nombre
-            try {
-                if (json.contains(".")) {
-                    return Double.parseDouble(json);
-                } else {
-                    return Integer.parseInt(json);
-                }
-            } catch (NumberFormatException e) {
-                throw new Exception("Valeur JSON invalide: " + json);
-            }
+    private Object parseJson(JsonLexer lexer) throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.PARSE);
+        Object value = parseValue(lexer, lexer.next());
+
+        if (lexer.next() != JsonLexer.Token.END) {
+            throw new Exception("Contenu inattendu après la valeur JSON à la position " + lexer.position());
         }
+        ConversionMetrics.addNodes(lexer.nodeCount());
+        ConversionMetrics.enter(ConversionMetrics.Phase.CONVERT);
+        return value;
     }
-    
+
+    /**
+     * Parse une valeur JSON à partir de son premier jeton
+     */
+    static Object parseValue(JsonLexer lexer, JsonLexer.Token token) throws Exception {
+        switch (token) {
+            case BEGIN_OBJECT:
+                return parseObject(lexer);
+            case BEGIN_ARRAY:
+                return parseArray(lexer);
+            case STRING:
+                return lexer.stringValue();
+            case NUMBER:
+                // Texte source conservé : recopié tel quel dans le XML
+                return lexer.numberValue();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case NULL:
+                return null;
+            default:
+                throw new Exception("Valeur JSON attendue à la position " + lexer.position());
+        }
+    }
+
     /**
-     * Parse un objet JSON
+     * Parse un objet JSON (l'accolade ouvrante est déjà lue)
      */
-    private Map<String, Object> parseObject(String json) throws Exception {
+    private static Map<String, Object> parseObject(JsonLexer lexer) throws Exception {
         Map<String, Object> map = new LinkedHashMap<>();
-        
-        // Retirer les accolades
-        json = json.substring(1, json.length() - 1).trim();
-        
-        if (json.isEmpty()) {
+
+        JsonLexer.Token token = lexer.next();
+        if (token == JsonLexer.Token.END_OBJECT) {
             return map;
         }
-        
+
         // Parser les paires clé-valeur
-        int pos = 0;
-        while (pos < json.length()) {
-            // Sauter les espaces
-            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
-                pos++;
-            }
-            
-            if (pos >= json.length()) break;
-            
-            // Parser la clé
-            if (json.charAt(pos) != '"') {
-                throw new Exception("Clé attendue à la position " + pos);
-            }
-            
-            int keyStart = pos + 1;
-            int keyEnd = findStringEnd(json, pos);
-            String key = json.substring(keyStart, keyEnd);
-            pos = keyEnd + 1;
-            
-            // Trouver le ':'
-            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
-                pos++;
+        while (true) {
+            if (token != JsonLexer.Token.STRING) {
+                throw new Exception("Clé attendue à la position " + lexer.position());
             }
-            if (pos >= json.length() || json.charAt(pos) != ':') {
+            // Clé internée : les objets d'une liste partagent les mêmes chaînes
+            String key = lexer.symbolValue().name;
+
+            if (lexer.next() != JsonLexer.Token.COLON) {
                 throw new Exception("':' attendu après la clé");
             }
-            pos++;
-            
-            // Parser la valeur
-            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
-                pos++;
-            }
-            
-            int valueStart = pos;
-            int valueEnd = findValueEnd(json, pos);
-            String valueStr = json.substring(valueStart, valueEnd).trim();
-            
-            Object value = parseJson(valueStr);
-            map.put(key, value);
-            
-            pos = valueEnd;
-            
-            // Chercher la virgule
-            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
-                pos++;
+
+            map.put(key, parseValue(lexer, lexer.next()));
+
+            // Chercher la virgule ou la fin de l'objet
+            token = lexer.next();
+            if (token == JsonLexer.Token.END_OBJECT) {
+                return map;
             }
-            if (pos < json.length() && json.charAt(pos) == ',') {
-                pos++;
+            if (token != JsonLexer.Token.COMMA) {
+                throw new Exception("',' ou '}' attendu à la position " + lexer.position());
             }
+            token = lexer.next();
         }
-        
-        return map;
     }
-    
+
     /**
-     * Parse un tableau JSON
+     * Parse un tableau JSON (le crochet ouvrant est déjà lu)
      */
-    private List<Object> parseArray(String json) throws Exception {
+    private static List<Object> parseArray(JsonLexer lexer) throws Exception {
         List<Object> list = new ArrayList<>();
-        
-        // Retirer les crochets
-        json = json.substring(1, json.length() - 1).trim();
-        
-        if (json.isEmpty()) {
+
+        JsonLexer.Token token = lexer.next();
+        if (token == JsonLexer.Token.END_ARRAY) {
             return list;
         }
-        
-        int pos = 0;
-        while (pos < json.length()) {
-            // Sauter les espaces
-            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
-                pos++;
-            }
-            
-            if (pos >= json.length()) break;
-            
-            int valueStart = pos;
-            int valueEnd = findValueEnd(json, pos);
-            String valueStr = json.substring(valueStart, valueEnd).trim();
-            
-            Object value = parseJson(valueStr);
-            list.add(value);
-            
-            pos = valueEnd;
-            
-            // Chercher la virgule
-            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
-                pos++;
-            }
-            if (pos < json.length() && json.charAt(pos) == ',') {
-                pos++;
-            }
-        }
-        
-        return list;
-    }
-    
-    /**
-     * Parse une chaîne JSON
-     */
-    private String parseString(String json) {
-        // Retirer les guillemets et gérer les échappements
-        String str = json.substring(1, json.length() - 1);
-        str = str.replace("\\\"", "\"")
-                 .replace("\\\\", "\\")
-                 .replace("\\n", "\n")
-                 .replace("\\r", "\r")
-                 .replace("\\t", "\t");
-        return str;
-    }
-    
-    /**
-     * Trouve la fin d'une chaîne JSON
-     */
-    private int findStringEnd(String json, int start) throws Exception {
-        int pos = start + 1;
-        while (pos < json.length()) {
-            char c = json.charAt(pos);
-            if (c == '"' && json.charAt(pos - 1) != '\\') {
-                return pos;
-            }
-            pos++;
-        }
-        throw new Exception("Chaîne non terminée");
-    }
-    
-    /**
-     * Trouve la fin d'une valeur JSON
-     */
-    private int findValueEnd(String json, int start) {
-        char firstChar = json.charAt(start);
-        
-        if (firstChar == '"') {
-            try {
-                return findStringEnd(json, start) + 1;
-            } catch (Exception e) {
-                return json.length();
-            }
-        } else if (firstChar == '{') {
-            return findMatchingBrace(json, start, '{', '}') + 1;
-        } else if (firstChar == '[') {
-            return findMatchingBrace(json, start, '[', ']') + 1;
-        } else {
-            // Valeur simple (nombre, booléen, null)
-            int pos = start;
-            while (pos < json.length()) {
-                char c = json.charAt(pos);
-                if (c == ',' || c == '}' || c == ']') {
-                    break;
-                }
-                pos++;
-            }
-            return pos;
-        }
-    }
-    
-    /**
-     * Trouve l'accolade/crochet fermant correspondant
-     */
-    private int findMatchingBrace(String json, int start, char open, char close) {
-        int count = 1;
-        int pos = start + 1;
-        boolean inString = false;
-        
-        while (pos < json.length() && count > 0) {
-            char c = json.charAt(pos);
-            
-            if (c == '"' && json.charAt(pos - 1) != '\\') {
-                inString = !inString;
+
+        while (true) {
+            list.add(parseValue(lexer, token));
+
+            // Chercher la virgule ou la fin du tableau
+            token = lexer.next();
+            if (token == JsonLexer.Token.END_ARRAY) {
+                return list;
             }
-            
-            if (!inString) {
-                if (c == open) count++;
-                if (c == close) count--;
+            if (token != JsonLexer.Token.COMMA) {
+                throw new Exception("',' ou ']' attendu à la position " + lexer.position());
             }
-            
-            pos++;
+            token = lexer.next();
         }
-        
-        return pos - 1;
     }
-    
+
     /**
      * Convertit un objet Java en XML
      */
-    private void convertToXml(String tagName, Object value) {
+    private void convertToXml(String tagName, Object value, StringBuilder xmlBuilder, int indentLevel,
+                              SymbolTable symbols, Writer sink) throws IOException {
         if (tagName.startsWith("@")) {
             // Les attributs sont ignorés ici, ils seront gérés par l'élément parent
             return;
         }
         
+        // Balises précalculées, partagées par toutes les occurrences du nom
+        SymbolTable.Symbol tag = symbols.lookup(tagName);
+        
         if (value == null) {
-            appendIndent();
-            xmlBuilder.append("<").append(tagName).append("/>\n");
+            format.indent(xmlBuilder, indentLevel);
+            xmlBuilder.append(tag.startTag()).append("/>");
+            format.lineEnd(xmlBuilder);
         } else if (value instanceof Map) {
             Map<String, Object> map = (Map<String, Object>) value;
-            appendIndent();
-            xmlBuilder.append("<").append(tagName);
+            format.indent(xmlBuilder, indentLevel);
+            xmlBuilder.append(tag.startTag());
             
             // Ajouter les attributs
             Map<String, Object> attributes = new LinkedHashMap<>();
@@ -290,7 +209,7 @@ public class JsonToXmlService {
             
             for (Map.Entry<String, Object> entry : map.entrySet()) {
                 if (entry.getKey().startsWith("@")) {
-                    attributes.put(entry.getKey().substring(1), entry.getValue());
+                    attributes.put(entry.getKey(), entry.getValue());
                 } else if (entry.getKey().equals("#text")) {
                     textContent = String.valueOf(entry.getValue());
                 } else {
@@ -300,61 +219,56 @@ public class JsonToXmlService {
             
             // Écrire les attributs
             for (Map.Entry<String, Object> attr : attributes.entrySet()) {
-                xmlBuilder.append(" ").append(attr.getKey()).append("=\"");
-                xmlBuilder.append(escapeXml(String.valueOf(attr.getValue()))).append("\"");
+                xmlBuilder.append(symbols.lookup(attr.getKey()).xmlAttribute());
+                Escaper.escapeXmlAttribute(String.valueOf(attr.getValue()), xmlBuilder);
+                xmlBuilder.append("\"");
             }
             
             if (elements.isEmpty() && textContent == null) {
-                xmlBuilder.append("/>\n");
+                xmlBuilder.append("/>");
+                format.lineEnd(xmlBuilder);
             } else {
                 xmlBuilder.append(">");
                 
                 if (!elements.isEmpty()) {
-                    xmlBuilder.append("\n");
+                    format.lineEnd(xmlBuilder);
                     indentLevel++;
                     for (Map.Entry<String, Object> element : elements.entrySet()) {
-                        convertToXml(element.getKey(), element.getValue());
+                        convertToXml(element.getKey(), element.getValue(), xmlBuilder, indentLevel, symbols, sink);
                     }
                     indentLevel--;
-                    appendIndent();
+                    format.indent(xmlBuilder, indentLevel);
                 } else if (textContent != null) {
-                    xmlBuilder.append(escapeXml(textContent));
+                    Escaper.escapeXmlText(textContent, xmlBuilder);
                 }
                 
-                xmlBuilder.append("</").append(tagName).append(">\n");
+                xmlBuilder.append(tag.endTag());
+                format.lineEnd(xmlBuilder);
             }
         } else if (value instanceof List) {
             // Chaque élément du tableau devient un élément XML avec le même nom
             List<Object> list = (List<Object>) value;
             for (Object item : list) {
-                convertToXml(tagName, item);
+                convertToXml(tagName, item, xmlBuilder, indentLevel, symbols, sink);
+                spill(xmlBuilder, sink);
             }
         } else {
             // Valeur simple
-            appendIndent();
-            xmlBuilder.append("<").append(tagName).append(">");
-            xmlBuilder.append(escapeXml(String.valueOf(value)));
-            xmlBuilder.append("</").append(tagName).append(">\n");
+            format.indent(xmlBuilder, indentLevel);
+            xmlBuilder.append(tag.startTag()).append(">");
+            Escaper.escapeXmlText(String.valueOf(value), xmlBuilder);
+            xmlBuilder.append(tag.endTag());
+            format.lineEnd(xmlBuilder);
         }
     }
     
     /**
-     * Échappe les caractères spéciaux XML
-     */
-    private String escapeXml(String text) {
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&apos;");
-    }
-    
-    /**
-     * Ajoute l'indentation courante
+     * Déverse le tampon dans la sortie dès qu'il dépasse SPILL_SIZE caractères
      */
-    private void appendIndent() {
-        for (int i = 0; i < indentLevel; i++) {
-            xmlBuilder.append(INDENT);
+    private static void spill(StringBuilder xmlBuilder, Writer sink) throws IOException {
+        if (sink != null && xmlBuilder.length() >= SPILL_SIZE) {
+            sink.append(xmlBuilder);
+            xmlBuilder.setLength(0);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,633 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service de conversion JSON vers XML en mode streaming (from scratch)
+ * Le XML est écrit à partir des jetons du {@link JsonLexer}, sans construire
+ * d'arbre Map/List intermédiaire.
+ *
+ * Comme dans {@link JsonToXmlService}, une clé répétée garde sa première position et sa
+ * dernière valeur, et un attribut ("@clé") peut suivre les éléments enfants. Un objet ouvert
+ * garde donc d'abord ses membres : les attributs en mémoire, le XML de chaque élément enfant
+ * dans un {@link SpillBuffer}. Dès que ces tampons dépassent COMMIT_SIZE caractères, les
+ * objets ouverts sont écrits, du plus externe au plus interne, avec les attributs déjà lus,
+ * et leurs éléments enfants suivants partent directement dans la sortie : la mémoire reste
+ * bornée, sans fichier temporaire, et la sortie commence avant la fin de la lecture.
+ *
+ * Un objet n'est pas écrit tant que son membre en cours remplace une clé antérieure : ce
+ * membre et ses descendants restent en tampon, qui déborde au besoin dans un fichier
+ * temporaire. Un attribut ou une clé répétée qui arrive dans un objet déjà écrit ne peut
+ * plus être placé comme dans l'arbre : la conversion échoue ({@link LateMemberException}).
+ *
+ * Aucun état partagé : convert peut être appelé en parallèle sur la même instance.
+ */
+public class JsonToXmlStreamService implements ConversionEngine {
+
+    // Caractères gardés en mémoire par conversion avant débordement sur disque
+    private static final int MEMORY_BUDGET = 1 << 21;
+
+    // Caractères en attente au-delà desquels les objets ouverts sont écrits
+    static final int COMMIT_SIZE = MEMORY_BUDGET / 2;
+
+    /**
+     * Attribut ou clé répétée arrivé dans un objet déjà écrit : seul le moteur arborescent
+     * peut convertir ce document
+     */
+    static final class LateMemberException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        // Le message remonte tel quel à la ligne de commande et au serveur HTTP
+        LateMemberException(String message) {
+            super("Attribut/clé tardif : " + message
+                    + " ; utiliser le moteur arborescent (--engine scratch, ?engine=scratch)");
+        }
+    }
+
+    /**
+     * Prise en charge externe des éléments d'un tableau (conversion parallèle)
+     */
+    interface ArrayDelegate {
+
+        /**
+         * Écrit des éléments du tableau, chacun sous forme d'élément tagName, à partir
+         * de la position du lexer (après '[' ou ',')
+         * @return true si le ']' a été lu ; false si le lexer est laissé devant un élément
+         *         à convertir séquentiellement (trop grand pour une tranche, ou mal formé)
+         */
+        boolean writeArray(JsonLexer lexer, Writer out, String tagName, int level) throws Exception;
+    }
+
+    // Null pour une conversion entièrement séquentielle
+    private final ArrayDelegate arrays;
+
+    private final OutputFormat format;
+
+    public JsonToXmlStreamService() {
+        this(OutputFormat.PRETTY);
+    }
+
+    public JsonToXmlStreamService(OutputFormat format) {
+        this(null, format);
+    }
+
+    JsonToXmlStreamService(ArrayDelegate arrays, OutputFormat format) {
+        this.arrays = arrays;
+        this.format = format;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new JsonToXmlStreamService(arrays, format);
+    }
+
+    /**
+     * Convertit une chaîne JSON en XML
+     */
+    public String convert(String jsonContent) throws Exception {
+        StringWriter output = new StringWriter();
+        convert(new StringReader(jsonContent), output);
+        return output.toString();
+    }
+
+    /**
+     * Convertit un flux JSON en XML écrit dans la sortie
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convert(Reader jsonReader, Writer xmlWriter) throws Exception {
+        convert(new JsonLexer(jsonReader), xmlWriter);
+    }
+
+    void convert(JsonLexer lexer, Writer xmlWriter) throws Exception {
+        Writer out = new BufferedWriter(xmlWriter, 1 << 16);
+
+        if (lexer.next() != JsonLexer.Token.BEGIN_OBJECT) {
+            throw new Exception("Le JSON doit commencer par un objet");
+        }
+
+        // Ajouter la déclaration XML
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        format.lineEnd(out);
+
+        // Chaque membre de l'objet racine devient un élément de premier niveau
+        Conversion conversion = new Conversion(lexer);
+        try {
+            conversion.writeObject(null, 0, out);
+        } finally {
+            conversion.store.close();
+        }
+
+        if (lexer.next() != JsonLexer.Token.END) {
+            throw new Exception("Contenu inattendu après la valeur JSON à la position " + lexer.position());
+        }
+        ConversionMetrics.addNodes(lexer.nodeCount());
+        out.flush();
+    }
+
+    /**
+     * Écrit une suite de valeurs séparées par des virgules (tranche d'un tableau,
+     * sans crochets), chacune sous forme d'élément tagName
+     */
+    void writeElements(JsonLexer lexer, Writer out, String tagName, int level) throws Exception {
+        // Symbole pris dans la table du thread qui convertit la tranche
+        SymbolTable.Symbol tag = SymbolTable.local().lookup(tagName);
+        Conversion conversion = new Conversion(lexer);
+        try {
+            JsonLexer.Token token = lexer.next();
+            while (token != JsonLexer.Token.END) {
+                conversion.writeValue(tag, token, level, out);
+                token = conversion.nextElement(JsonLexer.Token.END);
+            }
+        } finally {
+            conversion.store.close();
+        }
+    }
+
+    /**
+     * État d'une conversion : les membres des objets ouverts, réutilisés par profondeur
+     */
+    private final class Conversion {
+
+        private final JsonLexer lexer;
+        private final SpillBuffer.Store store;
+        private final List<Members> stack = new ArrayList<>();
+        private int depth;
+
+        Conversion(JsonLexer lexer) {
+            this.lexer = lexer;
+            this.store = new SpillBuffer.Store(MEMORY_BUDGET, format.indentUnit());
+        }
+
+        /**
+         * Écrit une valeur JSON sous forme d'élément(s) XML nommé(s) tag
+         */
+        void writeValue(SymbolTable.Symbol tag, JsonLexer.Token token, int level, Writer out) throws Exception {
+            switch (token) {
+                case NULL:
+                    format.indent(out, level);
+                    out.write(tag.startTag());
+                    out.write("/>");
+                    format.lineEnd(out);
+                    break;
+                case BEGIN_OBJECT:
+                    writeObject(tag, level, out);
+                    break;
+                case BEGIN_ARRAY:
+                    if (arrays != null) {
+                        writeDelegated(tag, level, out);
+                        break;
+                    }
+                    // Chaque élément du tableau devient un élément XML avec le même nom
+                    token = lexer.next();
+                    while (token != JsonLexer.Token.END_ARRAY) {
+                        writeValue(tag, token, level, out);
+                        token = nextElement(JsonLexer.Token.END_ARRAY);
+                    }
+                    break;
+                default:
+                    // Valeur simple
+                    format.indent(out, level);
+                    out.write(tag.startTag());
+                    out.write(">");
+                    if (token == JsonLexer.Token.NUMBER) {
+                        // Chiffres, signes, '.', 'e' : rien à échapper
+                        lexer.writeValue(out);
+                    } else {
+                        Escaper.escapeXmlText(scalarText(lexer, token), out);
+                    }
+                    out.write(tag.endTag());
+                    format.lineEnd(out);
+                    break;
+            }
+        }
+
+        /**
+         * Tableau confié au délégué ; les éléments qu'il rend sont convertis ici, avec les
+         * mêmes erreurs qu'une conversion séquentielle
+         */
+        private void writeDelegated(SymbolTable.Symbol tag, int level, Writer out) throws Exception {
+            boolean afterComma = false;
+            while (true) {
+                long start = lexer.position();
+                if (arrays.writeArray(lexer, out, tag.name, level)) {
+                    return;
+                }
+                afterComma |= lexer.position() != start;
+
+                JsonLexer.Token token = lexer.next();
+                if (token == JsonLexer.Token.END_ARRAY) {
+                    if (afterComma) {
+                        throw new Exception("Valeur JSON attendue à la position " + lexer.position());
+                    }
+                    return;
+                }
+                writeValue(tag, token, level, out);
+                token = lexer.next();
+                if (token == JsonLexer.Token.END_ARRAY) {
+                    return;
+                }
+                if (token != JsonLexer.Token.COMMA) {
+                    throw new Exception("',' ou ']' attendu à la position " + lexer.position());
+                }
+                afterComma = true;
+            }
+        }
+
+        /**
+         * Passe à l'élément suivant d'un tableau : renvoie son premier jeton, ou end.
+         * Comme JsonToXmlService, une virgule doit être suivie d'une valeur.
+         */
+        JsonLexer.Token nextElement(JsonLexer.Token end) throws Exception {
+            JsonLexer.Token token = lexer.next();
+            if (token == JsonLexer.Token.COMMA) {
+                token = lexer.next();
+                if (token == end) {
+                    throw new Exception("Valeur JSON attendue à la position " + lexer.position());
+                }
+                return token;
+            }
+            if (token != end) {
+                throw new Exception("',' ou ']' attendu à la position " + lexer.position());
+            }
+            return token;
+        }
+
+        /**
+         * Écrit un objet JSON (l'accolade ouvrante est déjà lue)
+         * @param tag Null pour l'objet racine, dont les membres sont les éléments de premier niveau
+         */
+        void writeObject(SymbolTable.Symbol tag, int level, Writer out) throws Exception {
+            Members members = push(tag, level, out);
+            int childLevel = tag == null ? level : level + 1;
+
+            JsonLexer.Token token = lexer.next();
+            while (token != JsonLexer.Token.END_OBJECT) {
+                SymbolTable.Symbol key = readKey(lexer, token);
+                JsonLexer.Token valueToken = lexer.next();
+
+                if (key.name.startsWith("@")) {
+                    // Hors d'un élément (objet racine), un attribut est ignoré comme dans JsonToXmlService
+                    String value = String.valueOf(JsonToXmlService.parseValue(lexer, valueToken));
+                    if (tag != null) {
+                        if (members.committed) {
+                            throw new LateMemberException("attribut " + key.name + " après des éléments enfants"
+                                    + " déjà écrits, à la position " + lexer.position());
+                        }
+                        members.get(key, store).value = value;
+                    }
+                } else if (key.name.equals("#text") && tag != null) {
+                    members.text = String.valueOf(JsonToXmlService.parseValue(lexer, valueToken));
+                } else {
+                    if (members.committed && members.lookup(key) != null) {
+                        throw new LateMemberException("clé " + key.name + " répétée après l'écriture de sa"
+                                + " première valeur, à la position " + lexer.position());
+                    }
+                    // Clé répétée : la nouvelle valeur remplace l'ancienne à sa place
+                    Member member = members.get(key, store);
+                    member.xml.reset();
+                    members.hasElements = true;
+                    if (!members.committed) {
+                        members.current = member;
+                        members.target.to(member.xml);
+                    }
+                    writeValue(key, valueToken, childLevel, members.target);
+                    members.current = null;
+                }
+
+                token = nextMember(lexer);
+            }
+
+            if (members.committed) {
+                members.finish();
+            } else if (tag == null) {
+                members.writeElements(Target.resolve(out));
+            } else {
+                members.writeElement(Target.resolve(out));
+            }
+            depth--;
+        }
+
+        private Members push(SymbolTable.Symbol tag, int level, Writer out) {
+            if (depth == stack.size()) {
+                stack.add(new Members(this));
+            }
+            Members members = stack.get(depth++);
+            members.clear(tag, level, out);
+            return members;
+        }
+
+        /**
+         * Après chaque écriture d'un membre : au-delà de COMMIT_SIZE caractères en attente,
+         * écrit les objets ouverts du plus externe au plus interne, jusqu'à revenir sous la
+         * moitié de COMMIT_SIZE. Les petits objets internes (un enregistrement) restent donc en
+         * tampon et peuvent encore recevoir un attribut. L'écriture s'arrête au premier objet
+         * dont le membre en cours n'est pas le dernier (clé répétée) ou qui n'a pas d'élément.
+         */
+        void written() throws IOException {
+            if (store.memory() <= COMMIT_SIZE) {
+                return;
+            }
+            for (int i = 0; i < depth && store.memory() > COMMIT_SIZE / 2; i++) {
+                Members members = stack.get(i);
+                if (members.committed) {
+                    continue;
+                }
+                if (!members.hasElements || members.current != null && !members.isLast(members.current)) {
+                    return;
+                }
+                members.commit();
+            }
+        }
+    }
+
+    /**
+     * Membres distincts d'un objet ouvert, dans l'ordre de leur première apparition
+     * Tant que l'objet n'est pas écrit (committed), le XML de ses éléments enfants reste
+     * dans leurs tampons ; ensuite, target mène directement à la sortie de l'objet.
+     */
+    private final class Members {
+
+        private static final int INDEX_THRESHOLD = 8;
+
+        private final List<Member> list = new ArrayList<>();
+        private int count;
+        // Index par nom, construit au-delà de INDEX_THRESHOLD membres
+        private Map<String, Member> index;
+        String text;
+        boolean hasElements;
+
+        // Élément de l'objet (null pour l'objet racine), et sortie où l'écrire
+        private SymbolTable.Symbol tag;
+        private int level;
+        private Writer out;
+        // Destination du membre en cours : son tampon, ou la sortie une fois l'objet écrit
+        final Target target;
+        // Membre élément en cours d'écriture, null entre deux membres
+        Member current;
+        boolean committed;
+
+        Members(Conversion conversion) {
+            target = new Target(conversion);
+        }
+
+        void clear(SymbolTable.Symbol tag, int level, Writer out) {
+            for (int i = 0; i < count; i++) {
+                list.get(i).xml.reset();
+            }
+            count = 0;
+            index = null;
+            text = null;
+            hasElements = false;
+            this.tag = tag;
+            this.level = level;
+            this.out = out;
+            target.to(null);
+            current = null;
+            committed = false;
+        }
+
+        /**
+         * Membre de cette clé, créé à sa première apparition
+         */
+        Member get(SymbolTable.Symbol key, SpillBuffer.Store store) {
+            Member member = lookup(key);
+            if (member != null) {
+                return member;
+            }
+            if (count == list.size()) {
+                list.add(new Member(store));
+            }
+            member = list.get(count++);
+            member.key = key;
+            member.value = null;
+            if (index != null) {
+                index.put(key.name, member);
+            } else if (count > INDEX_THRESHOLD) {
+                index = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    index.put(list.get(i).key.name, list.get(i));
+                }
+            }
+            return member;
+        }
+
+        /**
+         * Membre déjà vu pour cette clé, ou null
+         */
+        Member lookup(SymbolTable.Symbol key) {
+            if (index != null) {
+                return index.get(key.name);
+            }
+            for (int i = 0; i < count; i++) {
+                Member member = list.get(i);
+                if (member.key == key || member.key.name.equals(key.name)) {
+                    return member;
+                }
+            }
+            return null;
+        }
+
+        boolean isLast(Member member) {
+            return count > 0 && list.get(count - 1) == member;
+        }
+
+        /**
+         * Écrit la balise ouvrante avec les attributs déjà lus et les éléments en attente ;
+         * la suite du membre en cours et les membres suivants iront directement dans la sortie
+         */
+        void commit() throws IOException {
+            Writer sink = Target.resolve(out);
+            if (tag != null) {
+                writeStart(sink);
+                sink.write(">");
+                format.lineEnd(sink);
+            }
+            writeElements(sink);
+            target.to(sink);
+            committed = true;
+        }
+
+        /**
+         * Termine un objet déjà écrit par commit()
+         */
+        void finish() throws IOException {
+            if (tag != null) {
+                Writer sink = target.target;
+                format.indent(sink, level);
+                sink.write(tag.endTag());
+                format.lineEnd(sink);
+            }
+        }
+
+        /**
+         * Écrit l'élément tag : attributs, puis éléments enfants ou texte
+         */
+        void writeElement(Writer sink) throws IOException {
+            writeStart(sink);
+
+            if (hasElements) {
+                // Comme JsonToXmlService, "#text" est ignoré quand l'objet a des éléments
+                sink.write(">");
+                format.lineEnd(sink);
+                writeElements(sink);
+                format.indent(sink, level);
+            } else if (text == null) {
+                sink.write("/>");
+                format.lineEnd(sink);
+                return;
+            } else {
+                sink.write(">");
+                Escaper.escapeXmlText(text, sink);
+            }
+            sink.write(tag.endTag());
+            format.lineEnd(sink);
+        }
+
+        private void writeStart(Writer sink) throws IOException {
+            format.indent(sink, level);
+            sink.write(tag.startTag());
+            for (int i = 0; i < count; i++) {
+                Member member = list.get(i);
+                if (member.value != null) {
+                    sink.write(member.key.xmlAttribute());
+                    Escaper.escapeXmlAttribute(member.value, sink);
+                    sink.write("\"");
+                }
+            }
+        }
+
+        void writeElements(Writer sink) throws IOException {
+            for (int i = 0; i < count; i++) {
+                Member member = list.get(i);
+                if (member.value == null) {
+                    member.xml.moveTo(sink);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sortie d'un membre en cours, redirigée vers la sortie de l'objet quand celui-ci est écrit
+     * pendant la conversion du membre ; chaque écriture peut déclencher cette redirection
+     */
+    private static final class Target extends Writer {
+        private final Conversion conversion;
+        Writer target;
+
+        Target(Conversion conversion) {
+            this.conversion = conversion;
+        }
+
+        void to(Writer target) {
+            this.target = target;
+        }
+
+        /**
+         * Destination réelle : un objet en attente écrit ainsi directement dans le tampon
+         * de son parent, qui peut reprendre ses morceaux sans copie
+         */
+        static Writer resolve(Writer out) {
+            return out instanceof Target ? ((Target) out).target : out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            target.write(c);
+            conversion.written();
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            target.write(cbuf, off, len);
+            conversion.written();
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            target.write(str, off, len);
+            conversion.written();
+        }
+
+        @Override
+        public void flush() {
+            // Vidé avec la sortie finale
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Membre d'un objet : valeur d'attribut ("@clé"), ou XML de l'élément enfant
+     */
+    private static final class Member {
+        SymbolTable.Symbol key;
+        String value;
+        final SpillBuffer xml;
+
+        Member(SpillBuffer.Store store) {
+            xml = new SpillBuffer(store);
+        }
+    }
+
+    /**
+     * Texte d'une valeur simple, formaté comme dans JsonToXmlService
+     */
+    private String scalarText(JsonLexer lexer, JsonLexer.Token token) throws Exception {
+        switch (token) {
+            case STRING:
+                return lexer.stringValue();
+            case NUMBER:
+                return lexer.stringValue();
+            case TRUE:
+                return "true";
+            case FALSE:
+                return "false";
+            default:
+                throw new Exception("Valeur JSON attendue à la position " + lexer.position());
+        }
+    }
+
+    /**
+     * Lit une clé et le ':' qui la suit
+     */
+    private SymbolTable.Symbol readKey(JsonLexer lexer, JsonLexer.Token token) throws Exception {
+        if (token != JsonLexer.Token.STRING) {
+            throw new Exception("Clé attendue à la position " + lexer.position());
+        }
+        SymbolTable.Symbol key = lexer.symbolValue();
+        if (lexer.next() != JsonLexer.Token.COLON) {
+            throw new Exception("':' attendu après la clé");
+        }
+        return key;
+    }
+
+    /**
+     * Passe au membre suivant d'un objet : renvoie le jeton de la clé suivante ou END_OBJECT
+     */
+    private JsonLexer.Token nextMember(JsonLexer lexer) throws Exception {
+        JsonLexer.Token token = lexer.next();
+        if (token == JsonLexer.Token.COMMA) {
+            token = lexer.next();
+            if (token != JsonLexer.Token.STRING) {
+                throw new Exception("Clé attendue à la position " + lexer.position());
+            }
+            return token;
+        }
+        if (token != JsonLexer.Token.END_OBJECT) {
+            throw new Exception("',' ou '}' attendu à la position " + lexer.position());
+        }
+        return token;
+    }
+}
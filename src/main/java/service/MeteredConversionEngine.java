@@ -0,0 +1,265 @@
+package service;
+
+import java.io.FilterOutputStream;
+import java.io.FilterReader;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Moteur qui mesure les conversions d'un autre moteur dans un {@link ConversionMetrics}
+ *
+ * Le Reader et le Writer sont enveloppés : ils comptent les caractères et imputent
+ * le temps passé dans leurs appels aux phases READ et WRITE. Les moteurs lisent
+ * et écrivent par blocs, la mesure ne coûte donc que quelques appels à nanoTime par bloc.
+ * Sur un OutputStream, la sortie est comptée en octets.
+ *
+ * Posé par ConversionEngines autour de chaque moteur enregistré.
+ */
+class MeteredConversionEngine implements ConversionEngine {
+
+    private final ConversionEngine engine;
+    private final ConversionMetrics metrics;
+
+    MeteredConversionEngine(ConversionEngine engine, ConversionMetrics metrics) {
+        this.engine = engine;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new MeteredConversionEngine(engine.withFormat(format), metrics);
+    }
+
+    public String convert(String content) throws Exception {
+        ConversionMetrics.Recording recording = metrics.start();
+        if (recording == null) {
+            return engine.convert(content);
+        }
+        boolean succeeded = false;
+        try {
+            recording.inputChars = content.length();
+            String output = engine.convert(content);
+            recording.outputChars = output.length();
+            succeeded = true;
+            return output;
+        } finally {
+            metrics.finish(recording, succeeded);
+        }
+    }
+
+    public void convert(Reader input, Writer output) throws Exception {
+        ConversionMetrics.Recording recording = metrics.start();
+        if (recording == null) {
+            engine.convert(input, output);
+            return;
+        }
+        boolean succeeded = false;
+        try {
+            engine.convert(new MeteredReader(input, recording), new MeteredWriter(output, recording));
+            succeeded = true;
+        } finally {
+            metrics.finish(recording, succeeded);
+        }
+    }
+
+    @Override
+    public void convert(Reader input, OutputStream output) throws Exception {
+        ConversionMetrics.Recording recording = metrics.start();
+        if (recording == null) {
+            engine.convert(input, output);
+            return;
+        }
+        boolean succeeded = false;
+        try {
+            // Le moteur garde son propre encodage (Jackson écrit directement en octets)
+            engine.convert(new MeteredReader(input, recording), new MeteredStream(output, recording));
+            succeeded = true;
+        } finally {
+            metrics.finish(recording, succeeded);
+        }
+    }
+
+    /**
+     * Fichier lu par le moteur lui-même : l'entrée est comptée en octets,
+     * et son temps de lecture reste dans la phase CONVERT
+     */
+    @Override
+    public void convert(Path input, Writer output) throws Exception {
+        ConversionMetrics.Recording recording = metrics.start();
+        if (recording == null) {
+            engine.convert(input, output);
+            return;
+        }
+        boolean succeeded = false;
+        try {
+            recording.inputChars = Files.size(input);
+            engine.convert(input, new MeteredWriter(output, recording));
+            succeeded = true;
+        } finally {
+            metrics.finish(recording, succeeded);
+        }
+    }
+
+    @Override
+    public void convert(Path input, OutputStream output) throws Exception {
+        ConversionMetrics.Recording recording = metrics.start();
+        if (recording == null) {
+            engine.convert(input, output);
+            return;
+        }
+        boolean succeeded = false;
+        try {
+            recording.inputChars = Files.size(input);
+            engine.convert(input, new MeteredStream(output, recording));
+            succeeded = true;
+        } finally {
+            metrics.finish(recording, succeeded);
+        }
+    }
+
+    private static final class MeteredReader extends FilterReader {
+        private final ConversionMetrics.Recording recording;
+
+        MeteredReader(Reader in, ConversionMetrics.Recording recording) {
+            super(in);
+            this.recording = recording;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.READ);
+            try {
+                int c = super.read();
+                if (c >= 0) {
+                    recording.inputChars++;
+                }
+                return c;
+            } finally {
+                recording.enter(previous);
+            }
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.READ);
+            try {
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    recording.inputChars += count;
+                }
+                return count;
+            } finally {
+                recording.enter(previous);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            recording.inputChars += skipped;
+            return skipped;
+        }
+    }
+
+    private static final class MeteredWriter extends FilterWriter {
+        private final ConversionMetrics.Recording recording;
+
+        MeteredWriter(Writer out, ConversionMetrics.Recording recording) {
+            super(out);
+            this.recording = recording;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            // Caractère isolé : trop fréquent pour être chronométré
+            out.write(c);
+            recording.outputChars++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.WRITE);
+            try {
+                out.write(buffer, offset, length);
+                recording.outputChars += length;
+            } finally {
+                recording.enter(previous);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.WRITE);
+            try {
+                out.write(text, offset, length);
+                recording.outputChars += length;
+            } finally {
+                recording.enter(previous);
+            }
+        }
+
+        @Override
+        public Writer append(CharSequence text) throws IOException {
+            // Évite la copie en String de FilterWriter pour un StringBuilder déversé
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.WRITE);
+            try {
+                out.append(text);
+                recording.outputChars += text.length();
+            } finally {
+                recording.enter(previous);
+            }
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.WRITE);
+            try {
+                out.flush();
+            } finally {
+                recording.enter(previous);
+            }
+        }
+    }
+
+    private static final class MeteredStream extends FilterOutputStream {
+        private final ConversionMetrics.Recording recording;
+
+        MeteredStream(OutputStream out, ConversionMetrics.Recording recording) {
+            super(out);
+            this.recording = recording;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            recording.outputChars++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.WRITE);
+            try {
+                out.write(buffer, offset, length);
+                recording.outputChars += length;
+            } finally {
+                recording.enter(previous);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ConversionMetrics.Phase previous = recording.enter(ConversionMetrics.Phase.WRITE);
+            try {
+                out.flush();
+            } finally {
+                recording.enter(previous);
+            }
+        }
+    }
+}
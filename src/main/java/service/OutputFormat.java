@@ -0,0 +1,147 @@
+package service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Mise en forme de la sortie des convertisseurs from scratch
+ *
+ * - {@link #PRETTY} : une propriété / un élément par ligne, indentation de 2 espaces
+ * - {@link #pretty(int)} : idem avec une autre largeur d'indentation
+ * - {@link #COMPACT} : aucun espace ni saut de ligne en dehors des valeurs
+ *
+ * Les indentations sont précalculées : un saut de ligne et l'indentation qui le suit
+ * sont écrits en un seul appel, au lieu d'un append par niveau.
+ * Immuable : une instance est partageable entre threads.
+ */
+public final class OutputFormat {
+
+    // Largeur d'indentation maximale acceptée
+    private static final int MAX_WIDTH = 16;
+
+    // Nombre de niveaux couverts par le tampon précalculé (au-delà, il est écrit plusieurs fois)
+    private static final int CACHED_LEVELS = 64;
+
+    public static final OutputFormat PRETTY = new OutputFormat(true, 2);
+    public static final OutputFormat COMPACT = new OutputFormat(false, 0);
+
+    private final boolean pretty;
+    private final int width;
+
+    // '\n' suivi de width × CACHED_LEVELS espaces
+    private final char[] lines;
+    private final String unit;
+    private final String nameSeparator;
+
+    private OutputFormat(boolean pretty, int width) {
+        this.pretty = pretty;
+        this.width = width;
+        this.lines = new char[1 + width * CACHED_LEVELS];
+        Arrays.fill(lines, ' ');
+        lines[0] = '\n';
+        this.unit = pretty ? new String(lines, 1, width) : null;
+        this.nameSeparator = pretty ? ": " : ":";
+    }
+
+    /**
+     * Sortie indentée avec la largeur donnée
+     * @param width Nombre d'espaces par niveau (0 à 16)
+     */
+    public static OutputFormat pretty(int width) {
+        if (width < 0 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Largeur d'indentation invalide : " + width);
+        }
+        return width == PRETTY.width ? PRETTY : new OutputFormat(true, width);
+    }
+
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    public int indentWidth() {
+        return width;
+    }
+
+    /**
+     * Séparateur entre une clé JSON et sa valeur
+     */
+    String nameSeparator() {
+        return nameSeparator;
+    }
+
+    /**
+     * Indentation d'un niveau, null en mode compact
+     */
+    String indentUnit() {
+        return unit;
+    }
+
+    /**
+     * Saut de ligne suivi de l'indentation du niveau (rien en mode compact)
+     */
+    void newline(StringBuilder out, int level) {
+        if (pretty) {
+            write(out, 0, 1 + width * level);
+        }
+    }
+
+    void newline(Writer out, int level) throws IOException {
+        if (pretty) {
+            write(out, 0, 1 + width * level);
+        }
+    }
+
+    /**
+     * Indentation du niveau en début de ligne (rien en mode compact)
+     */
+    void indent(StringBuilder out, int level) {
+        if (pretty && level > 0) {
+            write(out, 1, width * level);
+        }
+    }
+
+    void indent(Writer out, int level) throws IOException {
+        if (pretty && level > 0) {
+            write(out, 1, width * level);
+        }
+    }
+
+    /**
+     * Fin de ligne (rien en mode compact)
+     */
+    void lineEnd(StringBuilder out) {
+        if (pretty) {
+            out.append('\n');
+        }
+    }
+
+    void lineEnd(Writer out) throws IOException {
+        if (pretty) {
+            out.write('\n');
+        }
+    }
+
+    private void write(StringBuilder out, int from, int length) {
+        int n = Math.min(length, lines.length - from);
+        out.append(lines, from, n);
+        for (length -= n; length > 0; length -= n) {
+            n = Math.min(length, lines.length - 1);
+            out.append(lines, 1, n);
+        }
+    }
+
+    private void write(Writer out, int from, int length) throws IOException {
+        int n = Math.min(length, lines.length - from);
+        out.write(lines, from, n);
+        for (length -= n; length > 0; length -= n) {
+            n = Math.min(length, lines.length - 1);
+            out.write(lines, 1, n);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pretty ? "pretty(" + width + ")" : "compact";
+    }
+}
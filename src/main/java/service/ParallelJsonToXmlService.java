@@ -0,0 +1,159 @@
+package service;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Conversion JSON → XML parallèle pour les documents dominés par de grands tableaux
+ *
+ * Le moteur streaming lit le document et confie chaque tableau rencontré à ce moteur :
+ * 1. Les éléments sont délimités au fil du flux par leurs virgules de premier niveau
+ *    (chaînes et imbrication suivies, bitmap de {@link StructuralScanner}, sans analyse des valeurs)
+ *    et regroupés en tranches d'au moins SLICE_SIZE caractères.
+ * 2. Chaque tranche est convertie sur un ForkJoinPool et les fragments XML sont écrits
+ *    dans l'ordre, avec au plus 2 × parallélisme tranches en cours.
+ * 3. Un tableau d'une seule tranche est converti sur place ; un élément de plus de
+ *    SLICE_SIZE caractères est rendu au moteur streaming, qui découpe à leur tour ses tableaux.
+ *
+ * Le flux n'est jamais lu en entier : la mémoire est bornée par la fenêtre de tranches.
+ * Le résultat est identique à celui de {@link JsonToXmlStreamService}.
+ */
+public class ParallelJsonToXmlService implements ConversionEngine {
+
+    // Taille minimale d'une tranche, et maximale d'un élément découpé (en caractères)
+    static final int SLICE_SIZE = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final OutputFormat format;
+    private final int sliceSize;
+    private final JsonToXmlStreamService streaming;
+    // Moteur streaming qui délègue ses tableaux à writeArray
+    private final JsonToXmlStreamService sliced;
+
+    public ParallelJsonToXmlService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelJsonToXmlService(ForkJoinPool pool) {
+        this(pool, OutputFormat.PRETTY);
+    }
+
+    public ParallelJsonToXmlService(ForkJoinPool pool, OutputFormat format) {
+        this(pool, format, SLICE_SIZE);
+    }
+
+    /**
+     * @param sliceSize Taille minimale d'une tranche en caractères (SLICE_SIZE hors tests)
+     */
+    ParallelJsonToXmlService(ForkJoinPool pool, OutputFormat format, int sliceSize) {
+        this.pool = pool;
+        this.format = format;
+        this.sliceSize = sliceSize;
+        this.streaming = new JsonToXmlStreamService(format);
+        this.sliced = new JsonToXmlStreamService(this::writeArray, format);
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new ParallelJsonToXmlService(pool, format, sliceSize);
+    }
+
+    public String convert(String jsonContent) throws Exception {
+        StringWriter output = new StringWriter(jsonContent.length());
+        convert(new StringReader(jsonContent), output);
+        return output.toString();
+    }
+
+    public void convert(Reader jsonReader, Writer xmlWriter) throws Exception {
+        sliced.convert(jsonReader, xmlWriter);
+    }
+
+    /**
+     * Délégué du moteur streaming : tranches lues au fil du flux, converties en parallèle
+     */
+    private boolean writeArray(JsonLexer lexer, Writer out, String tagName, int level) throws Exception {
+        int window = 2 * pool.getParallelism();
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+
+        try {
+            long sliceStart = lexer.position();
+            lexer.mark();
+            while (true) {
+                long elementStart = lexer.position();
+                int end = lexer.skipElement(sliceSize);
+                long position = lexer.position();
+
+                if (end < 0) {
+                    // Élément trop grand ou mal formé : rendu au moteur streaming, après les précédents
+                    if (elementStart > sliceStart) {
+                        // Tranche en cours, sans la virgule qui précède l'élément
+                        writeSlice(lexer.marked(elementStart - 1), sliceStart, inFlight, window, out, tagName, level);
+                    }
+                    drain(inFlight, out);
+                    lexer.seek(elementStart);
+                    return false;
+                }
+                if (end == ']') {
+                    writeSlice(lexer.marked(position), sliceStart, inFlight, window, out, tagName, level);
+                    drain(inFlight, out);
+                    lexer.seek(position + 1);
+                    return true;
+                }
+
+                lexer.seek(position + 1);
+                if (position - sliceStart >= sliceSize) {
+                    writeSlice(lexer.marked(position), sliceStart, inFlight, window, out, tagName, level);
+                    sliceStart = position + 1;
+                    lexer.mark();
+                }
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            for (CompletableFuture<String> pending : inFlight) {
+                pending.cancel(false);
+            }
+            lexer.release();
+        }
+    }
+
+    /**
+     * Tranche complète : convertie sur place si rien n'est en cours (tableau d'une seule tranche),
+     * sinon envoyée au pool une fois la fenêtre libérée
+     */
+    private void writeSlice(char[] slice, long offset, Deque<CompletableFuture<String>> inFlight, int window,
+                            Writer out, String tagName, int level) throws Exception {
+        if (inFlight.isEmpty() && slice.length < sliceSize) {
+            streaming.writeElements(new JsonLexer(slice, offset), out, tagName, level);
+            return;
+        }
+        if (inFlight.size() == window) {
+            out.write(inFlight.removeFirst().join());
+        }
+        inFlight.addLast(CompletableFuture.supplyAsync(() -> convertSlice(slice, offset, tagName, level), pool));
+    }
+
+    private static void drain(Deque<CompletableFuture<String>> inFlight, Writer out) throws Exception {
+        while (!inFlight.isEmpty()) {
+            out.write(inFlight.removeFirst().join());
+        }
+    }
+
+    private String convertSlice(char[] slice, long offset, String tagName, int level) {
+        try {
+            StringWriter output = new StringWriter(slice.length);
+            streaming.writeElements(new JsonLexer(slice, offset), output, tagName, level);
+            return output.toString();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package service;
+
+import util.Utf8Sink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Conversion XML → JSON parallèle pour les documents "liste d'enregistrements" :
+ * une racine qui contient des milliers d'éléments frères de même nom.
+ *
+ * 1. Un balayage lexical des octets UTF-8 du fichier (sans parser, par fenêtres de 64 Ko)
+ *    repère les frontières des enregistrements au niveau 1, en sautant commentaires,
+ *    CDATA et valeurs d'attributs. Seules ces positions sont gardées en mémoire.
+ * 2. La liste est découpée en morceaux d'au moins CHUNK_SIZE octets ; chaque morceau est lu
+ *    dans le fichier à sa position et converti sur un ForkJoinPool par le moteur streaming.
+ * 3. Les fragments JSON sont écrits dans l'ordre du document, à l'intérieur du tableau ;
+ *    au plus 2 × parallélisme morceaux sont en cours ou en attente d'écriture.
+ *
+ * Un flux ou une chaîne de plus de 2 × CHUNK_SIZE caractères est d'abord recopié en UTF-8
+ * dans un fichier temporaire, supprimé à la fermeture : la mémoire ne dépend pas de la
+ * taille du document. La racine peut porter des attributs (xmlns compris) : l'en-tête
+ * JSON qui les contient est produit par le moteur streaming.
+ *
+ * Le résultat est identique à celui de {@link XmlToJsonStreamService}. Tout document qui
+ * ne suit pas ce schéma (DOCTYPE, noms d'enfants différents, texte au niveau 1, un seul
+ * morceau) est converti séquentiellement par ce même moteur.
+ */
+public class ParallelXmlToJsonService implements ConversionEngine {
+
+    // Taille minimale d'un morceau (en octets)
+    static final int CHUNK_SIZE = 1 << 20;
+
+    // Niveau d'indentation des éléments du tableau : { "racine": { "enregistrement": [ ...
+    private static final int RECORD_LEVEL = 3;
+
+    // Taille initiale du tampon de tête d'un flux
+    private static final int HEAD_CHARS = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final OutputFormat format;
+    private final XmlToJsonStreamService streaming;
+    private final int chunkSize;
+
+    public ParallelXmlToJsonService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelXmlToJsonService(ForkJoinPool pool) {
+        this(pool, OutputFormat.PRETTY);
+    }
+
+    public ParallelXmlToJsonService(ForkJoinPool pool, OutputFormat format) {
+        this(pool, format, CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize Taille minimale d'un morceau en octets (CHUNK_SIZE hors tests)
+     */
+    ParallelXmlToJsonService(ForkJoinPool pool, OutputFormat format, int chunkSize) {
+        this.pool = pool;
+        this.format = format;
+        this.streaming = new XmlToJsonStreamService(format);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new ParallelXmlToJsonService(pool, format, chunkSize);
+    }
+
+    public String convert(String xmlContent) throws Exception {
+        StringWriter output = new StringWriter(xmlContent.length());
+        convert(new StringReader(xmlContent), output);
+        return output.toString();
+    }
+
+    /**
+     * Un flux de moins de 2 × chunkSize caractères ne peut pas être découpé : il est converti
+     * séquentiellement. Au-delà, il est recopié dans un fichier temporaire, puis découpé.
+     */
+    public void convert(Reader xmlReader, Writer jsonWriter) throws Exception {
+        char[] head = new char[HEAD_CHARS];
+        int length = 0;
+        int count = 0;
+        while (length < 2 * chunkSize && count >= 0) {
+            if (length == head.length) {
+                head = Arrays.copyOf(head, head.length * 2);
+            }
+            count = xmlReader.read(head, length, head.length - length);
+            length += Math.max(count, 0);
+        }
+        if (count < 0) {
+            streaming.convert(new CharArrayReader(head, 0, length), jsonWriter);
+            return;
+        }
+
+        Path spool = Files.createTempFile("conversion", ".xml");
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            Utf8Sink sink = new Utf8Sink(channel);
+            sink.write(head, 0, length);
+            while ((count = xmlReader.read(head)) > 0) {
+                sink.write(head, 0, count);
+            }
+            sink.finish();
+            convert(channel, jsonWriter);
+        }
+    }
+
+    @Override
+    public void convert(Path input, Writer output) throws Exception {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            convert(channel, output);
+        }
+    }
+
+    @Override
+    public void convert(Path input, OutputStream output) throws Exception {
+        Utf8Sink sink = new Utf8Sink(output);
+        convert(input, sink);
+        sink.finish();
+    }
+
+    /**
+     * Convertit le contenu UTF-8 du canal, lu par positions : la position du canal n'est
+     * utilisée que par la conversion séquentielle
+     */
+    private void convert(FileChannel channel, Writer out) throws Exception {
+        Layout layout = Layout.scan(channel, chunkSize);
+        if (layout == null || layout.boundaries.size() < 3) {
+            // Pas une liste d'enregistrements, ou trop petite pour être découpée
+            channel.position(0);
+            streaming.convert(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), out);
+            return;
+        }
+
+        // En-tête et fin du document, avec les attributs de la racine : ceux d'une liste
+        // d'un seul enregistrement vide, dont la valeur null est remplacée par le tableau
+        String frame = streaming.convert(layout.rootTag + "<" + layout.recordName + "/></" + layout.rootName + ">");
+        int value = frame.lastIndexOf("null");
+        out.write(frame, 0, value);
+        out.write("[");
+
+        int window = 2 * pool.getParallelism();
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        List<Long> boundaries = layout.boundaries;
+
+        int written = 0;
+
+        try {
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                if (inFlight.size() == window) {
+                    writeChunk(out, inFlight.removeFirst(), written++ > 0);
+                }
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                inFlight.addLast(CompletableFuture.supplyAsync(
+                        () -> convertChunk(channel, start, end, layout), pool));
+            }
+            while (!inFlight.isEmpty()) {
+                writeChunk(out, inFlight.removeFirst(), written++ > 0);
+            }
+        } catch (CompletionException e) {
+            for (CompletableFuture<String> pending : inFlight) {
+                pending.cancel(false);
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+
+        format.newline(out, 2);
+        out.write("]");
+        out.write(frame, value + 4, frame.length() - value - 4);
+        out.flush();
+    }
+
+    private static void writeChunk(Writer out, CompletableFuture<String> chunk, boolean separator)
+            throws IOException {
+        String json = chunk.join();
+        if (separator) {
+            // Chaque morceau commence par le saut de ligne de son premier enregistrement
+            out.write(",");
+        }
+        out.write(json);
+    }
+
+    private String convertChunk(FileChannel channel, long start, long end, Layout layout) {
+        try {
+            byte[] records = read(channel, start, end);
+            Reader fragment = new InputStreamReader(new SequenceInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream(layout.wrapperStart), new ByteArrayInputStream(records)),
+                    new ByteArrayInputStream(layout.wrapperEnd)), StandardCharsets.UTF_8);
+            StringWriter output = new StringWriter(records.length);
+            streaming.convertRecords(fragment, output, layout.recordName, RECORD_LEVEL);
+            return output.toString();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Lit les octets [start, end) du canal, sans toucher à sa position
+     */
+    private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("Fichier tronqué pendant la conversion");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Structure repérée par le balayage lexical
+     */
+    static final class Layout {
+
+        // Plus grand morceau lisible dans un tableau d'octets
+        private static final long MAX_CHUNK = Integer.MAX_VALUE - 64;
+
+        private static final byte[] COMMENT_END = {'-', '-', '>'};
+        private static final byte[] CDATA_END = {']', ']', '>'};
+        private static final byte[] PI_END = {'?', '>'};
+        private static final byte[] CDATA_START = {'C', 'D', 'A', 'T', 'A', '['};
+
+        String rootName;
+        // Balise ouvrante de la racine, telle qu'écrite (attributs compris)
+        String rootTag;
+        String recordName;
+        byte[] wrapperStart;
+        byte[] wrapperEnd;
+
+        // Début de chaque morceau (octets), puis fin du contenu de la racine
+        final List<Long> boundaries = new ArrayList<>();
+
+        private final Bytes in;
+        // Octet qui a terminé le dernier nom lu
+        private int terminator;
+
+        private Layout(FileChannel channel) {
+            this.in = new Bytes(channel);
+        }
+
+        /**
+         * Balaye le document et place une frontière au début du premier enregistrement
+         * qui suit chaque tranche de chunkSize octets
+         * @return null si le document n'est pas une liste d'enregistrements
+         */
+        static Layout scan(FileChannel channel, int chunkSize) throws IOException {
+            Layout layout = new Layout(channel);
+            return layout.scan(chunkSize) ? layout : null;
+        }
+
+        private boolean scan(int chunkSize) throws IOException {
+            // Prologue : espaces, déclaration, commentaires (un DOCTYPE peut définir des entités)
+            int c;
+            while (true) {
+                if (skipWhitespace() != '<') {
+                    return false;
+                }
+                c = in.next();
+                if (c == '?') {
+                    if (!skipPast(PI_END)) {
+                        return false;
+                    }
+                } else if (c != '!' || !skipComment()) {
+                    break;
+                }
+            }
+            if (c < 0 || c == '!') {
+                return false;
+            }
+
+            // Racine : nom, puis attributs éventuels
+            long rootStart = in.position() - 2;
+            byte[] root = readName(c);
+            int end = skipTag(terminator);
+            if (root.length == 0 || end != 0) {
+                return false;
+            }
+            long contentStart = in.position();
+            rootName = new String(root, StandardCharsets.UTF_8);
+            rootTag = new String(read(in.channel, rootStart, contentStart), StandardCharsets.UTF_8);
+            wrapperStart = ("<" + rootName + ">").getBytes(StandardCharsets.UTF_8);
+            wrapperEnd = ("</" + rootName + ">").getBytes(StandardCharsets.UTF_8);
+            boundaries.add(contentStart);
+
+            byte[] record = null;
+            int depth = 0;
+            long lastBoundary = contentStart;
+
+            while (true) {
+                c = in.next();
+                if (c < 0) {
+                    return false;
+                }
+                if (c != '<') {
+                    // Au niveau 1, seuls des espaces peuvent séparer les enregistrements
+                    if (depth == 0 && c > ' ') {
+                        return false;
+                    }
+                    continue;
+                }
+                long lt = in.position() - 1;
+                c = in.next();
+
+                if (c == '!') {
+                    c = in.next();
+                    if (c == '-') {
+                        if (in.next() != '-' || !skipPast(COMMENT_END)) {
+                            return false;
+                        }
+                    } else if (c != '[' || depth == 0 || !expect(CDATA_START) || !skipPast(CDATA_END)) {
+                        return false;
+                    }
+                } else if (c == '?') {
+                    if (!skipPast(PI_END)) {
+                        return false;
+                    }
+                } else if (c == '/') {
+                    if (depth-- > 0) {
+                        if (skipTag(in.next()) < 0) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    // Fin de la racine : il ne doit rester que des espaces ou commentaires
+                    if (!Arrays.equals(readName(in.next()), root) || skipTag(terminator) < 0
+                            || lt - lastBoundary > MAX_CHUNK) {
+                        return false;
+                    }
+                    boundaries.add(lt);
+                    recordName = record == null ? null : new String(record, StandardCharsets.UTF_8);
+                    return record != null && onlyMisc();
+                } else {
+                    if (depth == 0) {
+                        byte[] name = readName(c);
+                        if (record == null) {
+                            record = name;
+                        } else if (!Arrays.equals(record, name)) {
+                            return false;
+                        }
+                        if (lt - lastBoundary >= chunkSize) {
+                            if (lt - lastBoundary > MAX_CHUNK) {
+                                return false;
+                            }
+                            boundaries.add(lt);
+                            lastBoundary = lt;
+                        }
+                        c = terminator;
+                    }
+                    end = skipTag(c);
+                    if (end < 0) {
+                        return false;
+                    }
+                    if (end == 0) {
+                        depth++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Premier octet qui n'est pas un espace, -1 en fin de fichier
+         */
+        private int skipWhitespace() throws IOException {
+            int c;
+            do {
+                c = in.next();
+            } while (c >= 0 && c <= ' ');
+            return c;
+        }
+
+        /**
+         * Lit un nom qui commence par l'octet c, jusqu'à un espace, '>' ou '/' (gardé dans terminator)
+         */
+        private byte[] readName(int c) throws IOException {
+            ByteArrayOutputStream name = new ByteArrayOutputStream(16);
+            while (c > ' ' && c != '>' && c != '/') {
+                name.write(c);
+                c = in.next();
+            }
+            terminator = c;
+            return name.toByteArray();
+        }
+
+        /**
+         * Avance jusqu'au '>' qui ferme la balise, en ignorant ceux des valeurs d'attributs
+         * @param c Octet courant de la balise
+         * @return 1 pour une balise auto-fermante, 0 sinon, -1 en fin de fichier
+         */
+        private int skipTag(int c) throws IOException {
+            int previous = 0;
+            int quote = 0;
+            while (c >= 0) {
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return previous == '/' ? 1 : 0;
+                }
+                previous = c;
+                c = in.next();
+            }
+            return -1;
+        }
+
+        /**
+         * Après "<!" : saute un commentaire
+         * @return false si ce n'est pas un commentaire (DOCTYPE) ou s'il n'est pas fermé
+         */
+        private boolean skipComment() throws IOException {
+            return in.next() == '-' && in.next() == '-' && skipPast(COMMENT_END);
+        }
+
+        private boolean expect(byte[] expected) throws IOException {
+            for (byte b : expected) {
+                if (in.next() != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Avance juste après la prochaine occurrence de terminator (2 ou 3 octets)
+         */
+        private boolean skipPast(byte[] terminator) throws IOException {
+            int pattern = 0;
+            for (byte b : terminator) {
+                pattern = (pattern << 8) | b;
+            }
+            int mask = (1 << (8 * terminator.length)) - 1;
+            int last = 0;
+            int seen = 0;
+            int c;
+            while ((c = in.next()) >= 0) {
+                last = ((last << 8) | c) & mask;
+                if (++seen >= terminator.length && last == pattern) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean onlyMisc() throws IOException {
+            while (true) {
+                int c = skipWhitespace();
+                if (c < 0) {
+                    return true;
+                }
+                if (c != '<') {
+                    return false;
+                }
+                c = in.next();
+                if (c == '?' ? !skipPast(PI_END) : c != '!' || !skipComment()) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lecture séquentielle d'un canal par fenêtres, par positions (la position du canal est ignorée)
+     */
+    private static final class Bytes {
+        final FileChannel channel;
+        private final ByteBuffer window = ByteBuffer.allocate(1 << 16);
+        // Position dans le fichier du premier octet de la fenêtre
+        private long base;
+
+        Bytes(FileChannel channel) {
+            this.channel = channel;
+            window.limit(0);
+        }
+
+        /**
+         * @return Octet suivant (0 à 255), -1 en fin de fichier
+         */
+        int next() throws IOException {
+            if (!window.hasRemaining() && !fill()) {
+                return -1;
+            }
+            return window.get() & 0xFF;
+        }
+
+        /**
+         * Position dans le fichier de l'octet que next() renverra
+         */
+        long position() {
+            return base + window.position();
+        }
+
+        private boolean fill() throws IOException {
+            base += window.limit();
+            window.clear();
+            while (window.hasRemaining() && channel.read(window, base + window.position()) >= 0) {
+                // Lecture jusqu'à remplir la fenêtre ou atteindre la fin du fichier
+            }
+            window.flip();
+            return window.hasRemaining();
+        }
+    }
+}
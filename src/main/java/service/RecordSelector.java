@@ -0,0 +1,207 @@
+package service;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sélection d'éléments d'un document XML (sous-ensemble d'XPath)
+ *
+ * - "book" : tout élément nommé book, à n'importe quelle profondeur
+ * - "/catalog/book" : chemin absolu depuis la racine
+ * - "catalog/book" : chemin relatif, comparé à la fin du chemin de l'élément
+ * - "//" : descendant à n'importe quelle profondeur, ex. "/catalog//price"
+ * - "*" : n'importe quel nom
+ * - "[@id]", "[@id='2']" : présence ou valeur d'un attribut (prédicats cumulables)
+ *
+ * L'évaluation se fait en streaming : l'état d'un élément est l'ensemble (bits d'un long)
+ * des préfixes du chemin déjà satisfaits, calculé à partir de celui du parent.
+ * Un état nul signifie qu'aucun descendant ne peut correspondre : le sous-arbre peut être sauté.
+ *
+ * Immuable : une instance est partageable entre threads.
+ */
+public final class RecordSelector {
+
+    // Un bit par préfixe satisfait, plus celui du chemin complet
+    private static final int MAX_STEPS = 63;
+
+    private final String expression;
+    private final Step[] steps;
+
+    private RecordSelector(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * @throws IllegalArgumentException Si l'expression est vide ou mal formée
+     */
+    public static RecordSelector parse(String expression) {
+        String path = expression == null ? "" : expression.trim();
+        List<Step> steps = new ArrayList<>();
+        int pos = 0;
+
+        // Sans '/' initial, le chemin peut commencer à n'importe quelle profondeur
+        boolean descendant = true;
+        if (path.startsWith("//")) {
+            pos = 2;
+        } else if (path.startsWith("/")) {
+            descendant = false;
+            pos = 1;
+        }
+
+        while (true) {
+            int start = pos;
+            while (pos < path.length() && path.charAt(pos) != '/' && path.charAt(pos) != '[') {
+                pos++;
+            }
+            String name = path.substring(start, pos).trim();
+            if (name.isEmpty()) {
+                throw invalid(expression);
+            }
+
+            List<String> attributes = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            while (pos < path.length() && path.charAt(pos) == '[') {
+                pos = parsePredicate(path, pos + 1, attributes, values, expression);
+            }
+            steps.add(new Step(name.equals("*") ? null : name, descendant,
+                    attributes.toArray(new String[0]), values.toArray(new String[0])));
+
+            if (pos == path.length()) {
+                break;
+            }
+            if (path.charAt(pos) != '/') {
+                throw invalid(expression);
+            }
+            descendant = path.startsWith("//", pos);
+            pos += descendant ? 2 : 1;
+        }
+
+        if (steps.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("Sélecteur trop long (" + MAX_STEPS + " étapes au plus) : " + expression);
+        }
+        return new RecordSelector(path, steps.toArray(new Step[0]));
+    }
+
+    /**
+     * Lit un prédicat "@nom]" ou "@nom='valeur']" à partir de pos (après '[')
+     * @return Position qui suit le ']'
+     */
+    private static int parsePredicate(String path, int pos, List<String> attributes, List<String> values,
+                                      String expression) {
+        if (pos >= path.length() || path.charAt(pos) != '@') {
+            throw invalid(expression);
+        }
+        int start = ++pos;
+        while (pos < path.length() && path.charAt(pos) != '=' && path.charAt(pos) != ']') {
+            pos++;
+        }
+        String attribute = path.substring(start, pos).trim();
+        if (attribute.isEmpty() || pos == path.length()) {
+            throw invalid(expression);
+        }
+
+        String value = null;
+        if (path.charAt(pos) == '=') {
+            pos++;
+            char quote = pos < path.length() ? path.charAt(pos) : 0;
+            int end = quote == '\'' || quote == '"' ? path.indexOf(quote, pos + 1) : -1;
+            if (end < 0) {
+                throw invalid(expression);
+            }
+            value = path.substring(pos + 1, end);
+            pos = end + 1;
+        }
+        if (pos >= path.length() || path.charAt(pos) != ']') {
+            throw invalid(expression);
+        }
+        attributes.add(attribute);
+        values.add(value);
+        return pos + 1;
+    }
+
+    private static IllegalArgumentException invalid(String expression) {
+        return new IllegalArgumentException("Sélecteur d'enregistrement invalide : \"" + expression + "\"");
+    }
+
+    /**
+     * État du nœud document, parent de l'élément racine
+     */
+    long initialState() {
+        return 1L;
+    }
+
+    /**
+     * État de l'élément courant du reader (START_ELEMENT), à partir de celui de son parent
+     * Les attributs ne sont lus que si le nom correspond à une étape qui a des prédicats.
+     */
+    long nextState(long parentState, String name, XMLStreamReader element) {
+        long state = 0;
+        long pending = parentState & ~(1L << steps.length);
+        while (pending != 0) {
+            int k = Long.numberOfTrailingZeros(pending);
+            pending &= pending - 1;
+            Step step = steps[k];
+            if (step.descendant) {
+                // L'étape peut encore être satisfaite plus bas
+                state |= 1L << k;
+            }
+            if (step.matches(name, element)) {
+                state |= 1L << (k + 1);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return true si l'élément dans cet état est sélectionné
+     */
+    boolean matches(long state) {
+        return (state & (1L << steps.length)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Étape du chemin : axe, test de nom et prédicats d'attributs
+     */
+    private static final class Step {
+        final String name;          // null pour "*"
+        final boolean descendant;   // Précédée de "//" (ou première étape d'un chemin relatif)
+        final String[] attributes;
+        final String[] values;      // null : présence de l'attribut seulement
+
+        Step(String name, boolean descendant, String[] attributes, String[] values) {
+            this.name = name;
+            this.descendant = descendant;
+            this.attributes = attributes;
+            this.values = values;
+        }
+
+        boolean matches(String elementName, XMLStreamReader element) {
+            if (name != null && !name.equals(elementName)) {
+                return false;
+            }
+            for (int i = 0; i < attributes.length; i++) {
+                String value = attribute(element, attributes[i]);
+                if (value == null || (values[i] != null && !values[i].equals(value))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String attribute(XMLStreamReader element, String name) {
+            for (int i = 0, count = element.getAttributeCount(); i < count; i++) {
+                if (name.equals(element.getAttributeLocalName(i))) {
+                    return element.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tampon de caractères qui déborde sur disque, pour borner la mémoire du mode streaming
+ *
+ * Le contenu est une suite de morceaux, chacun en mémoire ou dans le fichier temporaire
+ * d'un {@link Store} partagé par tous les tampons d'une même conversion. Le Store fixe un
+ * budget de mémoire pour l'ensemble : au-delà, le tampon qui grossit écrit ses morceaux
+ * dans le fichier (UTF-8) et n'en garde que la position.
+ *
+ * Un grand tampon transféré dans un autre tampon du même Store n'est pas recopié :
+ * ses morceaux changent de propriétaire. Un contenu déjà sur disque n'y est donc écrit
+ * qu'une fois, et relu une fois, vers la sortie finale. Chaque morceau porte un nombre
+ * de niveaux d'indentation à ajouter après chaque retour à la ligne, appliqué à la relecture.
+ */
+final class SpillBuffer extends Writer {
+
+    // Contenu en dessous duquel un tampon transféré est recopié plutôt que déplacé
+    private static final int COPY_LIMIT = 1 << 13;
+    // Contenu minimal écrit sur disque lors d'un débordement
+    private static final int MIN_SPILL = 1 << 14;
+    // Capacité allouée à la première écriture, et capacité au-delà de laquelle le tableau est libéré quand il se vide
+    private static final int INITIAL_CAPACITY = 64;
+    private static final char[] EMPTY = new char[0];
+    private static final int KEEP_CAPACITY = 1 << 16;
+
+    private final Store store;
+
+    // Morceaux déjà fermés, puis la fin du contenu
+    private final List<Piece> pieces = new ArrayList<>();
+    private char[] chars = EMPTY;
+    private int count;
+
+    // Caractères de ce tampon gardés en mémoire (morceaux et fin)
+    private long held;
+
+    SpillBuffer(Store store) {
+        this.store = store;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (count == chars.length) {
+            grow(1);
+        }
+        chars[count++] = (char) c;
+        added(1);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (count + len > chars.length) {
+            grow(len);
+        }
+        System.arraycopy(cbuf, off, chars, count, len);
+        count += len;
+        added(len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (count + len > chars.length) {
+            grow(len);
+        }
+        str.getChars(off, off + len, chars, count);
+        count += len;
+        added(len);
+    }
+
+    /**
+     * Ajoute un niveau d'indentation à tout le contenu actuel (une valeur qui devient
+     * le premier élément d'un tableau) ; sans effet en mode compact
+     */
+    void indent() throws IOException {
+        if (store.unit == null) {
+            return;
+        }
+        if (!pieces.isEmpty()) {
+            seal();
+            for (Piece piece : pieces) {
+                piece.indent++;
+            }
+            return;
+        }
+
+        // Tout est dans la fin du tampon : l'indentation est insérée tout de suite
+        int lines = 0;
+        for (int i = 0; i < count; i++) {
+            if (chars[i] == '\n') {
+                lines++;
+            }
+        }
+        if (lines == 0) {
+            return;
+        }
+        String unit = store.unit;
+        char[] indented = new char[Math.max(INITIAL_CAPACITY, count + lines * unit.length())];
+        int length = 0;
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            if (chars[i] == '\n') {
+                System.arraycopy(chars, start, indented, length, i + 1 - start);
+                length += i + 1 - start;
+                unit.getChars(0, unit.length(), indented, length);
+                length += unit.length();
+                start = i + 1;
+            }
+        }
+        System.arraycopy(chars, start, indented, length, count - start);
+        length += count - start;
+        int extra = length - count;
+        chars = indented;
+        count = length;
+        added(extra);
+    }
+
+    /**
+     * Écrit tout le contenu dans out, puis vide le tampon.
+     * Si out est un tampon du même Store, un grand contenu y est déplacé sans copie.
+     */
+    void moveTo(Writer out) throws IOException {
+        if (out instanceof SpillBuffer && ((SpillBuffer) out).store == store) {
+            ((SpillBuffer) out).take(this);
+        } else {
+            for (Piece piece : pieces) {
+                if (piece.chars != null) {
+                    store.copy(piece.chars, piece.length, out, piece.indent);
+                } else {
+                    store.read(piece, out);
+                }
+            }
+            out.write(chars, 0, count);
+        }
+        reset();
+    }
+
+    /**
+     * Vide le tampon ; un contenu déjà écrit sur disque est abandonné
+     */
+    void reset() {
+        store.memory -= held;
+        held = 0;
+        pieces.clear();
+        count = 0;
+        if (chars.length > KEEP_CAPACITY) {
+            chars = EMPTY;
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Rien à faire : le contenu est relu par moveTo
+    }
+
+    @Override
+    public void close() {
+        reset();
+    }
+
+    private void take(SpillBuffer source) throws IOException {
+        if (source.pieces.isEmpty() && source.count <= COPY_LIMIT) {
+            write(source.chars, 0, source.count);
+            return;
+        }
+        seal();
+        source.seal();
+        pieces.addAll(source.pieces);
+        held += source.held;
+        store.memory += source.held;
+        // Les caractères changent de tampon : reset() de la source les retire du total
+        source.pieces.clear();
+        if (store.memory > store.budget && held >= MIN_SPILL) {
+            spill();
+        }
+    }
+
+    private void grow(int extra) {
+        chars = Arrays.copyOf(chars, Math.max(count + extra, Math.max(INITIAL_CAPACITY, chars.length * 2)));
+    }
+
+    private void added(int n) throws IOException {
+        held += n;
+        store.memory += n;
+        if (store.memory > store.budget && held >= MIN_SPILL) {
+            spill();
+        }
+    }
+
+    /**
+     * Ferme la fin du tampon en un morceau en mémoire
+     */
+    private void seal() {
+        if (count == 0) {
+            return;
+        }
+        Piece piece = new Piece();
+        if (count == chars.length || count > chars.length / 2) {
+            piece.chars = chars;
+            chars = EMPTY;
+        } else {
+            piece.chars = Arrays.copyOf(chars, count);
+        }
+        piece.length = count;
+        pieces.add(piece);
+        count = 0;
+    }
+
+    /**
+     * Écrit sur disque les morceaux en mémoire et la fin du tampon
+     */
+    private void spill() throws IOException {
+        int kept = 0;
+        for (Piece piece : pieces) {
+            if (piece.chars != null) {
+                piece.offset = store.size;
+                piece.bytes = store.append(piece.chars, piece.length);
+                released(piece.length);
+                piece.chars = null;
+            }
+            kept = merge(kept, piece);
+        }
+
+        // Un caractère haut de paire de substitution reste avec la suite, pour l'encodage
+        int keep = count > 0 && Character.isHighSurrogate(chars[count - 1]) ? 1 : 0;
+        if (count > keep) {
+            Piece piece = new Piece();
+            piece.offset = store.size;
+            piece.bytes = store.append(chars, count - keep);
+            released(count - keep);
+            kept = merge(kept, piece);
+            if (keep == 1) {
+                chars[0] = chars[count - 1];
+            }
+            count = keep;
+            if (chars.length > KEEP_CAPACITY) {
+                chars = Arrays.copyOf(chars, INITIAL_CAPACITY);
+            }
+        }
+        pieces.subList(kept, pieces.size()).clear();
+    }
+
+    /**
+     * Range le morceau à la position kept, fusionné avec le précédent s'il le prolonge dans le fichier
+     * @return Nombre de morceaux rangés
+     */
+    private int merge(int kept, Piece piece) {
+        if (kept > 0) {
+            Piece previous = pieces.get(kept - 1);
+            if (previous.chars == null && piece.chars == null && previous.indent == piece.indent
+                    && previous.offset + previous.bytes == piece.offset) {
+                previous.bytes += piece.bytes;
+                return kept;
+            }
+        }
+        if (kept < pieces.size()) {
+            pieces.set(kept, piece);
+        } else {
+            pieces.add(piece);
+        }
+        return kept + 1;
+    }
+
+    private void released(int n) {
+        held -= n;
+        store.memory -= n;
+    }
+
+    /**
+     * Portion du contenu : en mémoire (chars) ou dans le fichier du Store (offset, bytes)
+     */
+    private static final class Piece {
+        char[] chars;
+        int length;
+        long offset;
+        long bytes;
+        // Niveaux d'indentation ajoutés à la relecture
+        int indent;
+    }
+
+    /**
+     * Fichier temporaire et budget de mémoire communs aux tampons d'une conversion
+     * Le fichier n'est créé qu'au premier débordement et supprimé par close().
+     * Non thread-safe, comme la conversion qui l'utilise.
+     */
+    static final class Store implements Closeable {
+
+        private static final int BLOCK = 1 << 16;
+
+        private final long budget;
+        // Indentation d'un niveau, null en mode compact
+        private final String unit;
+        private final List<String> indents = new ArrayList<>();
+
+        // Caractères gardés en mémoire par l'ensemble des tampons
+        private long memory;
+
+        private FileChannel channel;
+        private long size;
+        private CharsetEncoder encoder;
+        private CharsetDecoder decoder;
+        private ByteBuffer bytes;
+        private CharBuffer decoded;
+
+        /**
+         * @param budget Nombre de caractères gardés en mémoire avant débordement sur disque
+         * @param unit Indentation d'un niveau, null en mode compact
+         */
+        Store(long budget, String unit) {
+            this.budget = budget;
+            this.unit = unit;
+        }
+
+        /**
+         * Caractères gardés en mémoire par l'ensemble des tampons
+         */
+        long memory() {
+            return memory;
+        }
+
+        /**
+         * Ajoute des caractères à la fin du fichier
+         * @return Nombre d'octets écrits
+         */
+        long append(char[] chars, int length) throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(Files.createTempFile("xml-json-", ".spill"), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                encoder = StandardCharsets.UTF_8.newEncoder();
+                decoder = StandardCharsets.UTF_8.newDecoder();
+                bytes = ByteBuffer.allocate(BLOCK);
+                decoded = CharBuffer.allocate(BLOCK);
+            }
+            long start = size;
+            CharBuffer in = CharBuffer.wrap(chars, 0, length);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(in, bytes, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                drain();
+            } while (result.isOverflow());
+            encoder.flush(bytes);
+            drain();
+            return size - start;
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                size += channel.write(bytes, size);
+            }
+            bytes.clear();
+        }
+
+        /**
+         * Relit un morceau du fichier vers out, avec son indentation supplémentaire
+         */
+        void read(Piece piece, Writer out) throws IOException {
+            long position = piece.offset;
+            long end = piece.offset + piece.bytes;
+            decoder.reset();
+            bytes.clear();
+            decoded.clear();
+            boolean last;
+            do {
+                bytes.limit(bytes.position() + (int) Math.min(bytes.remaining(), end - position));
+                while (bytes.hasRemaining()) {
+                    int n = channel.read(bytes, position);
+                    if (n < 0) {
+                        throw new IOException("Fichier de débordement tronqué");
+                    }
+                    position += n;
+                }
+                last = position >= end;
+                bytes.flip();
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, decoded, last);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    if (result.isOverflow() || last) {
+                        copy(decoded.array(), decoded.position(), out, piece.indent);
+                        decoded.clear();
+                    }
+                } while (result.isOverflow());
+                bytes.compact();
+            } while (!last);
+            bytes.clear();
+        }
+
+        /**
+         * Écrit des caractères en ajoutant indent niveaux après chaque retour à la ligne
+         */
+        void copy(char[] chars, int length, Writer out, int indent) throws IOException {
+            if (indent == 0) {
+                out.write(chars, 0, length);
+                return;
+            }
+            String extra = indentation(indent);
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (chars[i] == '\n') {
+                    out.write(chars, start, i + 1 - start);
+                    out.write(extra);
+                    start = i + 1;
+                }
+            }
+            out.write(chars, start, length - start);
+        }
+
+        private String indentation(int levels) {
+            while (indents.size() <= levels) {
+                indents.add(unit.repeat(indents.size()));
+            }
+            return indents.get(levels);
+        }
+
+        /**
+         * Supprime le fichier temporaire
+         */
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
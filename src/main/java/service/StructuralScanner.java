@@ -0,0 +1,83 @@
+package service;
+
+/**
+ * Balayage des caractères structurels d'un texte JSON (étape 1 à la simdjson)
+ *
+ * Cette implémentation est scalaire. Si le module jdk.incubator.vector est présent
+ * (sources src/vector/java, profil Maven "vector", JVM lancée avec
+ * --add-modules jdk.incubator.vector), {@link #get()} renvoie une variante SIMD
+ * qui traite 64 caractères par itération. Les deux donnent exactement le même résultat,
+ * y compris sur un texte invalide : '\' n'échappe le caractère suivant que dans une chaîne.
+ * La propriété système converter.vector=false force la version scalaire.
+ */
+class StructuralScanner {
+
+    private static final StructuralScanner INSTANCE = load();
+
+    StructuralScanner() {
+    }
+
+    static StructuralScanner get() {
+        return INSTANCE;
+    }
+
+    private static StructuralScanner load() {
+        if (!Boolean.parseBoolean(System.getProperty("converter.vector", "true"))) {
+            return new StructuralScanner();
+        }
+        try {
+            return (StructuralScanner) Class.forName("service.VectorStructuralScanner")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // Classe non compilée (sans le profil "vector") ou module absent à l'exécution
+            return new StructuralScanner();
+        }
+    }
+
+    /**
+     * Nom de l'implémentation, pour les journaux et les benchmarks
+     */
+    String name() {
+        return "scalar";
+    }
+
+    /**
+     * Premier caractère de [from, to) qui interrompt une chaîne JSON : '"', '\' ou caractère de contrôle
+     * @return Sa position, to si aucun
+     */
+    int stringEnd(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c == '"' || c == '\\' || c < 0x20) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Bitmap des caractères '{', '}', '[', ']' et ',' situés hors des chaînes
+     * Le bit b du mot w correspond à la position start + 64 × w + b.
+     * @return null si une chaîne n'est pas terminée avant end
+     */
+    long[] structurals(char[] chars, int start, int end) {
+        long[] bits = new long[(end - start + 63) >>> 6];
+        boolean inString = false;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '}' || c == '[' || c == ']' || c == ',') {
+                int offset = i - start;
+                bits[offset >>> 6] |= 1L << offset;
+            }
+        }
+        return inString ? null : bits;
+    }
+}
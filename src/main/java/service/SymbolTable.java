@@ -0,0 +1,181 @@
+package service;
+
+/**
+ * Table des noms (éléments, attributs, clés) rencontrés pendant les conversions
+ *
+ * Un document "liste d'enregistrements" répète quelques dizaines de noms des millions de fois.
+ * Chaque nom est stocké une fois, avec ses formes de sortie précalculées (clé JSON entre
+ * guillemets, balises XML ouvrante et fermante) : un nom déjà vu coûte une recherche
+ * par hachage et une copie de bloc, sans nouvelle chaîne ni échappement.
+ *
+ * Une table par thread ({@link #local()}), conservée d'une conversion à l'autre ; au-delà
+ * de MAX_SYMBOLS noms, les suivants ne sont plus mémorisés (documents aux noms tous différents).
+ */
+final class SymbolTable {
+
+    // Noms mémorisés par table ; les suivants reçoivent un symbole neuf à chaque recherche
+    static final int MAX_SYMBOLS = 4096;
+
+    private static final ThreadLocal<SymbolTable> TABLES = ThreadLocal.withInitial(SymbolTable::new);
+
+    private Symbol[] buckets = new Symbol[256];
+    private int size;
+
+    /**
+     * Table du thread courant
+     */
+    static SymbolTable local() {
+        return TABLES.get();
+    }
+
+    /**
+     * Symbole d'un nom lu dans un tableau de caractères, sans créer de chaîne s'il est connu
+     */
+    Symbol lookup(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        for (Symbol symbol = buckets[hash & (buckets.length - 1)]; symbol != null; symbol = symbol.next) {
+            if (symbol.hash == hash && symbol.matches(chars, start, length)) {
+                return symbol;
+            }
+        }
+        return add(new String(chars, start, length), hash);
+    }
+
+    /**
+     * Symbole d'un nom déjà sous forme de chaîne (noms internés par les parsers DOM et StAX)
+     */
+    Symbol lookup(String name) {
+        int hash = name.hashCode();
+        for (Symbol symbol = buckets[hash & (buckets.length - 1)]; symbol != null; symbol = symbol.next) {
+            if (symbol.name == name || (symbol.hash == hash && symbol.name.equals(name))) {
+                return symbol;
+            }
+        }
+        return add(name, hash);
+    }
+
+    private Symbol add(String name, int hash) {
+        if (size == MAX_SYMBOLS) {
+            return new Symbol(name, hash, null);
+        }
+        if (size == buckets.length) {
+            rehash();
+        }
+        int index = hash & (buckets.length - 1);
+        Symbol symbol = new Symbol(name, hash, buckets[index]);
+        buckets[index] = symbol;
+        size++;
+        return symbol;
+    }
+
+    private void rehash() {
+        Symbol[] old = buckets;
+        buckets = new Symbol[old.length * 2];
+        for (Symbol head : old) {
+            for (Symbol symbol = head; symbol != null; ) {
+                Symbol next = symbol.next;
+                int index = symbol.hash & (buckets.length - 1);
+                symbol.next = buckets[index];
+                buckets[index] = symbol;
+                symbol = next;
+            }
+        }
+    }
+
+    /**
+     * Nom et formes de sortie, calculées à la première utilisation
+     */
+    static final class Symbol {
+        final String name;
+        private final int hash;
+        private Symbol next;
+
+        private char[] jsonKey;
+        private char[] jsonAttributeKey;
+        private char[] startTag;
+        private char[] endTag;
+        private char[] xmlAttribute;
+
+        private Symbol(String name, int hash, Symbol next) {
+            this.name = name;
+            this.hash = hash;
+            this.next = next;
+        }
+
+        private boolean matches(char[] chars, int start, int length) {
+            if (name.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (name.charAt(i) != chars[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * "nom" : clé JSON échappée, entre guillemets
+         */
+        char[] jsonKey() {
+            if (jsonKey == null) {
+                jsonKey = quote("");
+            }
+            return jsonKey;
+        }
+
+        /**
+         * "@nom" : clé JSON d'un attribut XML
+         */
+        char[] jsonAttributeKey() {
+            if (jsonAttributeKey == null) {
+                jsonAttributeKey = quote("@");
+            }
+            return jsonAttributeKey;
+        }
+
+        /**
+         * &lt;nom : début de balise ouvrante
+         */
+        char[] startTag() {
+            if (startTag == null) {
+                startTag = ("<" + name).toCharArray();
+            }
+            return startTag;
+        }
+
+        /**
+         * &lt;/nom&gt; : balise fermante
+         */
+        char[] endTag() {
+            if (endTag == null) {
+                endTag = ("</" + name + ">").toCharArray();
+            }
+            return endTag;
+        }
+
+        /**
+         * Pour une clé "@nom" : ' nom="', début de l'attribut XML
+         */
+        char[] xmlAttribute() {
+            if (xmlAttribute == null) {
+                xmlAttribute = (" " + name.substring(1) + "=\"").toCharArray();
+            }
+            return xmlAttribute;
+        }
+
+        private char[] quote(String prefix) {
+            StringBuilder builder = new StringBuilder(name.length() + 3).append('"').append(prefix);
+            Escaper.escapeJson(name, builder);
+            return builder.append('"').toString().toCharArray();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
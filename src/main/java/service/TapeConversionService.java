@@ -0,0 +1,49 @@
+package service;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Conversion en deux temps par la représentation intermédiaire {@link TokenTape}
+ * Le document est d'abord analysé en bande (quelques octets par nœud, aucun objet par nœud),
+ * puis la bande est écrite dans l'autre format.
+ *
+ * Le résultat suit les conventions du moteur "from scratch" de chaque sens
+ * ({@link XmlToJsonService}, {@link JsonToXmlService}).
+ * Aucun état partagé : convert peut être appelé en parallèle sur la même instance.
+ */
+public class TapeConversionService implements ConversionEngine {
+
+    private final Direction direction;
+    private final OutputFormat format;
+
+    public TapeConversionService(Direction direction) {
+        this(direction, OutputFormat.PRETTY);
+    }
+
+    public TapeConversionService(Direction direction, OutputFormat format) {
+        this.direction = direction;
+        this.format = format;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new TapeConversionService(direction, format);
+    }
+
+    public String convert(String content) throws Exception {
+        StringWriter output = new StringWriter();
+        convert(new StringReader(content), output);
+        return output.toString();
+    }
+
+    public void convert(Reader input, Writer output) throws Exception {
+        if (direction == Direction.XML_TO_JSON) {
+            TokenTape.fromXml(input).writeJson(output, format);
+        } else {
+            TokenTape.fromJson(input).writeXml(output, format);
+        }
+    }
+}
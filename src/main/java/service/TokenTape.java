@@ -0,0 +1,304 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Représentation intermédiaire compacte d'un document : une "bande" de jetons
+ * dans des tableaux de types primitifs, sans un objet par nœud
+ *
+ * Chaque jeton occupe un octet (type) et deux entiers :
+ * - OBJECT, ARRAY, ELEMENT : index du jeton qui suit le sous-arbre (saut en O(1)) ;
+ * - KEY, ATTRIBUTE, ELEMENT : index du nom dans la table des noms du document ;
+ * - STRING, NUMBER, TEXT : position et longueur du texte dans le tampon de caractères.
+ * Le texte est stocké décodé (échappements JSON et entités XML résolus) et sans ponctuation.
+ *
+ * Deux modèles partagent la bande :
+ * - JSON : OBJECT (suivi de paires KEY + valeur), ARRAY, STRING, NUMBER, TRUE, FALSE, NULL ;
+ * - XML : ELEMENT (suivi de paires ATTRIBUTE + TEXT, puis de ses TEXT et ELEMENT enfants dans l'ordre).
+ * Les deux écrivains lisent les deux modèles : le JSON d'une bande XML suit les conventions
+ * de {@link XmlToJsonService}, le XML d'une bande JSON celles de {@link JsonToXmlService}.
+ *
+ * Un document est analysé une fois ({@link #fromXml}, {@link #fromJson}) puis écrit autant
+ * de fois que nécessaire ({@link #writeJson}, {@link #writeXml}), dans n'importe quelle mise en forme.
+ * Une bande terminée n'est plus modifiée : elle peut être écrite par plusieurs threads à la fois.
+ */
+public final class TokenTape {
+
+    // Modèle JSON
+    static final byte OBJECT = 1;
+    static final byte ARRAY = 2;
+    static final byte KEY = 3;
+    static final byte STRING = 4;
+    static final byte NUMBER = 5;
+    static final byte TRUE = 6;
+    static final byte FALSE = 7;
+    static final byte NULL = 8;
+
+    // Modèle XML
+    static final byte ELEMENT = 9;
+    static final byte ATTRIBUTE = 10;
+    static final byte TEXT = 11;
+
+    private byte[] kinds = new byte[256];
+    private int[] first = new int[256];
+    private int[] second = new int[256];
+    private int size;
+
+    private char[] text = new char[1024];
+    private int textLength;
+
+    private SymbolTable.Symbol[] names = new SymbolTable.Symbol[16];
+    private int nameCount;
+    // Index des noms pendant la construction (adressage ouvert sur l'identité du symbole)
+    private SymbolTable.Symbol[] nameKeys = new SymbolTable.Symbol[32];
+    private int[] nameSlots = new int[32];
+
+    TokenTape() {
+    }
+
+    /**
+     * Analyse un document XML ; le flux n'est pas fermé
+     */
+    public static TokenTape fromXml(Reader xml) throws Exception {
+        return XmlTapeParser.parse(xml);
+    }
+
+    /**
+     * Analyse un document JSON ; le flux n'est pas fermé
+     */
+    public static TokenTape fromJson(Reader json) throws Exception {
+        return JsonTapeParser.parse(new JsonLexer(json));
+    }
+
+    /**
+     * Écrit le document en JSON ; le writer est vidé (flush) mais pas fermé
+     */
+    public void writeJson(Writer output, OutputFormat format) throws Exception {
+        Writer out = new BufferedWriter(output, 1 << 16);
+        new JsonTapeWriter(this, format, out).writeDocument();
+        out.flush();
+    }
+
+    /**
+     * Écrit le document en XML ; le writer est vidé (flush) mais pas fermé
+     */
+    public void writeXml(Writer output, OutputFormat format) throws Exception {
+        Writer out = new BufferedWriter(output, 1 << 16);
+        new XmlTapeWriter(this, format, out).writeDocument();
+        out.flush();
+    }
+
+    /**
+     * Nombre de jetons
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Taille approximative en mémoire (tableaux alloués), en octets
+     */
+    public long memoryBytes() {
+        return kinds.length + 8L * first.length + 2L * text.length + 8L * names.length
+                + 8L * nameKeys.length + 128;
+    }
+
+    @Override
+    public String toString() {
+        return size + " jetons, " + textLength + " caractères de texte, " + nameCount + " noms";
+    }
+
+    // --- Construction (analyseurs) ---
+
+    /**
+     * Ajoute un jeton conteneur (OBJECT, ARRAY, ELEMENT) ; son saut est fixé par {@link #close}
+     * @return Index du jeton
+     */
+    int open(byte kind, SymbolTable.Symbol name) {
+        return add(kind, name == null ? 0 : nameIndex(name), 0);
+    }
+
+    /**
+     * Termine le sous-arbre du conteneur index : le saut pointe sur le prochain jeton
+     */
+    void close(int index) {
+        second[index] = size;
+    }
+
+    /**
+     * Ajoute un jeton nommé sans contenu propre (KEY, ATTRIBUTE)
+     */
+    void name(byte kind, SymbolTable.Symbol name) {
+        add(kind, nameIndex(name), 0);
+    }
+
+    /**
+     * Ajoute un jeton sans contenu (TRUE, FALSE, NULL)
+     */
+    void literal(byte kind) {
+        add(kind, 0, 0);
+    }
+
+    /**
+     * Ajoute un jeton de texte (STRING, NUMBER, TEXT)
+     */
+    void text(byte kind, String value) {
+        int start = textLength;
+        ensureText(value.length());
+        value.getChars(0, value.length(), text, start);
+        textLength += value.length();
+        add(kind, start, value.length());
+    }
+
+    /**
+     * Ajoute un jeton de texte à partir de la valeur courante du lexer, sans chaîne intermédiaire
+     */
+    void text(byte kind, JsonLexer lexer) {
+        int length = lexer.valueLength();
+        int start = textLength;
+        ensureText(length);
+        lexer.copyValue(text, start);
+        textLength += length;
+        add(kind, start, length);
+    }
+
+    /**
+     * Position courante du tampon de texte, pour un texte construit par morceaux
+     */
+    int textMark() {
+        return textLength;
+    }
+
+    void appendText(char[] chars, int start, int length) {
+        ensureText(length);
+        System.arraycopy(chars, start, text, textLength, length);
+        textLength += length;
+    }
+
+    /**
+     * Termine un texte commencé à mark : comme le DOM, les espaces de début et de fin sont retirés.
+     * Un texte vide après retrait n'ajoute pas de jeton.
+     * @return true si un jeton TEXT a été ajouté
+     */
+    boolean endTrimmedText(int mark) {
+        int start = mark;
+        int end = textLength;
+        while (start < end && text[start] <= ' ') {
+            start++;
+        }
+        while (end > start && text[end - 1] <= ' ') {
+            end--;
+        }
+        if (start != mark) {
+            System.arraycopy(text, start, text, mark, end - start);
+        }
+        textLength = mark + (end - start);
+        if (end == start) {
+            return false;
+        }
+        add(TEXT, mark, end - start);
+        return true;
+    }
+
+    private int add(byte kind, int a, int b) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+        }
+        kinds[size] = kind;
+        first[size] = a;
+        second[size] = b;
+        return size++;
+    }
+
+    private void ensureText(int length) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+    }
+
+    private int nameIndex(SymbolTable.Symbol name) {
+        int mask = nameKeys.length - 1;
+        int slot = System.identityHashCode(name) & mask;
+        while (nameKeys[slot] != null) {
+            if (nameKeys[slot] == name) {
+                return nameSlots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameKeys[slot] = name;
+        nameSlots[slot] = nameCount;
+        if (++nameCount * 2 > nameKeys.length) {
+            rehashNames();
+        }
+        return nameCount - 1;
+    }
+
+    private void rehashNames() {
+        nameKeys = new SymbolTable.Symbol[nameKeys.length * 2];
+        nameSlots = new int[nameKeys.length];
+        int mask = nameKeys.length - 1;
+        for (int i = 0; i < nameCount; i++) {
+            int slot = System.identityHashCode(names[i]) & mask;
+            while (nameKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            nameKeys[slot] = names[i];
+            nameSlots[slot] = i;
+        }
+    }
+
+    // --- Lecture (écrivains) ---
+
+    byte kind(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Index du jeton qui suit la valeur commençant en index (sous-arbre compris)
+     */
+    int next(int index) {
+        byte kind = kinds[index];
+        return kind == OBJECT || kind == ARRAY || kind == ELEMENT ? second[index] : index + 1;
+    }
+
+    SymbolTable.Symbol name(int index) {
+        return names[first[index]];
+    }
+
+    /**
+     * Index du nom d'un jeton KEY, ATTRIBUTE ou ELEMENT, entre 0 et {@link #nameCount()}
+     */
+    int nameId(int index) {
+        return first[index];
+    }
+
+    int nameCount() {
+        return nameCount;
+    }
+
+    char[] textBuffer() {
+        return text;
+    }
+
+    int textStart(int index) {
+        return first[index];
+    }
+
+    int textLength(int index) {
+        return second[index];
+    }
+
+    String string(int index) {
+        return new String(text, first[index], second[index]);
+    }
+}
@@ -0,0 +1,105 @@
+package service;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+/**
+ * Fabriques XML partagées par tous les moteurs, configurées pour des documents non fiables
+ *
+ * Le XML converti vient d'utilisateurs (fichiers, corps de requêtes HTTP) : aucun parser
+ * ne doit traiter de DTD ni résoudre d'entité externe (XXE : lecture de fichiers locaux,
+ * requêtes vers le réseau, expansion d'entités en cascade). Un document avec DOCTYPE
+ * est refusé par tous les moteurs, DOM comme StAX.
+ *
+ * Chaque appel crée une nouvelle fabrique : les moteurs gardent la leur dans un champ statique.
+ */
+public final class XmlFactories {
+
+    // Message commun aux moteurs StAX (le parser DOM a le sien)
+    private static final String DOCTYPE_REFUSED = "DOCTYPE non autorisé : les DTD et entités externes sont désactivées";
+
+    // Propriété de l'implémentation StAX du JDK : sans elle, une section CDATA arrive comme du texte
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    // Propriété de Woodstox (com.ctc.wstx.api.WstxInputProperties.P_MAX_ELEMENT_DEPTH), 1000 par défaut
+    private static final String MAX_ELEMENT_DEPTH = "com.ctc.wstx.maxElementDepth";
+
+    /**
+     * Profondeur maximale d'un document XML en StAX
+     * Le DOM convertit sans peine 2 000 niveaux : les moteurs StAX doivent aller au moins aussi
+     * loin, sinon Auto refuserait des documents que le moteur arborescent accepte. La limite
+     * reste finie : chaque niveau ouvert coûte un peu de mémoire au moteur streaming.
+     */
+    static final int MAX_DEPTH = 10_000;
+
+    private XmlFactories() {
+    }
+
+    /**
+     * Fabrique StAX sans DTD ni entités externes, sans gestion des namespaces (comme le DOM)
+     * @param coalescing Vrai pour regrouper texte et CDATA en un seul événement
+     */
+    public static XMLInputFactory inputFactory(boolean coalescing) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, coalescing);
+        if (!coalescing && factory.isPropertySupported(REPORT_CDATA)) {
+            factory.setProperty(REPORT_CDATA, true);
+        }
+        if (factory.isPropertySupported(MAX_ELEMENT_DEPTH)) {
+            factory.setProperty(MAX_ELEMENT_DEPTH, MAX_DEPTH);
+        }
+        return factory;
+    }
+
+    /**
+     * Fabrique DOM qui refuse tout DOCTYPE, sans namespaces
+     */
+    public static DocumentBuilderFactory documentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(false);
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException e) {
+            // Parser qui ne sait pas se protéger : mieux vaut ne pas démarrer
+            throw new IllegalStateException("Parser DOM sans protection contre les entités externes", e);
+        }
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory;
+    }
+
+    /**
+     * Fabrique de Transformer sans accès aux DTD ni feuilles de style externes
+     */
+    public static TransformerFactory transformerFactory() {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (TransformerConfigurationException e) {
+            throw new IllegalStateException("Transformer sans traitement sécurisé", e);
+        }
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+        return factory;
+    }
+
+    /**
+     * À appeler sur l'événement DTD d'une boucle StAX : même refus que le parser DOM
+     */
+    public static XMLStreamException doctypeRefused(XMLStreamReader reader) {
+        return new XMLStreamException(DOCTYPE_REFUSED, reader.getLocation());
+    }
+}
@@ -0,0 +1,91 @@
+package service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Analyse d'un document XML vers une {@link TokenTape} (modèle XML), avec StAX
+ *
+ * Le texte est découpé comme les nœuds texte du DOM : les caractères contigus forment
+ * un seul texte, qu'un commentaire, une section CDATA ou une balise terminent.
+ * Chaque texte est stocké sans ses espaces de début et de fin, et omis s'il est vide.
+ * Les attributs sont rangés par nom, comme dans le DOM.
+ */
+final class XmlTapeParser {
+
+    // CDATA à part, comme le DOM ; sans DTD ni entités externes
+    private static final XMLInputFactory INPUT_FACTORY = XmlFactories.inputFactory(false);
+
+    private XmlTapeParser() {
+    }
+
+    static TokenTape parse(Reader xml) throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.PARSE);
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(xml);
+        TokenTape tape = new TokenTape();
+        SymbolTable symbols = SymbolTable.local();
+
+        // Éléments ouverts
+        int[] open = new int[32];
+        int depth = 0;
+        // Début du texte en cours dans la bande, -1 s'il n'y en a pas
+        int textMark = -1;
+        int[] attributeOrder = new int[8];
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                    if (depth > 0) {
+                        if (textMark < 0) {
+                            textMark = tape.textMark();
+                        }
+                        tape.appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    continue;
+                }
+                if (textMark >= 0) {
+                    tape.endTrimmedText(textMark);
+                    textMark = -1;
+                }
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                    }
+                    open[depth++] = tape.open(TokenTape.ELEMENT, symbols.lookup(reader.getLocalName()));
+
+                    int count = reader.getAttributeCount();
+                    if (attributeOrder.length < count) {
+                        attributeOrder = new int[count];
+                    }
+                    for (int i = 0; i < count; i++) {
+                        int j = i;
+                        String name = reader.getAttributeLocalName(i);
+                        while (j > 0 && reader.getAttributeLocalName(attributeOrder[j - 1]).compareTo(name) > 0) {
+                            attributeOrder[j] = attributeOrder[j - 1];
+                            j--;
+                        }
+                        attributeOrder[j] = i;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        tape.name(TokenTape.ATTRIBUTE, symbols.lookup(reader.getAttributeLocalName(attributeOrder[i])));
+                        tape.text(TokenTape.TEXT, reader.getAttributeValue(attributeOrder[i]));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    tape.close(open[--depth]);
+                } else if (event == XMLStreamConstants.DTD) {
+                    throw XmlFactories.doctypeRefused(reader);
+                }
+                // Commentaires, CDATA, instructions de traitement : ignorés, comme dans XmlToJsonService
+            }
+        } finally {
+            reader.close();
+        }
+        ConversionMetrics.addNodes(tape.size());
+        return tape;
+    }
+}
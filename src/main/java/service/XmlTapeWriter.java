@@ -0,0 +1,286 @@
+package service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Écriture XML d'une {@link TokenTape}
+ *
+ * - modèle JSON : conventions de {@link JsonToXmlService} (clés "@attr" en attributs, "#text"
+ *   en contenu d'un objet sans éléments, un élément par valeur d'un tableau). Comme dans
+ *   la LinkedHashMap du service, une clé en double garde sa première place et sa dernière valeur ;
+ * - modèle XML : éléments et attributs dans l'ordre du document ; comme pour "#text",
+ *   le texte d'un élément qui a des enfants n'est pas écrit.
+ */
+final class XmlTapeWriter {
+
+    private final TokenTape tape;
+    private final OutputFormat format;
+    private final Writer out;
+
+    // Par index de nom : objet en cours de lecture et position de la clé dans la pile des membres
+    private final int[] memberOwner;
+    private final int[] memberSlot;
+    // Pile des membres distincts des objets en cours : index de la valeur retenue
+    private int[] members = new int[32];
+    private int memberTop;
+
+    XmlTapeWriter(TokenTape tape, OutputFormat format, Writer out) {
+        this.tape = tape;
+        this.format = format;
+        this.out = out;
+        this.memberOwner = new int[tape.nameCount()];
+        this.memberSlot = new int[tape.nameCount()];
+    }
+
+    void writeDocument() throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.CONVERT);
+        byte root = tape.kind(0);
+        if (root != TokenTape.OBJECT && root != TokenTape.ELEMENT) {
+            throw new Exception("Le JSON doit commencer par un objet");
+        }
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        format.lineEnd(out);
+
+        if (root == TokenTape.ELEMENT) {
+            writeElement(0, 0);
+            return;
+        }
+        // Chaque membre de l'objet racine devient un élément de premier niveau
+        int base = memberTop;
+        int top = collectMembers(0);
+        for (int m = base; m < top; m++) {
+            writeValue(tape.name(members[m] - 1), members[m], 0);
+        }
+        memberTop = base;
+    }
+
+    /**
+     * Empile les membres distincts d'un objet (index de leur valeur), dans l'ordre de première
+     * apparition ; pour une clé en double, la dernière valeur remplace les précédentes
+     * @return Sommet de la pile après l'objet (sa base est le sommet avant l'appel)
+     */
+    private int collectMembers(int index) {
+        int base = memberTop;
+        for (int i = index + 1, end = tape.next(index); i < end; i = tape.next(i + 1)) {
+            int name = tape.nameId(i);
+            if (memberOwner[name] == index + 1 && memberSlot[name] >= base) {
+                members[memberSlot[name]] = i + 1;
+            } else {
+                if (memberTop == members.length) {
+                    members = Arrays.copyOf(members, memberTop * 2);
+                }
+                memberOwner[name] = index + 1;
+                memberSlot[name] = memberTop;
+                members[memberTop++] = i + 1;
+            }
+        }
+        return memberTop;
+    }
+
+    /**
+     * Écrit une valeur JSON sous forme d'élément(s) XML nommé(s) tag
+     */
+    private void writeValue(SymbolTable.Symbol tag, int index, int level) throws Exception {
+        if (tag.name.startsWith("@")) {
+            // Attribut hors d'un objet : ignoré, comme dans JsonToXmlService
+            return;
+        }
+
+        switch (tape.kind(index)) {
+            case TokenTape.NULL:
+                format.indent(out, level);
+                out.write(tag.startTag());
+                out.write("/>");
+                format.lineEnd(out);
+                break;
+            case TokenTape.OBJECT:
+                writeObject(tag, index, level);
+                break;
+            case TokenTape.ARRAY:
+                // Chaque élément du tableau devient un élément XML avec le même nom
+                for (int i = index + 1, end = tape.next(index); i < end; i = tape.next(i)) {
+                    writeValue(tag, i, level);
+                }
+                break;
+            default:
+                format.indent(out, level);
+                out.write(tag.startTag());
+                out.write(">");
+                writeText(index);
+                out.write(tag.endTag());
+                format.lineEnd(out);
+                break;
+        }
+    }
+
+    private void writeObject(SymbolTable.Symbol tag, int index, int level) throws Exception {
+        format.indent(out, level);
+        out.write(tag.startTag());
+
+        // Les appels récursifs empilent leurs membres au-dessus de top
+        int base = memberTop;
+        int top = collectMembers(index);
+
+        int text = -1;
+        boolean hasElements = false;
+        for (int m = base; m < top; m++) {
+            SymbolTable.Symbol key = tape.name(members[m] - 1);
+            if (key.name.startsWith("@")) {
+                out.write(key.xmlAttribute());
+                Escaper.escapeXmlAttribute(javaText(members[m]), out);
+                out.write("\"");
+            } else if (key.name.equals("#text")) {
+                text = members[m];
+            } else {
+                hasElements = true;
+            }
+        }
+
+        if (!hasElements && text < 0) {
+            out.write("/>");
+            format.lineEnd(out);
+        } else {
+            out.write(">");
+            if (hasElements) {
+                format.lineEnd(out);
+                for (int m = base; m < top; m++) {
+                    SymbolTable.Symbol key = tape.name(members[m] - 1);
+                    if (!key.name.startsWith("@") && !key.name.equals("#text")) {
+                        writeValue(key, members[m], level + 1);
+                    }
+                }
+                format.indent(out, level);
+            } else {
+                Escaper.escapeXmlText(javaText(text), out);
+            }
+            out.write(tag.endTag());
+            format.lineEnd(out);
+        }
+        memberTop = base;
+    }
+
+    /**
+     * Élément d'une bande XML
+     */
+    private void writeElement(int index, int level) throws IOException {
+        int end = tape.next(index);
+        SymbolTable.Symbol tag = tape.name(index);
+        format.indent(out, level);
+        out.write(tag.startTag());
+
+        int i = index + 1;
+        for (; i < end && tape.kind(i) == TokenTape.ATTRIBUTE; i += 2) {
+            out.write(" ");
+            out.write(tape.name(i).name);
+            out.write("=\"");
+            Escaper.escapeXmlAttribute(tape.textBuffer(), tape.textStart(i + 1), tape.textLength(i + 1), out);
+            out.write("\"");
+        }
+
+        int text = -1;
+        boolean hasChildren = false;
+        for (int j = i; j < end; j = tape.next(j)) {
+            if (tape.kind(j) == TokenTape.TEXT) {
+                text = j;
+            } else {
+                hasChildren = true;
+            }
+        }
+
+        if (hasChildren) {
+            out.write(">");
+            format.lineEnd(out);
+            for (int j = i; j < end; j = tape.next(j)) {
+                if (tape.kind(j) == TokenTape.ELEMENT) {
+                    writeElement(j, level + 1);
+                }
+            }
+            format.indent(out, level);
+        } else if (text >= 0) {
+            out.write(">");
+            Escaper.escapeXmlText(tape.textBuffer(), tape.textStart(text), tape.textLength(text), out);
+        } else {
+            out.write("/>");
+            format.lineEnd(out);
+            return;
+        }
+        out.write(tag.endTag());
+        format.lineEnd(out);
+    }
+
+    /**
+     * Contenu d'un élément pour une valeur simple, sans chaîne intermédiaire pour le texte
+     */
+    private void writeText(int index) throws Exception {
+        switch (tape.kind(index)) {
+            case TokenTape.STRING:
+                Escaper.escapeXmlText(tape.textBuffer(), tape.textStart(index), tape.textLength(index), out);
+                break;
+            case TokenTape.NUMBER:
+                out.write(tape.textBuffer(), tape.textStart(index), tape.textLength(index));
+                break;
+            case TokenTape.TRUE:
+                out.write("true");
+                break;
+            default:
+                out.write("false");
+                break;
+        }
+    }
+
+    /**
+     * Texte d'une valeur tel que String.valueOf le donne dans JsonToXmlService
+     * (nombres tels qu'écrits, objets et tableaux au format de Map et List)
+     */
+    private String javaText(int index) throws Exception {
+        switch (tape.kind(index)) {
+            case TokenTape.STRING:
+            case TokenTape.NUMBER:
+                return tape.string(index);
+            case TokenTape.TRUE:
+                return "true";
+            case TokenTape.FALSE:
+                return "false";
+            case TokenTape.NULL:
+                return "null";
+            default:
+                StringBuilder builder = new StringBuilder();
+                appendJavaText(index, builder);
+                return builder.toString();
+        }
+    }
+
+    private void appendJavaText(int index, StringBuilder builder) throws Exception {
+        byte kind = tape.kind(index);
+        if (kind != TokenTape.OBJECT && kind != TokenTape.ARRAY) {
+            builder.append(javaText(index));
+            return;
+        }
+        if (kind == TokenTape.ARRAY) {
+            builder.append('[');
+            for (int i = index + 1, end = tape.next(index); i < end; i = tape.next(i)) {
+                if (i > index + 1) {
+                    builder.append(", ");
+                }
+                appendJavaText(i, builder);
+            }
+            builder.append(']');
+            return;
+        }
+        builder.append('{');
+        int base = memberTop;
+        int top = collectMembers(index);
+        for (int m = base; m < top; m++) {
+            if (m > base) {
+                builder.append(", ");
+            }
+            builder.append(tape.name(members[m] - 1).name).append('=');
+            appendJavaText(members[m], builder);
+        }
+        memberTop = base;
+        builder.append('}');
+    }
+}
@@ -9,26 +9,56 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 // Fabrique qui fournit un DocumentBuilder configuré
 
-import java.io.ByteArrayInputStream;
-// Permet de lire une chaîne XML comme un flux d’entrée
+import org.xml.sax.InputSource;
+// Source XML à partir d’un flux de caractères
 
-import java.nio.charset.StandardCharsets;
-// Définit l’encodage (UTF-8)
+import util.ObjectPool;
+// Réservoir de parsers réutilisables
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+// Entrée et sortie sous forme de flux de caractères
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+// Index de regroupement des enfants par nom
 
 /**
  * Service de conversion XML vers JSON (from scratch)
  * Le XML est parsé avec DOM et le JSON est construit manuellement
+ * L’état de conversion est local à chaque appel : le service est thread-safe
  */
-public class XmlToJsonService {
+public class XmlToJsonService implements ConversionEngine {
+
+    // Taille du tampon au-delà de laquelle la sortie sur flux est déversée
+    private static final int SPILL_SIZE = 1 << 16;
+
+    // Fabrique DOM configurée une seule fois (la recherche d’implémentation est coûteuse)
+    // Sans namespaces, DOCTYPE refusé : pas d’entités externes (XXE)
+    private static final DocumentBuilderFactory FACTORY = XmlFactories.documentBuilderFactory();
 
-    // Construit progressivement la chaîne JSON
-    private StringBuilder jsonBuilder;
+    // DocumentBuilder réutilisables après reset() : un par conversion en cours, non thread-safe
+    private static final ObjectPool<DocumentBuilder> BUILDERS = new ObjectPool<>(FACTORY::newDocumentBuilder);
 
-    // Niveau d’imbrication pour gérer l’indentation
-    private int indentLevel;
+    // Mise en forme du JSON produit
+    private final OutputFormat format;
 
-    // Indentation utilisée dans le JSON final
-    private static final String INDENT = "  ";
+    public XmlToJsonService() {
+        this(OutputFormat.PRETTY);
+    }
+
+    public XmlToJsonService(OutputFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new XmlToJsonService(format);
+    }
 
     /**
      * Méthode principale de conversion
@@ -36,52 +66,82 @@ public class XmlToJsonService {
      * - Lance la conversion récursive à partir de la racine
      */
     public String convert(String xmlContent) throws Exception {
+        // La chaîne est lue directement, sans copie intermédiaire en octets
+        return toJson(parse(new InputSource(new StringReader(xmlContent))), null).toString();
+    }
 
-        // Initialisation du constructeur JSON
-        jsonBuilder = new StringBuilder();
-        indentLevel = 0;
+    /**
+     * Variante sur flux : le XML est lu au fur et à mesure par le parser DOM
+     * et le JSON est déversé dans le writer par blocs de SPILL_SIZE caractères
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convert(Reader xmlReader, Writer jsonWriter) throws Exception {
+        StringBuilder jsonBuilder = toJson(parse(new InputSource(xmlReader)), jsonWriter);
+        jsonWriter.append(jsonBuilder);
+        jsonWriter.flush();
+    }
+
+    /**
+     * Parsing du XML → création de l’arbre DOM avec un parser pris dans le réservoir
+     */
+    private Document parse(InputSource input) throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.PARSE);
+        DocumentBuilder builder = BUILDERS.acquire();
+        Document doc;
+        try {
+            doc = builder.parse(input);
+        } finally {
+            builder.reset();
+            BUILDERS.release(builder);
+        }
+        doc.getDocumentElement().normalize();
+        ConversionMetrics.enter(ConversionMetrics.Phase.CONVERT);
+        return doc;
+    }
 
-        // Création du parser DOM
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(false); // Pas de gestion des namespaces
-        DocumentBuilder builder = factory.newDocumentBuilder();
+    /**
+     * Construit le JSON à partir de l’arbre DOM
+     * @param sink Destination des blocs déjà produits, null pour tout garder en mémoire
+     * @return Fin du JSON non encore déversée
+     */
+    private StringBuilder toJson(Document doc, Writer sink) throws IOException {
 
-        // Conversion de la chaîne XML en flux d’entrée
-        ByteArrayInputStream input = new ByteArrayInputStream(
-            xmlContent.getBytes(StandardCharsets.UTF_8)
-        );
+        // Initialisation du constructeur JSON (propre à cet appel)
+        StringBuilder jsonBuilder = new StringBuilder();
+        int indentLevel = 0;
 
-        // Parsing du XML → création de l’arbre DOM
-        Document doc = builder.parse(input);
-        doc.getDocumentElement().normalize();
+        // Noms du document et leurs clés JSON précalculées
+        SymbolTable symbols = SymbolTable.local();
 
         // Récupération de l’élément racine
         Element root = doc.getDocumentElement();
 
         // Début de l’objet JSON racine
-        jsonBuilder.append("{\n");
+        jsonBuilder.append("{");
         indentLevel++;
 
         // Ajout du nom de la racine comme clé JSON
-        appendIndent();
-        jsonBuilder.append("\"").append(root.getNodeName()).append("\": ");
+        format.newline(jsonBuilder, indentLevel);
+        jsonBuilder.append(symbols.lookup(root.getNodeName()).jsonKey()).append(format.nameSeparator());
 
         // Conversion récursive de l’élément racine
-        convertElement(root);
+        ConversionMetrics.addNodes(convertElement(root, jsonBuilder, indentLevel, symbols, sink));
 
         // Fermeture de l’objet JSON
-        jsonBuilder.append("\n");
         indentLevel--;
+        format.newline(jsonBuilder, indentLevel);
         jsonBuilder.append("}");
 
-        return jsonBuilder.toString();
+        return jsonBuilder;
     }
 
     /**
      * Convertit un élément XML en structure JSON
      * Méthode récursive appelée pour chaque balise XML
+     * @return Nombre d’éléments convertis (l’élément et ses descendants)
      */
-    private void convertElement(Element element) {
+    private int convertElement(Element element, StringBuilder jsonBuilder, int indentLevel,
+                                SymbolTable symbols, Writer sink) throws IOException {
 
         // Récupération des enfants et des attributs
         NodeList children = element.getChildNodes();
@@ -91,6 +151,10 @@ public class XmlToJsonService {
         boolean hasChildElements = false; // Indique la présence d’éléments enfants
         String textContent = "";
 
+        // Index de regroupement : nom → enfants de ce nom, dans l’ordre de première apparition
+        // Construit en un seul passage pour détecter les tableaux sans reparcourir les enfants
+        Map<String, List<Element>> childrenByName = null;
+
         // Analyse du contenu de l’élément
         for (int i = 0; i < children.getLength(); i++) {
             Node child = children.item(i);
@@ -99,6 +163,12 @@ public class XmlToJsonService {
             if (child.getNodeType() == Node.ELEMENT_NODE) {
                 hasChildElements = true;
 
+                if (childrenByName == null) {
+                    childrenByName = new LinkedHashMap<>();
+                }
+                childrenByName.computeIfAbsent(child.getNodeName(), name -> new ArrayList<>(1))
+                              .add((Element) child);
+
             // Si le nœud est du texte
             } else if (child.getNodeType() == Node.TEXT_NODE) {
                 String text = child.getNodeValue().trim();
@@ -111,23 +181,24 @@ public class XmlToJsonService {
 
         // Cas 1 : élément simple (texte uniquement)
         if (hasTextContent && !hasChildElements && attributes.getLength() == 0) {
-            jsonBuilder.append("\"")
-                       .append(escapeJson(textContent))
-                       .append("\"");
-            return;
+            jsonBuilder.append("\"");
+            Escaper.escapeJson(textContent, jsonBuilder);
+            jsonBuilder.append("\"");
+            return 1;
         }
 
         // Cas 2 : élément vide
         if (!hasTextContent && !hasChildElements && attributes.getLength() == 0) {
             jsonBuilder.append("null");
-            return;
+            return 1;
         }
 
         // Cas 3 : élément complexe (attributs et/ou enfants)
-        jsonBuilder.append("{\n");
+        jsonBuilder.append("{");
         indentLevel++;
 
         boolean firstProperty = true;
+        int converted = 1;
 
         // Ajout des attributs XML sous forme de propriétés JSON
         if (attributes.getLength() > 0) {
@@ -135,15 +206,15 @@ public class XmlToJsonService {
                 Node attr = attributes.item(i);
 
                 if (!firstProperty) {
-                    jsonBuilder.append(",\n");
+                    jsonBuilder.append(",");
                 }
 
-                appendIndent();
-                jsonBuilder.append("\"@")
-                           .append(attr.getNodeName())
-                           .append("\": \"")
-                           .append(escapeJson(attr.getNodeValue()))
+                format.newline(jsonBuilder, indentLevel);
+                jsonBuilder.append(symbols.lookup(attr.getNodeName()).jsonAttributeKey())
+                           .append(format.nameSeparator())
                            .append("\"");
+                Escaper.escapeJson(attr.getNodeValue(), jsonBuilder);
+                jsonBuilder.append("\"");
 
                 firstProperty = false;
             }
@@ -152,147 +223,80 @@ public class XmlToJsonService {
         // Ajout du texte si l’élément contient à la fois texte et enfants
         if (hasTextContent && hasChildElements) {
             if (!firstProperty) {
-                jsonBuilder.append(",\n");
+                jsonBuilder.append(",");
             }
 
-            appendIndent();
-            jsonBuilder.append("\"#text\": \"")
-                       .append(escapeJson(textContent))
+            format.newline(jsonBuilder, indentLevel);
+            jsonBuilder.append("\"#text\"")
+                       .append(format.nameSeparator())
                        .append("\"");
+            Escaper.escapeJson(textContent, jsonBuilder);
+            jsonBuilder.append("\"");
 
             firstProperty = false;
         }
 
-        // Traitement des éléments enfants
+        // Traitement des éléments enfants, groupe par groupe
         if (hasChildElements) {
-            for (int i = 0; i < children.getLength(); i++) {
-                Node child = children.item(i);
-
-                if (child.getNodeType() == Node.ELEMENT_NODE) {
-                    Element childElement = (Element) child;
-                    String childName = childElement.getNodeName();
-
-                    // Vérifie si plusieurs enfants ont le même nom
-                    int count = countElementsByName(element, childName);
-
-                    // Cas tableau JSON
-                    if (count > 1) {
-                        if (!isAlreadyProcessed(element, childName, i)) {
-
-                            if (!firstProperty) {
-                                jsonBuilder.append(",\n");
-                            }
-
-                            appendIndent();
-                            jsonBuilder.append("\"")
-                                       .append(childName)
-                                       .append("\": [\n");
-
-                            indentLevel++;
-                            boolean firstArrayElement = true;
-
-                            // Parcours de tous les éléments du tableau
-                            for (int j = 0; j < children.getLength(); j++) {
-                                Node arrayChild = children.item(j);
-
-                                if (arrayChild.getNodeType() == Node.ELEMENT_NODE &&
-                                    arrayChild.getNodeName().equals(childName)) {
-
-                                    if (!firstArrayElement) {
-                                        jsonBuilder.append(",\n");
-                                    }
-
-                                    appendIndent();
-                                    convertElement((Element) arrayChild);
-                                    firstArrayElement = false;
-                                }
-                            }
-
-                            jsonBuilder.append("\n");
-                            indentLevel--;
-                            appendIndent();
-                            jsonBuilder.append("]");
-                            firstProperty = false;
-                        }
-
-                    // Cas élément unique
-                    } else {
-                        if (!firstProperty) {
-                            jsonBuilder.append(",\n");
-                        }
-
-                        appendIndent();
-                        jsonBuilder.append("\"")
-                                   .append(childName)
-                                   .append("\": ");
+            for (Map.Entry<String, List<Element>> group : childrenByName.entrySet()) {
+                String childName = group.getKey();
+                List<Element> sameNameChildren = group.getValue();
 
-                        convertElement(childElement);
-                        firstProperty = false;
-                    }
+                if (!firstProperty) {
+                    jsonBuilder.append(",");
                 }
-            }
-        }
 
-        // Fermeture de l’objet JSON courant
-        jsonBuilder.append("\n");
-        indentLevel--;
-        appendIndent();
-        jsonBuilder.append("}");
-    }
+                format.newline(jsonBuilder, indentLevel);
+                jsonBuilder.append(symbols.lookup(childName).jsonKey())
+                           .append(format.nameSeparator());
 
-    /**
-     * Compte le nombre d’enfants portant un nom donné
-     * Utilisé pour détecter les tableaux JSON
-     */
-    private int countElementsByName(Element parent, String name) {
-        int count = 0;
-        NodeList children = parent.getChildNodes();
+                // Cas tableau JSON : plusieurs enfants portent le même nom
+                if (sameNameChildren.size() > 1) {
+                    jsonBuilder.append("[");
 
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
+                    indentLevel++;
+                    boolean firstArrayElement = true;
 
-            if (child.getNodeType() == Node.ELEMENT_NODE &&
-                child.getNodeName().equals(name)) {
-                count++;
-            }
-        }
-        return count;
-    }
+                    // Parcours de tous les éléments du tableau
+                    for (Element arrayChild : sameNameChildren) {
+                        if (!firstArrayElement) {
+                            jsonBuilder.append(",");
+                        }
 
-    /**
-     * Évite de traiter plusieurs fois un même tableau
-     */
-    private boolean isAlreadyProcessed(Element parent, String name, int currentIndex) {
-        NodeList children = parent.getChildNodes();
+                        format.newline(jsonBuilder, indentLevel);
+                        converted += convertElement(arrayChild, jsonBuilder, indentLevel, symbols, sink);
+                        firstArrayElement = false;
+                        spill(jsonBuilder, sink);
+                    }
 
-        for (int i = 0; i < currentIndex; i++) {
-            Node child = children.item(i);
+                    indentLevel--;
+                    format.newline(jsonBuilder, indentLevel);
+                    jsonBuilder.append("]");
+
+                // Cas élément unique
+                } else {
+                    converted += convertElement(sameNameChildren.get(0), jsonBuilder, indentLevel, symbols, sink);
+                }
 
-            if (child.getNodeType() == Node.ELEMENT_NODE &&
-                child.getNodeName().equals(name)) {
-                return true;
+                firstProperty = false;
+                spill(jsonBuilder, sink);
             }
         }
-        return false;
-    }
 
-    /**
-     * Échappe les caractères spéciaux pour respecter la syntaxe JSON
-     */
-    private String escapeJson(String text) {
-        return text.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
+        // Fermeture de l’objet JSON courant
+        indentLevel--;
+        format.newline(jsonBuilder, indentLevel);
+        jsonBuilder.append("}");
+        return converted;
     }
 
     /**
-     * Ajoute l’indentation selon le niveau d’imbrication
+     * Déverse le tampon dans la sortie dès qu’il dépasse SPILL_SIZE caractères
      */
-    private void appendIndent() {
-        for (int i = 0; i < indentLevel; i++) {
-            jsonBuilder.append(INDENT);
+    private static void spill(StringBuilder jsonBuilder, Writer sink) throws IOException {
+        if (sink != null && jsonBuilder.length() >= SPILL_SIZE) {
+            sink.append(jsonBuilder);
+            jsonBuilder.setLength(0);
         }
     }
 }
\ No newline at end of file
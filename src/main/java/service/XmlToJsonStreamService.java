@@ -0,0 +1,620 @@
+package service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service de conversion XML vers JSON en mode streaming (from scratch)
+ * Le XML est lu avec StAX, sans arbre DOM, et le résultat est identique à celui de
+ * {@link XmlToJsonService} : attributs "@attr" triés par nom, "#text" (dernier texte non vide)
+ * pour un contenu mixte, tableaux pour tous les enfants de même nom, null pour les éléments vides.
+ *
+ * Comme dans le DOM, les enfants de même nom sont regroupés à la place du premier d'entre eux,
+ * même s'ils ne sont pas contigus : la valeur d'un élément n'est complète qu'à sa fin.
+ * Chaque élément ouvert garde la valeur de chacun de ses groupes d'enfants dans un
+ * {@link SpillBuffer} ; ces tampons partagent un budget de mémoire et débordent dans un seul
+ * fichier temporaire. En remontant vers le parent, une grande valeur n'est pas recopiée :
+ * seuls ses morceaux changent de tampon. La mémoire reste bornée quelle que soit la taille
+ * du document, mais la valeur de la racine n'est écrite qu'à la fin de la lecture.
+ *
+ * Avec un {@link RecordSelector}, seuls les éléments sélectionnés sont convertis, dans un tableau JSON
+ * (ou une ligne par élément), et chacun est écrit dès sa fin : la sortie suit la lecture.
+ * Un sous-arbre où aucune correspondance n'est possible est sauté en comptant les balises :
+ * ni nom, ni texte, ni attribut n'y est lu, et rien n'y est alloué ou échappé.
+ * Le coût de l'extraction dépend alors surtout des données sélectionnées.
+ *
+ * Chaque appel crée sa propre pile de conversion : l'instance est thread-safe.
+ */
+public class XmlToJsonStreamService implements ConversionEngine {
+
+    // Caractères gardés en mémoire par une conversion avant débordement sur disque
+    private static final int MEMORY_BUDGET = 1 << 21;
+
+    // CDATA à part, comme le DOM ; sans DTD ni entités externes
+    private static final XMLInputFactory INPUT_FACTORY = XmlFactories.inputFactory(false);
+
+    // Mise en forme du JSON produit
+    private final OutputFormat format;
+    // Éléments à extraire, ou null pour tout le document
+    private final RecordSelector selector;
+
+    public XmlToJsonStreamService() {
+        this(OutputFormat.PRETTY);
+    }
+
+    public XmlToJsonStreamService(OutputFormat format) {
+        this(format, null);
+    }
+
+    /**
+     * @param selector Éléments à extraire (tableau JSON des éléments sélectionnés), ou null
+     */
+    public XmlToJsonStreamService(OutputFormat format, RecordSelector selector) {
+        this.format = format;
+        this.selector = selector;
+    }
+
+    @Override
+    public ConversionEngine withFormat(OutputFormat format) {
+        return new XmlToJsonStreamService(format, selector);
+    }
+
+    /**
+     * Convertit une chaîne XML en JSON
+     */
+    public String convert(String xmlContent) throws Exception {
+        StringWriter output = new StringWriter();
+        convert(new StringReader(xmlContent), output);
+        return output.toString();
+    }
+
+    /**
+     * Convertit un flux XML en JSON écrit directement dans la sortie
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convert(Reader xmlReader, Writer jsonWriter) throws Exception {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(xmlReader);
+        Writer out = new BufferedWriter(jsonWriter, 1 << 16);
+        Conversion conversion = new Conversion(reader, format);
+        conversion.selector = selector;
+        try {
+            conversion.run(out);
+            out.flush();
+        } finally {
+            conversion.release();
+            reader.close();
+        }
+    }
+
+    /**
+     * Convertit une suite d'éléments frères de même nom, enveloppés dans un élément quelconque,
+     * en valeurs JSON séparées par des virgules (éléments d'un tableau), sans l'enveloppe.
+     * Utilisé par la conversion parallèle : chaque morceau de la liste est traité ainsi.
+     * @param wrappedXml Fragment entouré d'une balise d'enveloppe
+     * @param recordName Nom attendu de chaque élément du fragment
+     * @param level Niveau d'indentation des valeurs
+     * @throws Exception Si le fragment contient autre chose que des éléments recordName
+     */
+    void convertRecords(Reader wrappedXml, Writer jsonWriter, String recordName, int level) throws Exception {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(wrappedXml);
+        Conversion conversion = new Conversion(reader, format);
+        conversion.recordName = recordName;
+        conversion.recordLevel = level;
+        try {
+            conversion.run(jsonWriter);
+            jsonWriter.flush();
+        } finally {
+            conversion.release();
+            reader.close();
+        }
+    }
+
+    /**
+     * Convertit chaque élément sélectionné en une ligne JSON compacte (NDJSON / JSON Lines)
+     * Seuls les enregistrements sont écrits ; le reste du document est lu puis ignoré.
+     * Un enregistrement contenu dans un autre fait partie de la ligne de celui-ci.
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convertLines(Reader xmlReader, Writer jsonWriter, RecordSelector selector) throws Exception {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(xmlReader);
+        Writer out = new BufferedWriter(jsonWriter, 1 << 16);
+        Conversion conversion = new Conversion(reader, OutputFormat.COMPACT);
+        conversion.selector = selector;
+        conversion.lines = true;
+        try {
+            conversion.run(out);
+            out.flush();
+        } finally {
+            conversion.release();
+            reader.close();
+        }
+    }
+
+
+    /**
+     * État d'une conversion : une pile d'éléments ouverts, réutilisée par profondeur
+     */
+    private static final class Conversion {
+
+        private final XMLStreamReader reader;
+        private final OutputFormat format;
+        private final SymbolTable symbols = SymbolTable.local();
+        // Mémoire et fichier de débordement communs aux groupes de tous les éléments ouverts
+        private final SpillBuffer.Store store;
+        private final List<Frame> frames = new ArrayList<>();
+        private int depth;
+
+        // Caractères contigus en cours de lecture : un nœud texte du DOM
+        private boolean inText;
+
+        // Tampon réutilisé pour trier les attributs
+        private int[] attributeOrder = new int[8];
+
+        // Mode "enregistrements" (convertRecords) : l'enveloppe n'est pas écrite
+        // et chacun de ses enfants devient un élément de tableau
+        String recordName;
+        int recordLevel;
+        private int recordCount;
+
+        // Mode "sélection" : la pile ne contient que l'élément sélectionné en cours,
+        // l'état du sélecteur des éléments englobants est suivi à part
+        RecordSelector selector;
+        private long[] outerStates = new long[16];
+        private int outerDepth;
+        private long selected;
+        // Une ligne par élément sélectionné (convertLines) plutôt qu'un tableau
+        boolean lines;
+
+        Conversion(XMLStreamReader reader, OutputFormat format) {
+            this.reader = reader;
+            this.format = format;
+            this.store = new SpillBuffer.Store(MEMORY_BUDGET, format.indentUnit());
+        }
+
+        void run(Writer out) throws Exception {
+            long elements = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                    if (depth > 0) {
+                        current().segment.append(reader.getTextCharacters(),
+                                reader.getTextStart(), reader.getTextLength());
+                        inText = true;
+                    }
+                    continue;
+                }
+                if (inText) {
+                    endText(current());
+                }
+
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (selector != null && depth == 0 && !select(out)) {
+                            break;
+                        }
+                        elements++;
+                        startElement(out);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement(out);
+                        break;
+                    case XMLStreamConstants.DTD:
+                        throw XmlFactories.doctypeRefused(reader);
+                    default:
+                        // Commentaires, CDATA, instructions de traitement : ignorés, comme dans XmlToJsonService
+                        break;
+                }
+            }
+            if (selector != null && !lines) {
+                if (selected == 0) {
+                    out.write("[");
+                } else {
+                    format.newline(out, 0);
+                }
+                out.write("]");
+            }
+            ConversionMetrics.addNodes(elements);
+        }
+
+        /**
+         * Hors de tout élément sélectionné : calcule l'état du sélecteur pour l'élément courant.
+         * Un élément sélectionné ouvre un élément du tableau (ou une ligne). Sinon, son état est
+         * empilé, ou son sous-arbre est sauté si aucun descendant ne peut être sélectionné.
+         * @return true si l'élément est à convertir
+         */
+        private boolean select(Writer out) throws Exception {
+            long parent = outerDepth == 0 ? selector.initialState() : outerStates[outerDepth - 1];
+            long state = selector.nextState(parent, reader.getLocalName(), reader);
+            if (selector.matches(state)) {
+                if (!lines) {
+                    out.write(selected == 0 ? "[" : ",");
+                    format.newline(out, 1);
+                }
+                selected++;
+                return true;
+            }
+            if (state == 0) {
+                skipSubtree();
+                return false;
+            }
+            if (outerDepth == outerStates.length) {
+                outerStates = Arrays.copyOf(outerStates, outerDepth * 2);
+            }
+            outerStates[outerDepth++] = state;
+            return false;
+        }
+
+        /**
+         * Avance jusqu'à la fin de l'élément courant sans rien lire de son contenu
+         */
+        private void skipSubtree() throws Exception {
+            int open = 1;
+            while (open > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    open++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    open--;
+                }
+            }
+        }
+
+        /**
+         * Supprime le fichier de débordement
+         */
+        void release() throws IOException {
+            store.close();
+        }
+
+        private Frame current() {
+            return frames.get(depth - 1);
+        }
+
+        private Frame push(Writer out, int level) {
+            if (depth == frames.size()) {
+                frames.add(new Frame());
+            }
+            Frame frame = frames.get(depth++);
+            frame.clear(out, level);
+            return frame;
+        }
+
+        private void startElement(Writer documentOut) throws IOException {
+            SymbolTable.Symbol name = symbols.lookup(reader.getLocalName());
+            Frame child;
+
+            if (selector != null && depth == 0) {
+                // Élément sélectionné (voir select)
+                child = push(documentOut, lines ? 0 : 1);
+            } else if (recordName != null && depth <= 1) {
+                child = startRecord(documentOut, name);
+            } else if (depth == 0) {
+                // Élément racine : { "racine": valeur }
+                documentOut.write("{");
+                format.newline(documentOut, 1);
+                writeKey(documentOut, name);
+                child = push(documentOut, 1);
+            } else {
+                Frame parent = current();
+                Group group = parent.group(name, store);
+                int level = parent.level + 1;
+                if (group.count > 0) {
+                    if (group.count == 1) {
+                        // Deuxième enfant de ce nom : le groupe devient un tableau, un niveau plus bas
+                        group.value.indent();
+                    }
+                    group.value.write(",");
+                    format.newline(group.value, parent.level + 2);
+                    level++;
+                }
+                group.count++;
+                child = push(group.value, level);
+            }
+
+            readAttributes(child);
+        }
+
+        /**
+         * Début de l'enveloppe ou d'un enregistrement en mode convertRecords
+         */
+        private Frame startRecord(Writer documentOut, SymbolTable.Symbol name) throws IOException {
+            if (depth == 0) {
+                return push(null, 0);
+            }
+            if (!name.name.equals(recordName)) {
+                throw new IOException("Élément inattendu dans la liste d'enregistrements : " + name.name);
+            }
+            if (recordCount++ > 0) {
+                documentOut.write(",");
+            }
+            format.newline(documentOut, recordLevel);
+            return push(documentOut, recordLevel);
+        }
+
+        private void endElement(Writer documentOut) throws IOException {
+            if (selector != null && depth == 0) {
+                // Fin d'un élément englobant, hors sélection
+                outerDepth--;
+                return;
+            }
+            if (recordName != null && depth == 1) {
+                // Fin de l'enveloppe : rien à écrire
+                depth--;
+                return;
+            }
+
+            writeValue(current());
+
+            depth--;
+            if (depth == 0 && selector != null) {
+                if (lines) {
+                    // Fin de l'enregistrement : fin de ligne
+                    documentOut.write('\n');
+                }
+            } else if (depth == 0) {
+                format.newline(documentOut, 0);
+                documentOut.write("}");
+            }
+        }
+
+        /**
+         * Écrit la valeur complète d'un élément dans sa destination, selon les règles de
+         * XmlToJsonService.convertElement : attributs, "#text" si l'élément a aussi des enfants,
+         * puis chaque groupe d'enfants (tableau s'il en compte plusieurs)
+         */
+        private void writeValue(Frame frame) throws IOException {
+            Writer out = frame.out;
+            if (frame.attributeCount == 0 && frame.groupCount == 0) {
+                // Élément simple (texte) ou vide
+                if (frame.textLength > 0) {
+                    writeString(out, frame.text, frame.textLength);
+                } else {
+                    out.write("null");
+                }
+                return;
+            }
+
+            out.write("{");
+            boolean first = true;
+            for (int i = 0; i < frame.attributeCount; i++) {
+                if (!first) {
+                    out.write(",");
+                }
+                first = false;
+                format.newline(out, frame.level + 1);
+                out.write(frame.attributeNames[i].jsonAttributeKey());
+                out.write(format.nameSeparator());
+                out.write("\"");
+                Escaper.escapeJson(frame.attributeValues[i], out);
+                out.write("\"");
+            }
+
+            if (frame.textLength > 0 && frame.groupCount > 0) {
+                if (!first) {
+                    out.write(",");
+                }
+                first = false;
+                format.newline(out, frame.level + 1);
+                out.write("\"#text\"");
+                out.write(format.nameSeparator());
+                writeString(out, frame.text, frame.textLength);
+            }
+
+            for (int i = 0; i < frame.groupCount; i++) {
+                Group group = frame.groups.get(i);
+                if (!first) {
+                    out.write(",");
+                }
+                first = false;
+                format.newline(out, frame.level + 1);
+                writeKey(out, group.name);
+                if (group.count > 1) {
+                    out.write("[");
+                    format.newline(out, frame.level + 2);
+                    group.value.moveTo(out);
+                    format.newline(out, frame.level + 1);
+                    out.write("]");
+                } else {
+                    group.value.moveTo(out);
+                }
+            }
+
+            format.newline(out, frame.level);
+            out.write("}");
+        }
+
+        /**
+         * Garde les attributs de l'élément courant, triés par nom comme dans le DOM
+         */
+        private void readAttributes(Frame frame) {
+            int count = reader.getAttributeCount();
+            if (count == 0) {
+                return;
+            }
+            if (attributeOrder.length < count) {
+                attributeOrder = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                int j = i;
+                String name = reader.getAttributeLocalName(i);
+                while (j > 0 && reader.getAttributeLocalName(attributeOrder[j - 1]).compareTo(name) > 0) {
+                    attributeOrder[j] = attributeOrder[j - 1];
+                    j--;
+                }
+                attributeOrder[j] = i;
+            }
+
+            frame.ensureAttributes(count);
+            for (int i = 0; i < count; i++) {
+                int index = attributeOrder[i];
+                frame.attributeNames[i] = symbols.lookup(reader.getAttributeLocalName(index));
+                frame.attributeValues[i] = reader.getAttributeValue(index);
+            }
+            frame.attributeCount = count;
+        }
+
+        /**
+         * Fin d'un texte (nœud texte du DOM) : comme XmlToJsonService, on garde
+         * le dernier texte non vide, sans ses espaces de début et de fin
+         */
+        private void endText(Frame frame) throws IOException {
+            inText = false;
+            StringBuilder segment = frame.segment;
+            int start = 0;
+            int end = segment.length();
+            while (start < end && segment.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && segment.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                if (recordName != null && depth == 1) {
+                    throw new IOException("Texte inattendu dans la liste d'enregistrements");
+                }
+                frame.setText(segment, start, end);
+            }
+            segment.setLength(0);
+        }
+
+        private void writeKey(Writer out, SymbolTable.Symbol name) throws IOException {
+            out.write(name.jsonKey());
+            out.write(format.nameSeparator());
+        }
+
+        private static void writeString(Writer out, char[] text, int length) throws IOException {
+            out.write("\"");
+            Escaper.escapeJson(text, 0, length, out);
+            out.write("\"");
+        }
+    }
+
+    /**
+     * Élément ouvert dans la pile de conversion
+     */
+    private static final class Frame {
+
+        // Nombre de groupes au-delà duquel ils sont indexés par nom
+        private static final int INDEX_THRESHOLD = 8;
+
+        Writer out;            // Destination de la valeur de l'élément
+        int level;             // Niveau d'indentation de la valeur
+
+        // Texte en cours de lecture, puis dernier texte non vide
+        final StringBuilder segment = new StringBuilder();
+        char[] text = new char[64];
+        int textLength;
+
+        SymbolTable.Symbol[] attributeNames = new SymbolTable.Symbol[4];
+        String[] attributeValues = new String[4];
+        int attributeCount;
+
+        // Groupes d'enfants de même nom, dans l'ordre de première apparition (objets réutilisés)
+        final List<Group> groups = new ArrayList<>();
+        int groupCount;
+        private Map<String, Group> index;
+        private Group last;
+
+        void clear(Writer out, int level) {
+            this.out = out;
+            this.level = level;
+            segment.setLength(0);
+            textLength = 0;
+            attributeCount = 0;
+            groupCount = 0;
+            index = null;
+            last = null;
+        }
+
+        /**
+         * Remplace le texte retenu par segment[start, end)
+         */
+        void setText(StringBuilder segment, int start, int end) {
+            if (text.length < end - start) {
+                text = new char[Math.max(end - start, text.length * 2)];
+            }
+            segment.getChars(start, end, text, 0);
+            textLength = end - start;
+        }
+
+        void ensureAttributes(int count) {
+            if (attributeNames.length < count) {
+                attributeNames = new SymbolTable.Symbol[count];
+                attributeValues = new String[count];
+            }
+        }
+
+        /**
+         * Groupe des enfants de ce nom, créé à la première apparition
+         */
+        Group group(SymbolTable.Symbol name, SpillBuffer.Store store) {
+            Group group = last;
+            if (group != null && group.is(name)) {
+                return group;
+            }
+            group = index != null ? index.get(name.name) : find(name);
+            if (group == null) {
+                group = add(name, store);
+            }
+            last = group;
+            return group;
+        }
+
+        private Group find(SymbolTable.Symbol name) {
+            for (int i = 0; i < groupCount; i++) {
+                Group group = groups.get(i);
+                if (group.is(name)) {
+                    return group;
+                }
+            }
+            return null;
+        }
+
+        private Group add(SymbolTable.Symbol name, SpillBuffer.Store store) {
+            if (groupCount == groups.size()) {
+                groups.add(new Group(store));
+            }
+            Group group = groups.get(groupCount++);
+            group.name = name;
+            group.count = 0;
+            if (index != null) {
+                index.put(name.name, group);
+            } else if (groupCount > INDEX_THRESHOLD) {
+                index = new HashMap<>();
+                for (int i = 0; i < groupCount; i++) {
+                    index.put(groups.get(i).name.name, groups.get(i));
+                }
+            }
+            return group;
+        }
+    }
+
+    /**
+     * Enfants de même nom d'un élément ouvert : leur valeur, ou leur tableau sans crochets
+     */
+    private static final class Group {
+        SymbolTable.Symbol name;
+        int count;
+        final SpillBuffer value;
+
+        Group(SpillBuffer.Store store) {
+            value = new SpillBuffer(store);
+        }
+
+        boolean is(SymbolTable.Symbol other) {
+            return name == other || name.name.equals(other.name);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Conversion XML vers NDJSON (JSON Lines) : un enregistrement par ligne
+ *
+ * Pour les flux d'enregistrements volumineux : au lieu d'un objet JSON contenant un tableau
+ * d'un million d'éléments, chaque élément sélectionné devient une ligne JSON compacte,
+ * que les outils de chargement (Spark, indexation en masse) découpent et chargent en parallèle.
+ * La valeur de chaque ligne est celle que {@link XmlToJsonService} donne à l'élément
+ * ("@attr", "#text", tous les frères de même nom regroupés en tableau) : chaque
+ * enregistrement est gardé en tampon jusqu'à sa balise fermante.
+ *
+ * Sens XML → JSON uniquement ; la sortie est toujours compacte.
+ */
+public class XmlToNdjsonService implements ConversionEngine {
+
+    private final XmlToJsonStreamService stream = new XmlToJsonStreamService(OutputFormat.COMPACT);
+    private final RecordSelector selector;
+
+    /**
+     * @param selector Éléments à écrire, un par ligne (voir {@link RecordSelector})
+     */
+    public XmlToNdjsonService(RecordSelector selector) {
+        this.selector = selector;
+    }
+
+    public String convert(String xmlContent) throws Exception {
+        StringWriter output = new StringWriter();
+        convert(new StringReader(xmlContent), output);
+        return output.toString();
+    }
+
+    public void convert(Reader xmlReader, Writer jsonWriter) throws Exception {
+        stream.convertLines(xmlReader, jsonWriter, selector);
+    }
+}
@@ -1,7 +1,12 @@
 package service.api;
 
+import service.ConversionEngine;
+import service.ConversionMetrics;
+import service.XmlFactories;
+import util.ObjectPool;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import javax.xml.parsers.DocumentBuilder;
@@ -11,24 +16,64 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.Map;
 
-public class JsonToXmlApiService {
+/**
+ * Conversion JSON → XML basée sur des API (Jackson + DOM + Transformer)
+ *
+ * Le lecteur Jackson et les fabriques JAXP sont partagés ; DocumentBuilder et Transformer,
+ * non thread-safe, sont pris dans un petit réservoir le temps d'une conversion.
+ * Une instance peut donc servir plusieurs threads, virtuels compris.
+ */
+public class JsonToXmlApiService implements ConversionEngine {
     
-    private final ObjectMapper jsonMapper;
+    // ObjectReader est immuable et thread-safe
+    private static final ObjectReader TREE_READER = new ObjectMapper().reader();
     
-    public JsonToXmlApiService() {
-        this.jsonMapper = new ObjectMapper();
-    }
+    private static final DocumentBuilderFactory BUILDER_FACTORY = XmlFactories.documentBuilderFactory();
+    private static final TransformerFactory TRANSFORMER_FACTORY = XmlFactories.transformerFactory();
+    
+    // DocumentBuilder et Transformer ne sont pas thread-safe : un par conversion en cours
+    private static final ObjectPool<DocumentBuilder> BUILDERS = new ObjectPool<>(BUILDER_FACTORY::newDocumentBuilder);
+    
+    // Propriétés de sortie fixées à la création et jamais modifiées : réutilisable sans reset()
+    // après un transform() réussi ; après un échec, le Transformer est abandonné
+    private static final ObjectPool<Transformer> TRANSFORMERS = new ObjectPool<>(() -> {
+        Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+        return transformer;
+    });
     
     public String convert(String jsonContent) throws Exception {
-        JsonNode rootNode = jsonMapper.readTree(jsonContent);
+        StringWriter writer = new StringWriter();
+        ConversionMetrics.enter(ConversionMetrics.Phase.PARSE);
+        transform(TREE_READER.readTree(jsonContent), writer);
+        return writer.toString();
+    }
+    
+    /**
+     * Variante sur flux : Jackson lit le JSON par blocs depuis le reader
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convert(Reader jsonReader, Writer xmlWriter) throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.PARSE);
+        transform(TREE_READER.readTree(jsonReader), xmlWriter);
+        xmlWriter.flush();
+    }
+    
+    private void transform(JsonNode rootNode, Writer output) throws Exception {
+        ConversionMetrics.enter(ConversionMetrics.Phase.CONVERT);
         
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
+        DocumentBuilder builder = BUILDERS.acquire();
         Document doc = builder.newDocument();
+        BUILDERS.release(builder);
         
         // Déterminer élément racine
         String rootName = "root";
@@ -44,7 +89,13 @@ public class JsonToXmlApiService {
         
         processNode(doc, rootElement, dataNode);
         
-        return documentToString(doc);
+        // Sérialisation du DOM par le Transformer
+        ConversionMetrics.enter(ConversionMetrics.Phase.WRITE);
+        Transformer transformer = TRANSFORMERS.acquire();
+        // Rendu seulement après succès : un Transformer interrompu peut garder un état partiel,
+        // et reset() effacerait aussi les propriétés de sortie fixées à la création
+        transformer.transform(new DOMSource(doc), new StreamResult(output));
+        TRANSFORMERS.release(transformer);
     }
     
     private void processNode(Document doc, Element parent, JsonNode node) {
@@ -88,17 +139,4 @@ public class JsonToXmlApiService {
             parent.setTextContent(node.asText());
         }
     }
-    
-    private String documentToString(Document doc) throws Exception {
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer transformer = tf.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-        
-        StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(doc), new StreamResult(writer));
-        return writer.toString();
-    }
 }
\ No newline at end of file
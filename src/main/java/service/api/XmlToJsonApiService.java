@@ -1,98 +1,305 @@
 package service.api;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.w3c.dom.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
-
-public class XmlToJsonApiService {
-    
+import service.ConversionEngine;
+import service.ConversionMetrics;
+import service.XmlFactories;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversion XML → JSON basée sur des API (StAX + Jackson)
+ * Un seul passage : les événements StAX alimentent directement un JsonGenerator,
+ * sans arbre DOM ni arbre JsonNode intermédiaire.
+ *
+ * - attributs → "@attr"
+ * - texte → "#text" (seul, il devient la valeur de l'élément)
+ * - éléments de même nom → tableau, à la place du premier, même s'ils ne sont pas contigus
+ *
+ * Chaque élément ouvert garde la valeur de ses enfants en jetons, un tampon par nom,
+ * jusqu'à sa balise fermante.
+ *
+ * Les fabriques StAX et Jackson sont partagées ; une instance peut être utilisée par plusieurs threads.
+ */
+public class XmlToJsonApiService implements ConversionEngine {
+
+    private static final XMLInputFactory INPUT_FACTORY = XmlFactories.inputFactory(false);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Noms de champs déjà encodés par Jackson (guillemets, échappement, UTF-8), par thread
+    private static final int MAX_NAMES = 4096;
+    private static final ThreadLocal<Map<String, SerializedString>> ELEMENT_NAMES =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, SerializedString>> ATTRIBUTE_NAMES =
+            ThreadLocal.withInitial(HashMap::new);
+
     public String convert(String xmlContent) throws Exception {
-        // 1️⃣ Parse XML → arbre (API)
-        XmlMapper xmlMapper = new XmlMapper();
-        JsonNode rootNode = xmlMapper.readTree(xmlContent.getBytes());
-        
-        // 2️⃣ Structuration légère (attributs / texte)
-        JsonNode structuredNode = normalizeXmlNode(xmlContent);
-        
-        // 3️⃣ Génération JSON formaté
-        ObjectMapper jsonMapper = new ObjectMapper();
-        return jsonMapper
-                .writerWithDefaultPrettyPrinter()
-                .writeValueAsString(structuredNode);
+        StringWriter output = new StringWriter();
+        convert(new StringReader(xmlContent), output);
+        return output.toString();
     }
-    
+
+    /**
+     * Convertit un flux XML en JSON formaté écrit dans la sortie
+     * Le writer est vidé (flush) mais pas fermé
+     */
+    public void convert(Reader xmlReader, Writer jsonWriter) throws Exception {
+        transform(xmlReader, JSON_FACTORY.createGenerator(jsonWriter));
+    }
+
     /**
-     * Transforme la structure Jackson XML en JSON cohérent
-     * - attributs → "@attr"
-     * - texte → "#text"
+     * Variante octets : Jackson encode lui-même le JSON en UTF-8 dans ses tampons recyclés
+     * Le flux est vidé (flush) mais pas fermé
      */
-    private JsonNode normalizeXmlNode(String xmlContent) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(new ByteArrayInputStream(xmlContent.getBytes("UTF-8")));
-        
-        return convertElement(doc.getDocumentElement());
+    @Override
+    public void convert(Reader xmlReader, OutputStream jsonStream) throws Exception {
+        transform(xmlReader, JSON_FACTORY.createGenerator(jsonStream, JsonEncoding.UTF8));
     }
-    
-    private JsonNode convertElement(Element element) {
-        ObjectMapper mapper = new ObjectMapper();
-        ObjectNode result = mapper.createObjectNode();
-        
-        // Traiter les attributs avec @
-        NamedNodeMap attrs = element.getAttributes();
-        for (int i = 0; i < attrs.getLength(); i++) {
-            Node attr = attrs.item(i);
-            result.put("@" + attr.getNodeName(), attr.getNodeValue());
+
+    private void transform(Reader xmlReader, JsonGenerator generator) throws Exception {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(xmlReader);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.useDefaultPrettyPrinter();
+        try {
+            new Conversion(reader).run(generator);
+            generator.flush();
+        } finally {
+            generator.close();
+            reader.close();
         }
-        
-        // Traiter les enfants
-        NodeList children = element.getChildNodes();
-        StringBuilder textContent = new StringBuilder();
-        
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
-            
-            if (child.getNodeType() == Node.TEXT_NODE) {
-                String text = child.getNodeValue().trim();
-                if (!text.isEmpty()) {
-                    textContent.append(text);
-                }
-            } else if (child.getNodeType() == Node.ELEMENT_NODE) {
-                Element childElem = (Element) child;
-                String key = childElem.getNodeName();
-                JsonNode value = convertElement(childElem);
-                
-                if (result.has(key)) {
-                    JsonNode existing = result.get(key);
-                    if (existing.isArray()) {
-                        ((com.fasterxml.jackson.databind.node.ArrayNode) existing).add(value);
-                    } else {
-                        com.fasterxml.jackson.databind.node.ArrayNode array = mapper.createArrayNode();
-                        array.add(existing);
-                        array.add(value);
-                        result.set(key, array);
+    }
+
+    /**
+     * État d'une conversion : pile des éléments ouverts
+     */
+    private static final class Conversion {
+
+        private final XMLStreamReader reader;
+        private final List<Frame> frames = new ArrayList<>();
+        private final Map<String, SerializedString> elementNames = ELEMENT_NAMES.get();
+        private final Map<String, SerializedString> attributeNames = ATTRIBUTE_NAMES.get();
+        private int depth;
+        private int[] attributeOrder = new int[8];
+
+        Conversion(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        void run(JsonGenerator generator) throws Exception {
+            long elements = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                    // Caractères contigus : un nœud texte du DOM
+                    if (depth > 0) {
+                        frames.get(depth - 1).segment.append(reader.getTextCharacters(),
+                                reader.getTextStart(), reader.getTextLength());
                     }
+                    continue;
+                }
+                if (depth > 0) {
+                    // CDATA, commentaire, instruction ou balise : fin du nœud texte
+                    closeSegment(frames.get(depth - 1));
+                }
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        elements++;
+                        startElement(generator);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.DTD:
+                        throw XmlFactories.doctypeRefused(reader);
+                    default:
+                        break;
+                }
+            }
+            ConversionMetrics.addNodes(elements);
+        }
+
+        private void startElement(JsonGenerator documentGenerator) throws IOException {
+            String name = reader.getLocalName();
+            JsonGenerator target;
+
+            if (depth == 0) {
+                // La racine devient l'objet JSON de premier niveau
+                target = documentGenerator;
+            } else {
+                // Valeur ajoutée au groupe des frères de même nom, écrit à la fin du parent
+                Frame parent = frames.get(depth - 1);
+                Group group = parent.groups.get(name);
+                if (group == null) {
+                    group = new Group();
+                    parent.groups.put(name, group);
+                }
+                group.count++;
+                target = group.values;
+            }
+
+            if (depth == frames.size()) {
+                frames.add(new Frame());
+            }
+            Frame frame = frames.get(depth++);
+            frame.clear(target);
+
+            if (reader.getAttributeCount() > 0) {
+                open(frame);
+                writeAttributes(frame);
+            }
+        }
+
+        private void endElement() throws IOException {
+            Frame frame = frames.get(depth - 1);
+            JsonGenerator generator = frame.generator;
+
+            if (!frame.opened && frame.groups.isEmpty()) {
+                // Texte seul → chaîne, élément vide → objet vide
+                if (frame.text.length() > 0) {
+                    generator.writeString(frame.text.toString());
                 } else {
-                    result.set(key, value);
+                    generator.writeStartObject();
+                    generator.writeEndObject();
                 }
+            } else {
+                open(frame);
+                writeGroups(frame);
+                if (frame.text.length() > 0) {
+                    generator.writeStringField("#text", frame.text.toString());
+                }
+                generator.writeEndObject();
             }
+            depth--;
         }
-        
-        // Ajouter le texte si présent
-        if (textContent.length() > 0) {
-            result.put("#text", textContent.toString());
+
+        private void open(Frame frame) throws IOException {
+            if (!frame.opened) {
+                frame.generator.writeStartObject();
+                frame.opened = true;
+            }
         }
-        
-        // Si que du texte sans attributs, retourner juste le texte
-        if (result.size() == 1 && result.has("#text") && attrs.getLength() == 0) {
-            return mapper.getNodeFactory().textNode(result.get("#text").asText());
+
+        /**
+         * Écrit les enfants, groupés par nom dans l'ordre de première apparition
+         */
+        private void writeGroups(Frame frame) throws IOException {
+            JsonGenerator generator = frame.generator;
+            for (Map.Entry<String, Group> entry : frame.groups.entrySet()) {
+                Group group = entry.getValue();
+                generator.writeFieldName(fieldName(elementNames, entry.getKey(), ""));
+                if (group.count > 1) {
+                    generator.writeStartArray();
+                    group.values.serialize(generator);
+                    generator.writeEndArray();
+                } else {
+                    group.values.serialize(generator);
+                }
+            }
+        }
+
+        private void writeAttributes(Frame frame) throws IOException {
+            int count = reader.getAttributeCount();
+            if (attributeOrder.length < count) {
+                attributeOrder = new int[count];
+            }
+
+            // Même ordre que le DOM : attributs triés par nom
+            for (int i = 0; i < count; i++) {
+                int j = i;
+                String name = reader.getAttributeLocalName(i);
+                while (j > 0 && reader.getAttributeLocalName(attributeOrder[j - 1]).compareTo(name) > 0) {
+                    attributeOrder[j] = attributeOrder[j - 1];
+                    j--;
+                }
+                attributeOrder[j] = i;
+            }
+
+            for (int i = 0; i < count; i++) {
+                int index = attributeOrder[i];
+                frame.generator.writeFieldName(fieldName(attributeNames, reader.getAttributeLocalName(index), "@"));
+                frame.generator.writeString(reader.getAttributeValue(index));
+            }
         }
-        
-        return result;
+
+        /**
+         * Nom de champ pré-encodé : un nom déjà vu n'est ni recopié ni réencodé
+         */
+        private static SerializedString fieldName(Map<String, SerializedString> names, String name,
+                                                  String prefix) {
+            SerializedString field = names.get(name);
+            if (field == null) {
+                field = new SerializedString(prefix + name);
+                if (names.size() < MAX_NAMES) {
+                    names.put(name, field);
+                }
+            }
+            return field;
+        }
+
+        /**
+         * Ajoute le segment de texte courant (après trim) au texte de l'élément
+         */
+        private void closeSegment(Frame frame) {
+            StringBuilder segment = frame.segment;
+            if (segment.length() == 0) {
+                return;
+            }
+            int start = 0;
+            int end = segment.length();
+            while (start < end && segment.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && segment.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            frame.text.append(segment, start, end);
+            segment.setLength(0);
+        }
+    }
+
+    /**
+     * Élément ouvert dans la pile de conversion
+     */
+    private static final class Frame {
+        JsonGenerator generator;   // Destination de la valeur de l'élément
+        boolean opened;            // Objet JSON déjà ouvert
+        final StringBuilder segment = new StringBuilder();
+        final StringBuilder text = new StringBuilder();
+
+        // Enfants par nom, dans l'ordre de première apparition
+        final Map<String, Group> groups = new LinkedHashMap<>();
+
+        void clear(JsonGenerator target) {
+            generator = target;
+            opened = false;
+            segment.setLength(0);
+            text.setLength(0);
+            groups.clear();
+        }
+    }
+
+    /**
+     * Valeurs des enfants de même nom, en jetons, à la suite
+     */
+    private static final class Group {
+        final TokenBuffer values = new TokenBuffer((ObjectCodec) null, false);
+        int count;
     }
-}
\ No newline at end of file
+}
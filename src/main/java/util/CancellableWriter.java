@@ -0,0 +1,57 @@
+package util;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Writer qui permet d'interrompre l'écriture, pendant de {@link ProgressReader} pour la sortie
+ *
+ * Les moteurs arborescents ont fini de lire avant de parcourir leur arbre : c'est sur leurs
+ * écritures, déversées par blocs, que la demande d'annulation est vue pendant ces phases.
+ */
+public class CancellableWriter extends FilterWriter {
+
+    private final BooleanSupplier cancelled;
+
+    /**
+     * @param out       Flux destination
+     * @param cancelled Retourne true quand l'écriture doit s'arrêter
+     */
+    public CancellableWriter(Writer out, BooleanSupplier cancelled) {
+        super(out);
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        checkCancelled();
+        super.write(c);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        checkCancelled();
+        super.write(buffer, offset, length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        checkCancelled();
+        super.write(text, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkCancelled();
+        super.flush();
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled.getAsBoolean()) {
+            throw new InterruptedIOException("Conversion annulée");
+        }
+    }
+}
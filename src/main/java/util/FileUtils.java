@@ -7,14 +7,51 @@
 package util;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Classe utilitaire pour la lecture et l'écriture de fichiers
  */
 public class FileUtils {
     
+    // Taille à partir de laquelle la lecture passe par un mappage mémoire
+    private static final long MAP_THRESHOLD = 1 << 20;
+    
+    // Taille d'un segment mappé : un seul segment par flux ouvert, libéré avant le suivant
+    private static final long MAP_SEGMENT = 1 << 24;
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    // Libération immédiate d'un segment (Unsafe.invokeCleaner) ; sans elle, aucun fichier n'est mappé :
+    // un segment libéré par le GC seulement reste compté dans vm.max_map_count et verrouille le fichier sous Windows
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+    
     /**
      * Lit le contenu complet d'un fichier
      * @param file Fichier à lire
@@ -22,17 +59,101 @@ public class FileUtils {
      * @throws IOException Si une erreur de lecture survient
      */
     public static String readFile(File file) throws IOException {
-        if (file == null || !file.exists()) {
-            throw new FileNotFoundException("Le fichier n'existe pas");
+        checkReadable(file);
+        
+        long size = file.length();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Fichier trop volumineux pour être chargé en mémoire, utiliser openReader()");
         }
         
-        if (!file.canRead()) {
-            throw new IOException("Impossible de lire le fichier");
+        // Pour un contenu ASCII, Files.readString garde le tableau d'octets lu comme contenu de la String
+        try {
+            return Files.readString(file.toPath());
+        } catch (MalformedInputException e) {
+            // UTF-8 invalide : caractères de remplacement, comme openReader()
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Lit seulement le début d'un fichier (aperçu)
+     * @param file Fichier à lire
+     * @param maxChars Nombre maximal de caractères lus
+     * @return Début du contenu du fichier
+     * @throws IOException Si une erreur de lecture survient
+     */
+    public static String readPreview(File file, int maxChars) throws IOException {
+        char[] buffer = new char[maxChars];
+        int length = 0;
+        try (Reader reader = openReader(file)) {
+            int count;
+            while (length < maxChars && (count = reader.read(buffer, length, maxChars - length)) > 0) {
+                length += count;
+            }
+        }
+        return new String(buffer, 0, length);
+    }
+    
+    /**
+     * Ouvre le fichier en lecture sous forme de flux d'octets
+     * Au-delà de MAP_THRESHOLD, le fichier est mappé en mémoire segment par segment
+     * au lieu d'être copié dans des tampons du tas ; chaque segment est libéré dès qu'il est lu.
+     * @param file Fichier à lire
+     * @return Flux à fermer par l'appelant
+     * @throws IOException Si le fichier est absent ou illisible
+     */
+    public static InputStream openInputStream(File file) throws IOException {
+        checkReadable(file);
+        
+        if (file.length() < MAP_THRESHOLD || INVOKE_CLEANER == null) {
+            return new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        }
+        return new MappedInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+    
+    /**
+     * Ouvre le fichier en lecture sous forme de flux de caractères UTF-8
+     * Les convertisseurs consomment ce flux au fur et à mesure : le fichier
+     * n'est jamais chargé entièrement dans le tas.
+     * @param file Fichier à lire
+     * @return Reader à fermer par l'appelant
+     * @throws IOException Si le fichier est absent ou illisible
+     */
+    public static Reader openReader(File file) throws IOException {
+        return new InputStreamReader(openInputStream(file), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Ouvre un flux d'octets non tamponné vers le fichier
+     * Destiné aux convertisseurs qui encodent eux-mêmes dans leurs tampons
+     * (voir ConversionEngine.convert(Reader, OutputStream)).
+     * Les répertoires parents sont créés si nécessaire.
+     * @param file Fichier destination (écrasé s'il existe)
+     * @return OutputStream à fermer par l'appelant
+     * @throws IOException Si le fichier ne peut pas être créé
+     */
+    public static OutputStream openOutputStream(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Le fichier ne peut pas être null");
+        }
+        
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
         }
         
-        // Lire tout le contenu du fichier
-        byte[] encoded = Files.readAllBytes(file.toPath());
-        return new String(encoded, StandardCharsets.UTF_8);
+        return Files.newOutputStream(file.toPath());
+    }
+    
+    /**
+     * Ouvre un flux d'écriture UTF-8 tamponné vers le fichier
+     * Les caractères sont encodés dans le tampon d'octets réutilisé d'un {@link Utf8Sink}.
+     * @param file Fichier destination (écrasé s'il existe)
+     * @return Writer à fermer par l'appelant
+     * @throws IOException Si le fichier ne peut pas être créé
+     */
+    public static Writer openWriter(File file) throws IOException {
+        return new Utf8Sink(openOutputStream(file));
     }
     
     /**
@@ -50,19 +171,8 @@ public class FileUtils {
             content = "";
         }
         
-        // Créer les répertoires parents si nécessaire
-        File parent = file.getParentFile();
-        if (parent != null && !parent.exists()) {
-            parent.mkdirs();
-        }
-        
         // Écrire le contenu
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(
-                    new FileOutputStream(file), 
-                    StandardCharsets.UTF_8
-                )
-            )) {
+        try (Writer writer = openWriter(file)) {
             writer.write(content);
         }
     }
@@ -112,4 +222,100 @@ public class FileUtils {
         
         return "";
     }
-}
\ No newline at end of file
+
+    private static void checkReadable(File file) throws IOException {
+        if (file == null || !file.exists()) {
+            throw new FileNotFoundException("Le fichier n'existe pas");
+        }
+        
+        if (!file.canRead()) {
+            throw new IOException("Impossible de lire le fichier");
+        }
+    }
+    
+    /**
+     * Libère un segment mappé sans attendre le GC
+     * Le segment ne doit plus être lu ensuite : son adresse n'est plus valide.
+     */
+    private static void unmap(MappedByteBuffer segment) throws IOException {
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, segment);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Impossible de libérer le fichier mappé", e);
+        }
+    }
+    
+    /**
+     * Flux d'octets sur un fichier mappé en mémoire, un segment à la fois
+     */
+    private static final class MappedInputStream extends InputStream {
+        
+        private final FileChannel channel;
+        private final long size;
+        private long mappedUpTo;
+        private MappedByteBuffer segment;
+        
+        MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (!nextSegment()) {
+                return -1;
+            }
+            return segment.get() & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextSegment()) {
+                return -1;
+            }
+            int count = Math.min(length, segment.remaining());
+            segment.get(buffer, offset, count);
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return segment == null ? 0 : segment.remaining();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            release();
+            channel.close();
+        }
+        
+        /**
+         * Mappe le segment suivant si le courant est épuisé
+         * @return false en fin de fichier
+         */
+        private boolean nextSegment() throws IOException {
+            if (segment != null && segment.hasRemaining()) {
+                return true;
+            }
+            release();
+            if (mappedUpTo >= size) {
+                return false;
+            }
+            long length = Math.min(MAP_SEGMENT, size - mappedUpTo);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, mappedUpTo, length);
+            mappedUpTo += length;
+            return true;
+        }
+        
+        private void release() throws IOException {
+            if (segment != null) {
+                MappedByteBuffer released = segment;
+                segment = null;
+                unmap(released);
+            }
+        }
+    }
+}
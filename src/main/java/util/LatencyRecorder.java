@@ -0,0 +1,46 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Enregistre des durées (en nanosecondes) et calcule leurs percentiles
+ * Utilisable depuis plusieurs threads
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    /**
+     * Ajoute une mesure
+     * @param nanos Durée en nanosecondes
+     */
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Nombre de mesures enregistrées
+     */
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Percentile des mesures (méthode du rang le plus proche)
+     * @param percentile Valeur entre 0 et 100
+     * @return Durée en nanosecondes, ou 0 si aucune mesure
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+}
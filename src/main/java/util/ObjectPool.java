@@ -0,0 +1,70 @@
+package util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Petit réservoir borné d'objets coûteux à créer et non thread-safe (DocumentBuilder, Transformer)
+ *
+ * Les objets ne sont liés à aucun thread : ils sont réutilisés aussi par des threads virtuels,
+ * qui ne restent jamais bloqués sur un moniteur (création sous ReentrantLock). Un objet rendu
+ * alors que le réservoir est plein est abandonné ; acquire() ne bloque jamais.
+ */
+public final class ObjectPool<T> {
+
+    /**
+     * Création d'un objet, avec exceptions vérifiées (fabriques JAXP)
+     */
+    @FunctionalInterface
+    public interface Factory<T> {
+        T create() throws Exception;
+    }
+
+    private final ArrayBlockingQueue<T> idle;
+    private final Factory<T> factory;
+
+    // Les fabriques JAXP ne sont pas garanties thread-safe
+    private final ReentrantLock creation = new ReentrantLock();
+
+    /**
+     * @param capacity Nombre maximal d'objets gardés entre deux utilisations
+     * @param factory  Création d'un objet quand le réservoir est vide
+     */
+    public ObjectPool(int capacity, Factory<T> factory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité doit être positive");
+        }
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * Capacité par défaut : deux objets par processeur
+     */
+    public ObjectPool(Factory<T> factory) {
+        this(2 * Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    /**
+     * Objet libre, ou nouvel objet si le réservoir est vide
+     */
+    public T acquire() throws Exception {
+        T object = idle.poll();
+        if (object != null) {
+            return object;
+        }
+        creation.lock();
+        try {
+            return factory.create();
+        } finally {
+            creation.unlock();
+        }
+    }
+
+    /**
+     * Rend un objet remis dans son état initial par l'appelant
+     */
+    public void release(T object) {
+        idle.offer(object);
+    }
+}
@@ -0,0 +1,74 @@
+package util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Pendant de {@link ProgressReader} pour un flux d'octets : la progression se compte
+ * dans la même unité que File.length(), quel que soit l'encodage des caractères.
+ * Le décodeur placé au-dessus lit par blocs : la progression le précède d'au plus un bloc.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    private final LongConsumer progress;
+    private final BooleanSupplier cancelled;
+    private long consumed;
+
+    /**
+     * @param in        Flux source
+     * @param progress  Reçoit le nombre total d'octets lus
+     * @param cancelled Retourne true quand la lecture doit s'arrêter
+     */
+    public ProgressInputStream(InputStream in, LongConsumer progress, BooleanSupplier cancelled) {
+        super(in);
+        this.progress = progress;
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkCancelled();
+        int b = super.read();
+        if (b >= 0) {
+            progress.accept(++consumed);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        checkCancelled();
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+            consumed += count;
+            progress.accept(consumed);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkCancelled();
+        long skipped = super.skip(n);
+        consumed += skipped;
+        progress.accept(consumed);
+        return skipped;
+    }
+
+    /**
+     * Nombre d'octets lus jusqu'ici
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled.getAsBoolean()) {
+            throw new InterruptedIOException("Conversion annulée");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Reader qui compte les caractères consommés et permet d'interrompre la lecture
+ *
+ * Chaque lecture publie le total lu (progression) puis vérifie la demande d'annulation :
+ * le convertisseur qui consomme ce flux s'arrête alors sur une InterruptedIOException.
+ */
+public class ProgressReader extends FilterReader {
+
+    private final LongConsumer progress;
+    private final BooleanSupplier cancelled;
+    private long consumed;
+
+    /**
+     * @param in        Flux source
+     * @param progress  Reçoit le nombre total de caractères lus
+     * @param cancelled Retourne true quand la lecture doit s'arrêter
+     */
+    public ProgressReader(Reader in, LongConsumer progress, BooleanSupplier cancelled) {
+        super(in);
+        this.progress = progress;
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkCancelled();
+        int c = super.read();
+        if (c >= 0) {
+            progress.accept(++consumed);
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        checkCancelled();
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+            consumed += count;
+            progress.accept(consumed);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkCancelled();
+        long skipped = super.skip(n);
+        consumed += skipped;
+        progress.accept(consumed);
+        return skipped;
+    }
+
+    /**
+     * Nombre de caractères lus jusqu'ici
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled.getAsBoolean()) {
+            throw new InterruptedIOException("Conversion annulée");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writer qui encode en UTF-8 dans un tampon d'octets réutilisé, vidé vers un
+ * OutputStream ou un WritableByteChannel quand il est plein.
+ *
+ * Contrairement à String.getBytes, la sortie n'est jamais encodée en entier :
+ * la mémoire utilisée est celle du tampon, quelle que soit la taille produite.
+ * Les caractères ASCII sont copiés directement ; une paire de substitution
+ * coupée entre deux appels est reconstituée. Un substitut isolé devient '?'.
+ */
+public final class Utf8Sink extends Writer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    private int count;
+
+    // Copie des chaînes avant encodage
+    private final char[] chars = new char[BUFFER_SIZE / 4];
+
+    // Substitut haut en attente de son complément
+    private char highSurrogate;
+
+    public Utf8Sink(OutputStream stream) {
+        this.stream = stream;
+        this.channel = null;
+    }
+
+    public Utf8Sink(WritableByteChannel channel) {
+        this.stream = null;
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (count > BUFFER_SIZE - 4) {
+            drain();
+        }
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] source, int offset, int length) throws IOException {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (count > BUFFER_SIZE - 4) {
+                drain();
+            }
+            char c = source[i];
+            if (c < 0x80 && highSurrogate == 0) {
+                bytes[count++] = (byte) c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, chars.length);
+            text.getChars(offset, offset + n, chars, 0);
+            write(chars, 0, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Écrit les octets en attente puis vide la destination
+     * (un substitut haut en attente reste gardé jusqu'au caractère suivant)
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Termine la sortie sans fermer la destination : un substitut haut resté sans
+     * complément devient '?', puis tout est vidé. À appeler en fin de conversion.
+     */
+    public void finish() throws IOException {
+        if (highSurrogate != 0) {
+            // Place garantie : le tampon a été vidé avant l'écriture du substitut
+            highSurrogate = 0;
+            bytes[count++] = '?';
+        }
+        flush();
+    }
+
+    /**
+     * Termine la sortie (voir finish) et ferme la destination
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+        if (stream != null) {
+            stream.close();
+        } else {
+            channel.close();
+        }
+    }
+
+    private void encode(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            bytes[count++] = '?';
+        }
+
+        if (c < 0x80) {
+            bytes[count++] = (byte) c;
+        } else if (c < 0x800) {
+            bytes[count++] = (byte) (0xC0 | (c >> 6));
+            bytes[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            bytes[count++] = '?';
+        } else {
+            bytes[count++] = (byte) (0xE0 | (c >> 12));
+            bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void drain() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (stream != null) {
+            stream.write(bytes, 0, count);
+        } else {
+            byteBuffer.clear().limit(count);
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,40 @@
+package application;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Valeurs d'options : présence, nombre, bornes, et messages affichés avec l'usage
+ */
+class ArgumentsTest {
+
+    @Test
+    void valueFollowsItsOption() {
+        String[] args = {"--engine", "tape", "--select"};
+        assertEquals("tape", Arguments.value(args, 1));
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> Arguments.value(args, 3));
+        assertEquals("Valeur manquante après --select", missing.getMessage());
+    }
+
+    @Test
+    void numberIsParsedAndBounded() {
+        assertEquals(8, Arguments.number(new String[]{"--threads", "8"}, 1, 1, Integer.MAX_VALUE));
+        assertEquals(0, Arguments.number(new String[]{"--indent", "0"}, 1, 0, Integer.MAX_VALUE));
+
+        IllegalArgumentException text = assertThrows(IllegalArgumentException.class,
+                () -> Arguments.number(new String[]{"--threads", "huit"}, 1, 1, Integer.MAX_VALUE));
+        assertEquals("Nombre attendu après --threads : huit", text.getMessage());
+
+        IllegalArgumentException low = assertThrows(IllegalArgumentException.class,
+                () -> Arguments.number(new String[]{"--threads", "0"}, 1, 1, 64));
+        assertEquals("Valeur hors limites pour --threads : 0 (de 1 à 64)", low.getMessage());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Arguments.number(new String[]{"--port", "65536"}, 1, 0, 65535));
+        assertThrows(IllegalArgumentException.class,
+                () -> Arguments.number(new String[]{"--cache"}, 1, 1, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,130 @@
+package application;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.ConversionEngine.Direction;
+import service.ConversionEngines;
+import service.OutputFormat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ligne de commande du convertisseur par lots : options, fichiers produits, code de sortie
+ */
+class BatchConverterTest {
+
+    private static final String BOOKS = "<catalog><book id=\"1\"><price>10</price></book>"
+            + "<book id=\"2\"><price>12.50</price></book></catalog>";
+    private static final String NOTE = "<note><to>Alice</to><body>é€𝄞</body></note>";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void invalidArgumentsExitWithTwo() throws Exception {
+        Path input = Files.createDirectories(directory.resolve("in"));
+        String in = input.toString();
+        String out = directory.resolve("out").toString();
+        String[][] invalid = {
+                {},
+                {"--direction", "xml2json", "--input", in},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--verbose"},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--threads", "0"},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--threads", "deux"},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--indent", "-1"},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--indent"},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--engine", "inconnu"},
+                {"--direction", "xmltojson", "--input", in, "--output", out},
+                {"--direction", "json2xml", "--input", in, "--output", out, "--select", "book"},
+                {"--direction", "xml2json", "--input", in, "--output", out, "--select", "book", "--ndjson", "book"},
+                {"--direction", "xml2json", "--input", directory.resolve("absent").toString(), "--output", out},
+        };
+        for (String[] args : invalid) {
+            assertEquals(2, BatchConverter.execute(args), String.join(" ", args));
+        }
+        assertFalse(Files.exists(directory.resolve("out")));
+    }
+
+    @Test
+    void engineThreadsAndIndentAreApplied() throws Exception {
+        Path input = Files.createDirectories(directory.resolve("in/sub"));
+        Files.writeString(input.resolve("books.xml"), BOOKS);
+        Files.writeString(directory.resolve("in/note.XML"), NOTE);
+        Files.writeString(directory.resolve("in/ignored.json"), "{}");
+        Path output = directory.resolve("out");
+
+        for (String engine : new String[]{"stream", "tape", "scratch"}) {
+            assertEquals(0, BatchConverter.execute(new String[]{"--direction", "xml2json",
+                    "--input", directory.resolve("in").toString(), "--output", output.toString(),
+                    "--engine", engine, "--threads", "2", "--indent", "4"}));
+
+            // Arborescence conservée, seuls les fichiers de l'extension source sont convertis
+            OutputFormat format = OutputFormat.pretty(4);
+            assertEquals(ConversionEngines.get("scratch", Direction.XML_TO_JSON).withFormat(format).convert(BOOKS),
+                    Files.readString(output.resolve("sub/books.json")), engine);
+            assertEquals(ConversionEngines.get("scratch", Direction.XML_TO_JSON).withFormat(format).convert(NOTE),
+                    Files.readString(output.resolve("note.json")), engine);
+            assertFalse(Files.exists(output.resolve("ignored.xml")));
+        }
+
+        assertEquals(0, BatchConverter.execute(new String[]{"--direction", "xml2json",
+                "--input", directory.resolve("in").toString(), "--output", output.toString(), "--compact"}));
+        assertEquals(ConversionEngines.get("scratch", Direction.XML_TO_JSON).withFormat(OutputFormat.COMPACT)
+                .convert(NOTE), Files.readString(output.resolve("note.json")));
+    }
+
+    @Test
+    void selectWritesTheSelectedElements() throws Exception {
+        Path input = Files.createDirectories(directory.resolve("in"));
+        Files.writeString(input.resolve("books.xml"), BOOKS);
+        Path output = directory.resolve("out");
+
+        String path = "/catalog/book[@id='2']/price";
+        assertEquals(0, BatchConverter.execute(new String[]{"--direction", "xml2json",
+                "--input", input.toString(), "--output", output.toString(), "--select", path}));
+        assertEquals(ConversionEngines.select(path).withFormat(OutputFormat.PRETTY).convert(BOOKS),
+                Files.readString(output.resolve("books.json")));
+
+        assertEquals(0, BatchConverter.execute(new String[]{"--direction", "xml2json",
+                "--input", input.toString(), "--output", output.toString(), "--ndjson", "book"}));
+        assertEquals(ConversionEngines.ndjson("book").withFormat(OutputFormat.PRETTY).convert(BOOKS),
+                Files.readString(output.resolve("books.ndjson")));
+    }
+
+    @Test
+    void failedFileExitsWithOneAndLeavesNoPartialOutput() throws Exception {
+        Path input = Files.createDirectories(directory.resolve("in"));
+        Files.writeString(input.resolve("good.xml"), NOTE);
+        // Mal formé après un début valide : le moteur streaming a déjà écrit une partie du JSON
+        Files.writeString(input.resolve("bad.xml"), "<r><a>1</a><b>2</b>" + "<c>texte</c>".repeat(1000) + "</b>");
+        // Trop profond pour le moteur récursif : StackOverflowError compté comme un échec
+        Files.writeString(input.resolve("deep.xml"), "<a>".repeat(50_000) + "</a>".repeat(50_000));
+        Path output = directory.resolve("out");
+
+        for (String engine : new String[]{"stream", "scratch"}) {
+            assertEquals(1, BatchConverter.execute(new String[]{"--direction", "xml2json",
+                    "--input", input.toString(), "--output", output.toString(), "--engine", engine}), engine);
+            assertTrue(Files.exists(output.resolve("good.json")), engine);
+            assertFalse(Files.exists(output.resolve("bad.json")), engine);
+            assertFalse(Files.exists(output.resolve("deep.json")), engine);
+        }
+    }
+
+    @Test
+    void jsonToXmlDirection() throws Exception {
+        Path input = Files.createDirectories(directory.resolve("in"));
+        String json = "{\"r\":{\"@k\":\"v\",\"n\":[1,2.50,-0],\"t\":\"é\"}}";
+        Files.writeString(input.resolve("doc.json"), json);
+        Path output = directory.resolve("out");
+
+        assertEquals(0, BatchConverter.execute(new String[]{"--direction", "json2xml",
+                "--input", input.toString(), "--output", output.toString(), "--engine", "parallel"}));
+        assertEquals(ConversionEngines.get("scratch", Direction.JSON_TO_XML).convert(json),
+                Files.readString(output.resolve("doc.xml")));
+    }
+}
@@ -0,0 +1,90 @@
+package application;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import service.OutputFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serveur HTTP : une erreur de conversion, même un StackOverflowError, donne une réponse 400
+ * et est comptée dans /stats
+ */
+class ConversionServerTest {
+
+    private static ConversionServer server;
+
+    @BeforeAll
+    static void start() throws Exception {
+        server = new ConversionServer(0, "stream", OutputFormat.PRETTY, null, 4);
+        server.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void validDocumentIsConverted() throws Exception {
+        HttpURLConnection connection = post("/json2xml?compact", "{\"a\":1}");
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(read(connection.getInputStream()).contains("<a>1</a>"));
+    }
+
+    @Test
+    void deeplyNestedBodyIsRejected() throws Exception {
+        String body = "{\"a\":" + "[".repeat(100_000) + "]".repeat(100_000) + "}";
+        String[] paths = {"/json2xml", "/json2xml?engine=scratch", "/json2xml?engine=api"};
+
+        long failuresBefore = failures();
+        for (String path : paths) {
+            HttpURLConnection connection = post(path, body);
+            assertEquals(400, connection.getResponseCode(), path);
+            connection.disconnect();
+        }
+        assertEquals(failuresBefore + paths.length, failures());
+    }
+
+    private static HttpURLConnection post(String path, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server.address() + path)
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        // Un échange jamais refermé fait échouer le test au lieu de le bloquer
+        connection.setReadTimeout(30_000);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static long failures() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server.address() + "/stats")
+                .openConnection();
+        String json = read(connection.getInputStream());
+        int start = json.indexOf("\"failures\":") + "\"failures\":".length();
+        int end = json.indexOf(',', start);
+        return Long.parseLong(json.substring(start, end));
+    }
+
+    private static String read(InputStream in) throws Exception {
+        if (in == null) {
+            return "";
+        }
+        try (in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            in.transferTo(bytes);
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package application;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine;
+import service.ConversionEngine.Direction;
+import service.ConversionEngines;
+import service.OutputFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Entités externes (XXE) : aucun moteur ne doit lire le fichier désigné par le DOCTYPE,
+ * ni en conversion directe ni à travers le serveur HTTP
+ */
+class XxeProtectionTest {
+
+    private static final String SECRET = "contenu-secret-xxe";
+
+    private static Path secretFile;
+    private static String payload;
+    private static ConversionServer server;
+
+    @BeforeAll
+    static void start() throws Exception {
+        secretFile = Files.createTempFile("xxe_secret", ".txt");
+        Files.write(secretFile, SECRET.getBytes(StandardCharsets.UTF_8));
+        payload = "<!DOCTYPE r [<!ENTITY x SYSTEM \"" + secretFile.toUri() + "\">]><r><a>&x;</a></r>";
+        server = new ConversionServer(0, "stream", OutputFormat.PRETTY, null, 4);
+        server.start();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        server.stop(0);
+        Files.deleteIfExists(secretFile);
+    }
+
+    @Test
+    void everyEngineRefusesDoctype() {
+        List<ConversionEngine> engines = new ArrayList<>();
+        for (String id : ConversionEngines.ids()) {
+            engines.add(ConversionEngines.get(id, Direction.XML_TO_JSON));
+        }
+        engines.add(ConversionEngines.ndjson("a"));
+        engines.add(ConversionEngines.select("a"));
+        engines.add(ConversionEngines.select("/r/a"));
+
+        for (ConversionEngine engine : engines) {
+            Exception error = assertThrows(Exception.class, () -> engine.convert(payload), engine.toString());
+            assertFalse(String.valueOf(error.getMessage()).contains(SECRET), engine.toString());
+        }
+    }
+
+    @Test
+    void serverRefusesDoctype() throws Exception {
+        List<String> paths = new ArrayList<>();
+        for (String id : ConversionEngines.ids()) {
+            paths.add("/xml2json?engine=" + id);
+        }
+        paths.add("/xml2ndjson?record=a");
+        paths.add("/xml2json?select=a");
+
+        for (String path : paths) {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://" + server.address() + path)
+                    .openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(payload.getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(400, connection.getResponseCode(), path);
+            assertFalse(read(connection.getErrorStream()).contains(SECRET), path);
+        }
+    }
+
+    @Test
+    void documentWithoutDoctypeIsStillConverted() throws Exception {
+        for (String id : ConversionEngines.ids()) {
+            String json = ConversionEngines.get(id, Direction.XML_TO_JSON).convert("<r><a>1</a></r>");
+            assertFalse(json.isEmpty(), id);
+        }
+    }
+
+    private static String read(InputStream in) throws Exception {
+        if (in == null) {
+            return "";
+        }
+        try (in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            in.transferTo(bytes);
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine.Direction;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Auto ne doit choisir qu'entre des moteurs de sortie identique : même résultat, ou même refus
+ */
+class AutoConversionEngineTest {
+
+    @Test
+    void treeAndStreamingAgreeOnXml() throws Exception {
+        AutoConversionEngine auto = new AutoConversionEngine(Direction.XML_TO_JSON,
+                new XmlToJsonService(), new XmlToJsonStreamService());
+        assertSameChoice(auto, "<r><b>1</b><c>2</c><b>3</b></r>");
+        assertSameChoice(auto, "<r k=\"v\">t<b id=\"4\">y</b><!--c--><b/>u</r>");
+        assertSameChoice(auto, "<r><a><b>1</b></a>");
+    }
+
+    @Test
+    void treeAndStreamingAgreeOnJson() throws Exception {
+        AutoConversionEngine auto = new AutoConversionEngine(Direction.JSON_TO_XML,
+                new JsonToXmlService(), new JsonToXmlStreamService());
+        assertSameChoice(auto, "{\"r\":{\"x\":1,\"@k\":\"v\"}}");
+        assertSameChoice(auto, "{\"r\":{\"a\":1,\"b\":2,\"a\":3}}");
+        assertSameChoice(auto, "{\"r\":[1,2,]}");
+        assertSameChoice(auto, "{\"r\":{\"n\":01}}");
+    }
+
+    @Test
+    void deepXmlUnderLimitUsesTree() {
+        ConversionEngine tree = new XmlToJsonService();
+        ConversionEngine streaming = new XmlToJsonStreamService();
+        AutoConversionEngine xml = new AutoConversionEngine(Direction.XML_TO_JSON, tree, streaming);
+        assertSame(tree, xml.select(4 << 20, AutoConversionEngine.DEEP_NESTING));
+        assertSame(streaming, xml.select(4 << 20, AutoConversionEngine.DEEP_NESTING - 1));
+        assertSame(streaming, xml.select(AutoConversionEngine.DEEP_SIZE_LIMIT, AutoConversionEngine.DEEP_NESTING));
+        assertSame(streaming, xml.select(-1, AutoConversionEngine.DEEP_NESTING));
+
+        // En JSON → XML, la profondeur ne change pas le choix
+        AutoConversionEngine json = new AutoConversionEngine(Direction.JSON_TO_XML, tree, streaming);
+        assertSame(streaming, json.select(4 << 20, 100));
+    }
+
+    @Test
+    void deepXmlStreamIsReadUpToLimit() throws Exception {
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < AutoConversionEngine.DEEP_NESTING; i++) {
+            xml.append("<l").append(i).append('>');
+        }
+        while (xml.length() < AutoConversionEngine.SIZE_THRESHOLD + 1000) {
+            xml.append("<v>valeur</v>");
+        }
+        for (int i = AutoConversionEngine.DEEP_NESTING - 1; i >= 0; i--) {
+            xml.append("</l").append(i).append('>');
+        }
+        AutoConversionEngine auto = new AutoConversionEngine(Direction.XML_TO_JSON,
+                new XmlToJsonService(), new XmlToJsonStreamService());
+        StringWriter output = new StringWriter();
+        auto.convert(new StringReader(xml.toString()), output);
+        assertEquals(new XmlToJsonService().convert(xml.toString()), output.toString());
+    }
+
+    @Test
+    void veryDeepXmlGoesToStreamingWhateverItsSize() throws Exception {
+        ConversionEngine streaming = new XmlToJsonStreamService();
+        AutoConversionEngine auto = new AutoConversionEngine(Direction.XML_TO_JSON, new XmlToJsonService(), streaming);
+        assertSame(streaming, auto.select(100, AutoConversionEngine.MAX_TREE_NESTING));
+
+        // Début peu profond, plus long que la sonde : toute la profondeur doit être mesurée
+        String deep = deepAfterPrefix(600);
+        String expected = streaming.convert(deep);
+        assertEquals(expected, auto.convert(deep));
+        StringWriter output = new StringWriter();
+        auto.convert(new StringReader(deep), output);
+        assertEquals(expected, output.toString());
+
+        // Trop profond pour tout moteur : refus par le streaming, pas de StackOverflowError du DOM
+        String tooDeep = deepAfterPrefix(20_000);
+        assertThrows(Exception.class, () -> auto.convert(tooDeep));
+        assertThrows(Exception.class, () -> auto.convert(new StringReader(tooDeep), new StringWriter()));
+    }
+
+    @Test
+    void xmlTheTreeAcceptsIsNotRefusedByStreaming() throws Exception {
+        // Au-delà de la limite par défaut de Woodstox (1000), en deçà de ce que le DOM accepte
+        ConversionEngine tree = new XmlToJsonService();
+        AutoConversionEngine auto = new AutoConversionEngine(Direction.XML_TO_JSON, tree, new XmlToJsonStreamService());
+        for (int levels : new int[]{1000, 1500, 2000}) {
+            String deep = "<a>".repeat(levels) + "x" + "</a>".repeat(levels);
+            String expected = tree.convert(deep);
+            assertEquals(expected, auto.convert(deep), levels + " niveaux");
+            StringWriter output = new StringWriter();
+            auto.convert(new StringReader(deep), output);
+            assertEquals(expected, output.toString(), levels + " niveaux");
+        }
+    }
+
+    private static String deepAfterPrefix(int levels) {
+        StringBuilder xml = new StringBuilder("<r>");
+        while (xml.length() < 100_000) {
+            xml.append("<v>valeur</v>");
+        }
+        return xml.append("<a>".repeat(levels)).append('x').append("</a>".repeat(levels)).append("</r>").toString();
+    }
+
+    private static void assertSameChoice(AutoConversionEngine auto, String input) {
+        assertEquals(result(auto.select(0, 0), input), result(auto.select(-1, 0), input), input);
+    }
+
+    // Sortie, ou "erreur" si la conversion est refusée
+    private static String result(ConversionEngine engine, String input) {
+        try {
+            return engine.convert(input);
+        } catch (Exception e) {
+            return "erreur";
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Moteur avec cache : une entrée déjà convertie par le même moteur, dans la même mise en forme,
+ * n'est pas reconvertie
+ */
+class CachingConversionEngineTest {
+
+    @Test
+    void repeatedInputIsConvertedOnce() throws Exception {
+        CountingEngine engine = new CountingEngine("e", OutputFormat.PRETTY);
+        CachingConversionEngine caching = new CachingConversionEngine(engine, new ConversionCache(1 << 20), "e");
+
+        assertEquals("e/pretty(2):abc", caching.convert("abc"));
+        assertEquals("e/pretty(2):abc", caching.convert("abc"));
+        assertEquals("e/pretty(2):abc", convert(caching, "abc"));
+        assertEquals(1, engine.calls.get());
+    }
+
+    @Test
+    void formatAndEngineArePartOfTheKey() throws Exception {
+        ConversionCache cache = new ConversionCache(1 << 20);
+        CountingEngine first = new CountingEngine("a", OutputFormat.PRETTY);
+        CountingEngine second = new CountingEngine("b", OutputFormat.PRETTY);
+        ConversionEngine a = new CachingConversionEngine(first, cache, "a:XML_TO_JSON");
+        ConversionEngine b = new CachingConversionEngine(second, cache, "b:XML_TO_JSON");
+
+        assertEquals("a/pretty(2):x", a.convert("x"));
+        assertEquals("b/pretty(2):x", b.convert("x"));
+        assertEquals("a/compact:x", a.withFormat(OutputFormat.COMPACT).convert("x"));
+        assertEquals("a/pretty(4):x", a.withFormat(OutputFormat.pretty(4)).convert("x"));
+        assertEquals("a/compact:x", a.withFormat(OutputFormat.COMPACT).convert("x"));
+        assertEquals(4, cache.stats().entries);
+        assertEquals(1, cache.stats().hits);
+    }
+
+    @Test
+    void largeStreamBypassesCache() throws Exception {
+        // Capacité de 4 Ko : au plus 512 caractères par entrée
+        ConversionCache cache = new ConversionCache(4096);
+        CountingEngine engine = new CountingEngine("e", OutputFormat.PRETTY);
+        CachingConversionEngine caching = new CachingConversionEngine(engine, cache, "e");
+
+        String large = "z".repeat(1000);
+        assertEquals("e/pretty(2):" + large, convert(caching, large));
+        assertEquals("e/pretty(2):" + large, convert(caching, large));
+        assertEquals(2, engine.streamed.get());
+        assertEquals(0, cache.stats().entries);
+    }
+
+    private static String convert(ConversionEngine engine, String input) throws Exception {
+        StringWriter output = new StringWriter();
+        engine.convert(new StringReader(input), output);
+        return output.toString();
+    }
+
+    /**
+     * Moteur factice : la sortie indique le moteur et la mise en forme, chaque conversion est comptée
+     */
+    private static final class CountingEngine implements ConversionEngine {
+        final String name;
+        final OutputFormat format;
+        final AtomicInteger calls;
+        final AtomicInteger streamed;
+
+        CountingEngine(String name, OutputFormat format) {
+            this(name, format, new AtomicInteger(), new AtomicInteger());
+        }
+
+        private CountingEngine(String name, OutputFormat format, AtomicInteger calls, AtomicInteger streamed) {
+            this.name = name;
+            this.format = format;
+            this.calls = calls;
+            this.streamed = streamed;
+        }
+
+        @Override
+        public ConversionEngine withFormat(OutputFormat format) {
+            return new CountingEngine(name, format, calls, streamed);
+        }
+
+        @Override
+        public String convert(String content) {
+            calls.incrementAndGet();
+            return name + "/" + format + ":" + content;
+        }
+
+        @Override
+        public void convert(Reader input, Writer output) throws Exception {
+            streamed.incrementAndGet();
+            StringWriter content = new StringWriter();
+            input.transferTo(content);
+            output.write(name + "/" + format + ":" + content);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Éviction LRU bornée en octets, espaces de noms et accès concurrents
+ */
+class ConversionCacheTest {
+
+    // Entrée et sortie de 100 caractères : 128 + 2 × 200 octets
+    private static final long ENTRY = 528;
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedBeyondCapacity() {
+        ConversionCache cache = new ConversionCache(4 * ENTRY + 100);
+        for (char c = 'a'; c <= 'd'; c++) {
+            cache.put("ns", text(c), text(Character.toUpperCase(c)));
+        }
+        assertEquals(4 * ENTRY, cache.stats().bytes);
+
+        // "a" redevient la plus récente : "b" part à la place
+        assertEquals(text('A'), cache.get("ns", text('a')));
+        cache.put("ns", text('e'), text('E'));
+
+        assertNull(cache.get("ns", text('b')));
+        assertEquals(text('A'), cache.get("ns", text('a')));
+        assertEquals(text('C'), cache.get("ns", text('c')));
+        assertEquals(text('E'), cache.get("ns", text('e')));
+        ConversionCache.Stats stats = cache.stats();
+        assertEquals(1, stats.evictions);
+        assertEquals(4, stats.entries);
+        assertEquals(4 * ENTRY, stats.bytes);
+    }
+
+    @Test
+    void largeEntryEvictsSeveralSmallOnes() {
+        ConversionCache cache = new ConversionCache(16 * ENTRY);
+        for (char c = 'a'; c < 'a' + 15; c++) {
+            cache.put("ns", text(c), text(c));
+        }
+        // 128 + 2 × 800 octets : trois petites entrées doivent partir
+        cache.put("ns", "x".repeat(400), "y".repeat(400));
+        ConversionCache.Stats stats = cache.stats();
+        assertEquals(3, stats.evictions);
+        assertTrue(stats.bytes <= stats.maxBytes);
+        assertNull(cache.get("ns", text('a')));
+        assertNull(cache.get("ns", text('c')));
+        assertEquals(text('d'), cache.get("ns", text('d')));
+    }
+
+    @Test
+    void entryOverAQuarterOfCapacityIsNotCached() {
+        ConversionCache cache = new ConversionCache(4 * ENTRY - 1);
+        cache.put("ns", text('a'), text('A'));
+        assertNull(cache.get("ns", text('a')));
+        assertEquals(0, cache.stats().bytes);
+    }
+
+    @Test
+    void replacedEntryIsCountedOnce() {
+        ConversionCache cache = new ConversionCache(10 * ENTRY);
+        cache.put("ns", text('a'), text('A'));
+        cache.put("ns", text('a'), text('B'));
+        assertEquals(text('B'), cache.get("ns", text('a')));
+        assertEquals(1, cache.stats().entries);
+        assertEquals(ENTRY, cache.stats().bytes);
+    }
+
+    @Test
+    void namespacesAreSeparate() {
+        ConversionCache cache = new ConversionCache(10 * ENTRY);
+        cache.put("stream:XML_TO_JSON", text('a'), text('J'));
+        cache.put("stream:XML_TO_JSON/compact", text('a'), text('C'));
+
+        assertEquals(text('J'), cache.get("stream:XML_TO_JSON", text('a')));
+        assertEquals(text('C'), cache.get("stream:XML_TO_JSON/compact", text('a')));
+        assertNull(cache.get("scratch:XML_TO_JSON", text('a')));
+
+        ConversionCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(2, stats.entries);
+    }
+
+    @Test
+    void concurrentAccessKeepsCountersConsistent() throws Exception {
+        ConversionCache cache = new ConversionCache(20 * ENTRY);
+        int threads = 8;
+        int rounds = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        String input = key((seed * 7 + i) % 50);
+                        String output = cache.get("ns", input);
+                        if (output == null) {
+                            cache.put("ns", input, input.toUpperCase());
+                        } else {
+                            // Jamais le résultat d'une autre entrée
+                            assertEquals(input.toUpperCase(), output);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        ConversionCache.Stats stats = cache.stats();
+        assertEquals((long) threads * rounds, stats.hits + stats.misses);
+        assertTrue(stats.bytes <= stats.maxBytes);
+        assertEquals(stats.entries * ENTRY, stats.bytes);
+    }
+
+    // 100 caractères
+    private static String text(char c) {
+        return String.valueOf(c).repeat(100);
+    }
+
+    private static String key(int n) {
+        return String.format("entree-%03d", n).repeat(10);
+    }
+}
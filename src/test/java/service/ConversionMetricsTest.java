@@ -0,0 +1,202 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine.Direction;
+import service.ConversionMetrics.Phase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Phases, compteurs et latences relevés par MeteredConversionEngine, et leur exposition JMX
+ */
+class ConversionMetricsTest {
+
+    private static final String INPUT = "<r><a>1</a></r>";
+    private static final String OUTPUT = "{\"r\":{\"a\":\"1\"}}";
+
+    @Test
+    void phasesAndCountersAreRecorded() throws Exception {
+        ConversionMetrics metrics = ConversionMetrics.of("test-phases", Direction.XML_TO_JSON);
+        metrics.reset();
+        ConversionEngine engine = new MeteredConversionEngine(new PhasedEngine(false), metrics);
+
+        // Source et destination lentes : les phases READ et WRITE sont le temps passé dans leurs appels
+        SlowWriter output = new SlowWriter();
+        engine.convert(new SlowReader(INPUT), output);
+        assertEquals(OUTPUT, output.toString());
+
+        ConversionMetrics.Sample sample = ConversionMetrics.lastSample();
+        assertEquals("test-phases", sample.engine());
+        assertTrue(sample.succeeded());
+        assertEquals(INPUT.length(), sample.inputChars());
+        assertEquals(OUTPUT.length(), sample.outputChars());
+        assertEquals(3, sample.nodes());
+        long phases = 0;
+        for (Phase phase : Phase.values()) {
+            // Chaque phase dure au moins une pause
+            assertTrue(sample.phaseNanos(phase) >= 1_000_000, phase + " : " + sample.phaseNanos(phase));
+            phases += sample.phaseNanos(phase);
+        }
+        assertEquals(sample.totalNanos(), phases, 1_000_000);
+
+        assertEquals(1, metrics.getConversions());
+        assertEquals(0, metrics.getFailures());
+        assertEquals(INPUT.length(), metrics.getInputChars());
+        assertEquals(OUTPUT.length(), metrics.getOutputChars());
+        assertEquals(3, metrics.getNodes());
+        assertTrue(metrics.getReadMillis() >= 1 && metrics.getParseMillis() >= 1
+                && metrics.getConvertMillis() >= 1 && metrics.getWriteMillis() >= 1);
+        assertTrue(metrics.getLatencyP50Millis() > 0);
+        assertTrue(metrics.getLatencyP99Millis() <= metrics.getLatencyMaxMillis());
+        assertEquals(1, metrics.getLatencyHistogram().length);
+
+        // Conversion d'une chaîne : tailles comptées sans Reader ni Writer
+        assertEquals(OUTPUT, engine.convert(INPUT));
+        assertEquals(2, metrics.getConversions());
+        assertEquals(2L * INPUT.length(), metrics.getInputChars());
+    }
+
+    @Test
+    void failuresAreCountedApart() throws Exception {
+        ConversionMetrics metrics = ConversionMetrics.of("test-failures", Direction.XML_TO_JSON);
+        metrics.reset();
+        ConversionEngine engine = new MeteredConversionEngine(new PhasedEngine(true), metrics);
+
+        assertThrows(IOException.class, () -> engine.convert(new StringReader(INPUT), new StringWriter()));
+        assertFalse(ConversionMetrics.lastSample().succeeded());
+        assertEquals(1, metrics.getFailures());
+        assertEquals(0, metrics.getConversions());
+        assertEquals(0, metrics.getInputChars());
+
+        // La conversion suivante du thread est de nouveau mesurée
+        new MeteredConversionEngine(new PhasedEngine(false), metrics).convert(INPUT);
+        assertEquals(1, metrics.getConversions());
+    }
+
+    @Test
+    void nestedEnginesAreMeasuredOnce() throws Exception {
+        ConversionMetrics outer = ConversionMetrics.of("test-outer", Direction.XML_TO_JSON);
+        ConversionMetrics inner = ConversionMetrics.of("test-inner", Direction.XML_TO_JSON);
+        outer.reset();
+        inner.reset();
+        new MeteredConversionEngine(new MeteredConversionEngine(new PhasedEngine(false), inner), outer).convert(INPUT);
+        assertEquals(1, outer.getConversions());
+        assertEquals(0, inner.getConversions());
+    }
+
+    @Test
+    void registeredEnginesReportTheirPhases() throws Exception {
+        ConversionMetrics metrics = ConversionMetrics.of("scratch", Direction.XML_TO_JSON);
+        long before = metrics.getConversions();
+        long nodes = metrics.getNodes();
+        StringWriter output = new StringWriter();
+        ConversionEngines.get("scratch", Direction.XML_TO_JSON).convert(new StringReader(INPUT), output);
+
+        assertEquals(before + 1, metrics.getConversions());
+        assertTrue(metrics.getNodes() > nodes);
+        ConversionMetrics.Sample sample = ConversionMetrics.lastSample();
+        assertEquals("scratch", sample.engine());
+        assertEquals(INPUT.length(), sample.inputChars());
+        assertEquals(output.toString().length(), sample.outputChars());
+        assertTrue(sample.phaseNanos(Phase.PARSE) > 0);
+        assertTrue(sample.phaseNanos(Phase.CONVERT) > 0);
+        assertTrue(ConversionMetrics.all().contains(metrics));
+    }
+
+    @Test
+    void countersAreExposedOverJmx() throws Exception {
+        ConversionMetrics metrics = ConversionMetrics.of("test-jmx", Direction.JSON_TO_XML);
+        metrics.reset();
+        new MeteredConversionEngine(new PhasedEngine(false), metrics).convert(INPUT);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("xmljson:type=ConversionMetrics,engine=test-jmx,direction=JSON_TO_XML");
+        assertTrue(server.isRegistered(name));
+        assertEquals("test-jmx", server.getAttribute(name, "Engine"));
+        assertEquals(1L, server.getAttribute(name, "Conversions"));
+        assertEquals(3L, server.getAttribute(name, "Nodes"));
+        assertEquals((long) INPUT.length(), server.getAttribute(name, "InputChars"));
+        assertTrue((Double) server.getAttribute(name, "ParseMillis") >= 1);
+        assertEquals(1, ((String[]) server.getAttribute(name, "LatencyHistogram")).length);
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "Conversions"));
+        assertSame(metrics, ConversionMetrics.of("test-jmx", Direction.JSON_TO_XML));
+    }
+
+    /**
+     * Moteur qui reste au moins 1 ms en analyse (PARSE) et en conversion, comme un moteur arborescent
+     */
+    private static final class PhasedEngine implements ConversionEngine {
+        private final boolean fail;
+
+        PhasedEngine(boolean fail) {
+            this.fail = fail;
+        }
+
+        public String convert(String content) throws Exception {
+            StringWriter output = new StringWriter();
+            convert(new StringReader(content), output);
+            return output.toString();
+        }
+
+        public void convert(Reader input, Writer output) throws Exception {
+            StringWriter content = new StringWriter();
+            char[] buffer = new char[4];
+            for (int n; (n = input.read(buffer)) > 0; ) {
+                content.write(buffer, 0, n);
+            }
+            ConversionMetrics.enter(Phase.PARSE);
+            ConversionMetrics.addNodes(3);
+            pause();
+            ConversionMetrics.enter(Phase.CONVERT);
+            pause();
+            if (fail) {
+                throw new IOException("échec");
+            }
+            output.write(OUTPUT.toCharArray(), 0, OUTPUT.length());
+            output.flush();
+        }
+
+    }
+
+    private static final class SlowReader extends StringReader {
+        SlowReader(String text) {
+            super(text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            pause();
+            return super.read(buffer, offset, length);
+        }
+    }
+
+    private static final class SlowWriter extends StringWriter {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            pause();
+            super.write(buffer, offset, length);
+        }
+    }
+
+    private static void pause() {
+        long end = System.nanoTime() + 1_000_000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
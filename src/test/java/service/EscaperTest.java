@@ -0,0 +1,146 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Chaque entrée des tables d'échappement, et les caractères hors ASCII, par les trois variantes
+ * (StringBuilder, Writer, portion de tableau)
+ */
+class EscaperTest {
+
+    @Test
+    void jsonEscapesQuotesBackslashAndControlCharacters() throws Exception {
+        for (char c = 0; c < 128; c++) {
+            String expected;
+            switch (c) {
+                case '\b': expected = "\\b"; break;
+                case '\f': expected = "\\f"; break;
+                case '\n': expected = "\\n"; break;
+                case '\r': expected = "\\r"; break;
+                case '\t': expected = "\\t"; break;
+                case '"':  expected = "\\\""; break;
+                case '\\': expected = "\\\\"; break;
+                default:
+                    expected = c < 0x20 ? String.format("\\u%04x", (int) c) : String.valueOf(c);
+            }
+            assertEquals("a" + expected + "b", json("a" + c + "b"), "caractère " + (int) c);
+        }
+        // DEL (0x7F) n'est pas un caractère de contrôle JSON
+        assertEquals("\\u0000\\u001f\u007f", json("\u0000\u001f\u007f"));
+    }
+
+    @Test
+    void xmlTextEscapesMarkupAndCarriageReturn() throws Exception {
+        for (char c = 0; c < 128; c++) {
+            assertEquals("a" + expectedXml(c, false) + "b", xmlText("a" + c + "b"), "caractère " + (int) c);
+        }
+    }
+
+    @Test
+    void xmlAttributeAlsoEscapesTabAndNewline() throws Exception {
+        for (char c = 0; c < 128; c++) {
+            assertEquals("a" + expectedXml(c, true) + "b", xmlAttribute("a" + c + "b"), "caractère " + (int) c);
+        }
+    }
+
+    @Test
+    void nonAsciiCharacters() throws Exception {
+        // Recopiés tels quels, en JSON comme en XML
+        String text = "é€\u00A0\uD7FF\uE000\uFFFD";
+        assertEquals(text, json(text));
+        assertEquals(text, xmlText(text));
+        assertEquals(text, xmlAttribute(text));
+
+        // Non-caractères U+FFFE et U+FFFF : interdits en XML 1.0, laissés en JSON
+        assertEquals("a\uFFFD\uFFFDb", xmlText("a\uFFFE\uFFFFb"));
+        assertEquals("a\uFFFE\uFFFFb", json("a\uFFFE\uFFFFb"));
+    }
+
+    @Test
+    void surrogatePairs() throws Exception {
+        // Paire valide (U+1F600) : recopiée, y compris en fin de texte
+        String pair = "\uD83D\uDE00";
+        assertEquals("a" + pair + "b", xmlText("a" + pair + "b"));
+        assertEquals(pair, xmlText(pair));
+        assertEquals("a" + pair, xmlAttribute("a" + pair));
+        assertEquals(pair, json(pair));
+
+        // Substituts isolés ou dans le désordre : U+FFFD en XML, un par caractère
+        assertEquals("\uFFFDb", xmlText("\uD83Db"));
+        assertEquals("a\uFFFD", xmlText("a\uD83D"));
+        assertEquals("a\uFFFDb", xmlText("a\uDE00b"));
+        assertEquals("\uFFFD\uFFFD", xmlAttribute("\uDE00\uD83D"));
+        assertEquals("\uFFFD" + pair, xmlText("\uD83D" + pair));
+
+        // En JSON, les substituts ne sont pas touchés
+        assertEquals("a\uD83Db", json("a\uD83Db"));
+    }
+
+    @Test
+    void textWithoutSpecialCharactersIsCopied() throws Exception {
+        String text = "texte ordinaire, sans rien à échapper";
+        assertEquals(text, json(text));
+        assertEquals(text, xmlText(text));
+        assertEquals(text, xmlAttribute(text));
+        assertEquals("", xmlText(""));
+    }
+
+    private static String expectedXml(char c, boolean attribute) {
+        switch (c) {
+            case '&':  return "&amp;";
+            case '<':  return "&lt;";
+            case '>':  return "&gt;";
+            case '"':  return "&quot;";
+            case '\'': return "&apos;";
+            case '\r': return "&#13;";
+            case '\t': return attribute ? "&#9;" : "\t";
+            case '\n': return attribute ? "&#10;" : "\n";
+            default:
+                return c < 0x20 ? "\uFFFD" : String.valueOf(c);
+        }
+    }
+
+    private static String json(String text) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        Escaper.escapeJson(text, builder);
+        StringWriter writer = new StringWriter();
+        Escaper.escapeJson(text, writer);
+        StringWriter slice = new StringWriter();
+        char[] chars = ("<" + text + ">").toCharArray();
+        Escaper.escapeJson(chars, 1, text.length(), slice);
+        return same(builder.toString(), writer.toString(), slice.toString());
+    }
+
+    private static String xmlText(String text) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        Escaper.escapeXmlText(text, builder);
+        StringWriter writer = new StringWriter();
+        Escaper.escapeXmlText(text, writer);
+        StringWriter slice = new StringWriter();
+        char[] chars = ("x" + text + "x").toCharArray();
+        Escaper.escapeXmlText(chars, 1, text.length(), slice);
+        return same(builder.toString(), writer.toString(), slice.toString());
+    }
+
+    private static String xmlAttribute(String text) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        Escaper.escapeXmlAttribute(text, builder);
+        StringWriter writer = new StringWriter();
+        Escaper.escapeXmlAttribute(text, writer);
+        StringWriter slice = new StringWriter();
+        char[] chars = ("x" + text + "x").toCharArray();
+        Escaper.escapeXmlAttribute(chars, 1, text.length(), slice);
+        return same(builder.toString(), writer.toString(), slice.toString());
+    }
+
+    // Les trois variantes doivent donner le même résultat
+    private static String same(String builder, String writer, String slice) {
+        assertEquals(builder, writer);
+        assertEquals(builder, slice);
+        return builder;
+    }
+}
@@ -0,0 +1,106 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine.Direction;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Nombres JSON : recopiés tels quels, donc validés strictement par le lexer
+ */
+class JsonLexerTest {
+
+    // Hors de portée de double ou de long, ou dont la forme serait perdue par un aller-retour
+    private static final String[] EXACT = {"1e400", "-1E-400", "-0", "-0.0", "1.10", "1E+2", "0e5",
+            "123456789012345678901234567890", "-9223372036854775809", "0.000001"};
+
+    @Test
+    void leadingZeroIsRejectedByEveryEngine() {
+        for (String number : new String[]{"01", "-01", "007", "00.5"}) {
+            String json = "{\"r\":{\"n\":" + number + "}}";
+            for (String id : ConversionEngines.ids()) {
+                ConversionEngine engine = ConversionEngines.get(id, Direction.JSON_TO_XML);
+                assertThrows(Exception.class, () -> engine.convert(json), id + " " + number);
+                assertThrows(Exception.class, () -> engine.convert(new StringReader(json), new StringWriter()),
+                        id + " " + number);
+            }
+        }
+    }
+
+    @Test
+    void malformedNumbersAreRejectedByEveryEngine() {
+        for (String number : new String[]{"1.", ".5", "1e", "1e+", "-", "+1", "--1", "1.e5", "0x10"}) {
+            String json = "{\"r\":{\"n\":" + number + "}}";
+            for (String id : ConversionEngines.ids()) {
+                ConversionEngine engine = ConversionEngines.get(id, Direction.JSON_TO_XML);
+                assertThrows(Exception.class, () -> engine.convert(json), id + " " + number);
+            }
+        }
+    }
+
+    @Test
+    void validNumbersAreCopiedAsWritten() throws Exception {
+        for (String number : new String[]{"0", "-0", "0.5", "10", "0e5", "1.50", "12345678901"}) {
+            String xml = new JsonToXmlStreamService().convert("{\"r\":{\"n\":" + number + "}}");
+            assertTrue(xml.contains("<n>" + number + "</n>"), xml);
+            assertEquals(xml, new JsonToXmlService().convert("{\"r\":{\"n\":" + number + "}}"));
+        }
+    }
+
+    @Test
+    void exactNumbersSurviveEveryLexicalEngine() throws Exception {
+        // Le moteur "api" passe par l'arbre Jackson, qui normalise les nombres (1e400 → Infinity) : exclu
+        for (String id : ConversionEngines.ids()) {
+            if (id.equals("api")) {
+                continue;
+            }
+            ConversionEngine engine = ConversionEngines.get(id, Direction.JSON_TO_XML).withFormat(OutputFormat.COMPACT);
+            for (String number : EXACT) {
+                String json = "{\"r\":{\"@a\":" + number + ",\"n\":[" + number + "," + number + "],"
+                        + "\"t\":{\"#text\":" + number + "}}}";
+                String expected = "<r a=\"" + number + "\"><n>" + number + "</n><n>" + number + "</n><t>"
+                        + number + "</t></r>";
+                assertTrue(engine.convert(json).endsWith(expected), id + " " + number);
+                StringWriter output = new StringWriter();
+                engine.convert(new StringReader(json), output);
+                assertTrue(output.toString().endsWith(expected), id + " " + number);
+            }
+        }
+    }
+
+    @Test
+    void lexerKeepsTheTextAndParsesOnDemand() throws Exception {
+        for (String number : EXACT) {
+            JsonLexer lexer = new JsonLexer("[" + number + "]");
+            assertEquals(JsonLexer.Token.BEGIN_ARRAY, lexer.next());
+            assertEquals(JsonLexer.Token.NUMBER, lexer.next());
+            assertEquals(number, lexer.stringValue());
+            JsonNumber value = lexer.numberValue();
+            assertEquals(number, value.toString());
+            assertEquals(new BigDecimal(number), value.bigDecimalValue());
+            assertEquals(Double.parseDouble(number), value.doubleValue());
+        }
+
+        // Lecture en flux : un nombre coupé entre deux remplissages du tampon reste entier
+        String big = "1" + "0".repeat(100_000) + ".10e-3";
+        JsonLexer lexer = new JsonLexer(new StringReader("[" + big + "]"));
+        lexer.next();
+        assertEquals(JsonLexer.Token.NUMBER, lexer.next());
+        assertEquals(big, lexer.stringValue());
+
+        JsonNumber integral = new JsonNumber("-9223372036854775808");
+        assertTrue(integral.isIntegral());
+        assertEquals(Long.MIN_VALUE, integral.longValue());
+        assertFalse(new JsonNumber("1E2").isIntegral());
+        assertEquals(100, new JsonNumber("1E2").longValue());
+        // Égalité sur le texte : 1.10 et 1.1 sont deux nombres distincts pour la conversion
+        assertFalse(new JsonNumber("1.10").equals(new JsonNumber("1.1")));
+    }
+}
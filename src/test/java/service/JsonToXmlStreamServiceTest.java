@@ -0,0 +1,111 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le moteur streaming JSON → XML doit produire exactement le XML de l'arbre Map/List
+ */
+class JsonToXmlStreamServiceTest {
+
+    private static final String[] DOCUMENTS = {
+            // Clé répétée : première position, dernière valeur
+            "{\"r\":{\"a\":1,\"b\":2,\"a\":{\"c\":3}}}",
+            "{\"r\":{\"@k\":\"1\",\"x\":1,\"@k\":\"2\"},\"q\":1,\"r\":[1,2]}",
+            // Attribut après les éléments enfants
+            "{\"r\":{\"x\":1,\"@k\":\"v\"}}",
+            "{\"r\":{\"x\":{\"y\":[1,{\"z\":null,\"@a\":true}]},\"@k\":\"v\",\"#text\":\"t\"}}",
+            // Texte, objets vides, tableaux vides, clés hors élément
+            "{\"r\":{\"#text\":\"a<b\",\"@k\":\"&\"},\"e\":{},\"t\":[],\"@z\":1,\"#text\":\"s\"}",
+            "{\"r\":{\"a\":[],\"#text\":\"ignoré\"}}",
+            // Nombres recopiés tels quels, hors de portée de double compris
+            "{\"r\":{\"@a\":1e400,\"n\":[-0,1.10,123456789012345678901234567890,-1E-400],\"#text\":1E+2}}"
+    };
+
+    @Test
+    void sameOutputAsTree() throws Exception {
+        for (OutputFormat format : new OutputFormat[]{OutputFormat.PRETTY, OutputFormat.COMPACT}) {
+            for (String json : DOCUMENTS) {
+                assertEquals(new JsonToXmlService(format).convert(json),
+                        new JsonToXmlStreamService(format).convert(json), json);
+            }
+        }
+    }
+
+    @Test
+    void trailingCommaIsRejected() {
+        for (String json : new String[]{"{\"r\":{\"y\":[1,2,]}}", "{\"r\":[1,]}", "{\"r\":{\"a\":1,}}"}) {
+            assertThrows(Exception.class, () -> new JsonToXmlService().convert(json), json);
+            assertThrows(Exception.class, () -> new JsonToXmlStreamService().convert(json), json);
+        }
+    }
+
+    @Test
+    void largeObjectsAreWrittenBeforeTheirEnd() throws Exception {
+        // Plusieurs Mo d'éléments : les objets ouverts sont écrits en cours de lecture
+        String content = records("item", 60000, "{\"root\":{\"@n\":\"60000\",") + "},\"fin\":{\"x\":1}}";
+        assertEquals(new JsonToXmlService().convert(content), new JsonToXmlStreamService().convert(content));
+
+        StringWriter output = new StringWriter();
+        Reader input = new StringReader(content) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                // Avant la fin de la lecture, la balise ouvrante et ses attributs sont déjà dans la sortie
+                if (output.getBuffer().length() == 0 && consumed > content.length() / 2) {
+                    throw new IOException("Rien n'est écrit à la moitié de l'entrée");
+                }
+                int n = super.read(buffer, offset, Math.min(length, 1 << 12));
+                consumed += Math.max(n, 0);
+                return n;
+            }
+            long consumed;
+        };
+        new JsonToXmlStreamService().convert(input, output);
+        assertTrue(output.toString().startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root n=\"60000\">"));
+    }
+
+    @Test
+    void replacedKeyStaysBufferedAndKeepsTreeOutput() throws Exception {
+        // Le grand tableau "old" remplace une valeur antérieure : il reste en tampon (en partie sur disque),
+        // et l'attribut qui suit est encore placé dans la balise ouvrante
+        String content = records("old", 60000, "{\"root\":{\"old\":1,\"b\":2,") + ",\"@n\":\"60000\"},\"fin\":{\"x\":1}}";
+        assertEquals(new JsonToXmlService().convert(content), new JsonToXmlStreamService().convert(content));
+    }
+
+    @Test
+    void lateMemberOfAWrittenObjectIsRejected() {
+        String attribute = records("item", 60000, "{\"root\":{") + ",\"@n\":\"60000\"}}";
+        String duplicate = records("item", 60000, "{\"root\":{\"a\":1,") + ",\"a\":2}}";
+        for (String content : new String[]{attribute, duplicate}) {
+            assertThrows(JsonToXmlStreamService.LateMemberException.class,
+                    () -> new JsonToXmlStreamService().convert(content));
+            // Message vu en ligne de commande et par le serveur, y compris par le moteur parallèle
+            for (String id : new String[]{"stream", "parallel"}) {
+                ConversionEngine engine = ConversionEngines.get(id, ConversionEngine.Direction.JSON_TO_XML);
+                Exception e = assertThrows(Exception.class,
+                        () -> engine.convert(new StringReader(content), new StringWriter()), id);
+                assertTrue(e.getMessage().startsWith("Attribut/clé tardif : "), e.getMessage());
+                assertTrue(e.getMessage().contains("moteur arborescent"), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Début d'objet suivi d'un tableau de records objets sous la clé key
+     */
+    private static String records(String key, int count, String prefix) {
+        StringBuilder json = new StringBuilder(prefix).append('"').append(key).append("\":[");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "").append("{\"v\":\"valeur ").append(i).append("\",\"@id\":").append(i).append('}');
+        }
+        return json.append(']').toString();
+    }
+}
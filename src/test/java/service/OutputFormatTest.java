@@ -0,0 +1,134 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine.Direction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Chaque mise en forme (compacte, indentée de 0 à 16 espaces) doit donner les mêmes octets
+ * quel que soit le moteur : arbre, streaming, parallèle (découpage forcé), bande et Auto
+ */
+class OutputFormatTest {
+
+    private static final OutputFormat[] FORMATS = {
+            OutputFormat.COMPACT, OutputFormat.PRETTY, OutputFormat.pretty(0), OutputFormat.pretty(4),
+            OutputFormat.pretty(16)
+    };
+
+    @Test
+    void xmlToJsonIsByteIdenticalAcrossEngines() throws Exception {
+        StringBuilder records = new StringBuilder("<?xml version=\"1.0\"?>\n<root id=\"7\">\n");
+        for (int i = 0; i < 120; i++) {
+            records.append("  <rec n=\"").append(i).append("\"><nom>é ").append(i).append(" 𝄞</nom>");
+            if (i % 3 == 0) {
+                records.append("<a>1</a><b/><a>2</a>texte");
+            }
+            records.append("</rec>\n");
+        }
+        records.append("</root>\n");
+        String[] documents = {
+                records.toString(),
+                "<r k=\"v\">t<b id=\"4\">y</b><!--c--><b/>u<c><d><e>profond</e></d></c></r>",
+                "<vide/>"
+        };
+
+        for (OutputFormat format : FORMATS) {
+            Map<String, ConversionEngine> engines = new LinkedHashMap<>();
+            engines.put("stream", new XmlToJsonStreamService(format));
+            engines.put("parallel", new ParallelXmlToJsonService(ForkJoinPool.commonPool(), format, 64));
+            engines.put("tape", new TapeConversionService(Direction.XML_TO_JSON, format));
+            engines.put("auto", ConversionEngines.get("auto", Direction.XML_TO_JSON).withFormat(format));
+            engines.put("registry parallel", ConversionEngines.get("parallel", Direction.XML_TO_JSON).withFormat(format));
+            for (String xml : documents) {
+                byte[] expected = new XmlToJsonService(format).convert(xml).getBytes(StandardCharsets.UTF_8);
+                for (Map.Entry<String, ConversionEngine> engine : engines.entrySet()) {
+                    assertSameBytes(expected, engine.getValue(), xml, ".xml", engine.getKey() + " " + describe(format));
+                }
+            }
+        }
+    }
+
+    @Test
+    void jsonToXmlIsByteIdenticalAcrossEngines() throws Exception {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            items.append(i > 0 ? "," : "").append("{\"@id\":\"").append(i).append("\",\"nom\":\"é ").append(i)
+                    .append(" 𝄞\",\"v\":[").append(i).append(",null,[true,1.10]],\"w\":{\"#text\":\"t\",\"x\":{}}}");
+        }
+        String[] documents = {
+                "{\"root\":{\"item\":[" + items + "],\"n\":[1,2,3]},\"last\":[]}",
+                "{\"r\":{\"x\":{\"y\":[1,{\"z\":null,\"@a\":true}]},\"@k\":\"v\",\"#text\":\"t\"}}",
+                "{\"a\":1,\"b\":[{\"c\":\"x<y&z\"},\"deux\"]}"
+        };
+
+        for (OutputFormat format : FORMATS) {
+            Map<String, ConversionEngine> engines = new LinkedHashMap<>();
+            engines.put("stream", new JsonToXmlStreamService(format));
+            engines.put("parallel", new ParallelJsonToXmlService(ForkJoinPool.commonPool(), format, 16));
+            engines.put("tape", new TapeConversionService(Direction.JSON_TO_XML, format));
+            engines.put("auto", ConversionEngines.get("auto", Direction.JSON_TO_XML).withFormat(format));
+            engines.put("registry parallel", ConversionEngines.get("parallel", Direction.JSON_TO_XML).withFormat(format));
+            for (String json : documents) {
+                byte[] expected = new JsonToXmlService(format).convert(json).getBytes(StandardCharsets.UTF_8);
+                for (Map.Entry<String, ConversionEngine> engine : engines.entrySet()) {
+                    assertSameBytes(expected, engine.getValue(), json, ".json", engine.getKey() + " " + describe(format));
+                }
+            }
+        }
+    }
+
+    @Test
+    void formatsShapeTheOutput() throws Exception {
+        String json = "{\"r\":{\"a\":{\"b\":1}}}";
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><r><a><b>1</b></a></r>",
+                new JsonToXmlService(OutputFormat.COMPACT).convert(json));
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<r>\n    <a>\n        <b>1</b>\n    </a>\n</r>",
+                new JsonToXmlService(OutputFormat.pretty(4)).convert(json).stripTrailing());
+        assertEquals("{\"r\":{\"a\":{\"b\":\"1\"}}}",
+                new XmlToJsonService(OutputFormat.COMPACT).convert("<r><a><b>1</b></a></r>"));
+        assertEquals("{\n\"r\": {\n\"a\": \"1\"\n}\n}",
+                new XmlToJsonService(OutputFormat.pretty(0)).convert("<r><a>1</a></r>").stripTrailing());
+
+        assertThrows(IllegalArgumentException.class, () -> OutputFormat.pretty(-1));
+        assertThrows(IllegalArgumentException.class, () -> OutputFormat.pretty(17));
+    }
+
+    /**
+     * Même sortie en chaîne, en flux de caractères vers octets, et depuis un fichier
+     * (le moteur parallèle découpe alors par positions d'octets)
+     */
+    private static void assertSameBytes(byte[] expected, ConversionEngine engine, String input, String suffix,
+                                        String label) throws Exception {
+        assertArrayEquals(expected, engine.convert(input).getBytes(StandardCharsets.UTF_8), label);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        engine.convert(new StringReader(input), output);
+        assertArrayEquals(expected, output.toByteArray(), label + " (flux)");
+
+        Path file = Files.createTempFile("format", suffix);
+        try {
+            Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+            output.reset();
+            engine.convert(file, output);
+            assertArrayEquals(expected, output.toByteArray(), label + " (fichier)");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static String describe(OutputFormat format) {
+        return format.isPretty() ? "indentation " + format.indentWidth() : "compact";
+    }
+}
@@ -0,0 +1,102 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Les tranches lues au fil du flux ne doivent rien changer à la sortie du moteur streaming,
+ * ni aux erreurs
+ */
+class ParallelJsonToXmlServiceTest {
+
+    // Tranches minuscules : chaque tableau de test est découpé
+    private static final int SLICE_SIZE = 16;
+
+    @Test
+    void slicedArraysMatchStreaming() throws Exception {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            if (i > 0) {
+                items.append(i % 7 == 0 ? " ,\n " : ",");
+            }
+            items.append("{\"@id\":\"").append(i).append("\",\"nom\":\"a,]}\\\"[").append(i)
+                    .append("\",\"v\":[").append(i).append(",null,[true,\"é\"]],\"v\":{\"x\":[]}}");
+        }
+        assertSameAsStreaming("{\"root\":{\"item\":[" + items + "],\"n\":[1,2,3]},\"last\":[]}");
+
+        // Nombres recopiés tels quels, y compris coupés d'une tranche à l'autre
+        StringBuilder numbers = new StringBuilder();
+        String[] exact = {"1e400", "-0", "1.10", "123456789012345678901234567890", "-1E-400", "0.000001"};
+        for (int i = 0; i < 300; i++) {
+            numbers.append(i > 0 ? "," : "").append(exact[i % exact.length]);
+        }
+        assertSameAsStreaming("{\"r\":{\"n\":[" + numbers + "]}}");
+        assertTrue(parallel(OutputFormat.COMPACT).convert("{\"r\":{\"n\":[" + numbers + "]}}")
+                .contains("<n>1e400</n><n>-0</n><n>1.10</n><n>123456789012345678901234567890</n>"));
+
+        // Élément plus grand qu'une tranche : rendu au moteur streaming, qui découpe ses tableaux
+        assertSameAsStreaming("{\"r\":[[" + items + "],{\"big\":[" + items + "]},1]}");
+    }
+
+    @Test
+    void errorsMatchStreaming() throws Exception {
+        String[] invalid = {
+                "{\"r\":[1,2,3,]}",
+                "{\"r\":[1,2,3,4,5,6,7,8,9,10,}]}",
+                "{\"r\":[,1]}",
+                "{\"r\":[1,2,3 4]}",
+                "{\"r\":[1,2,3,[4,5,6,7,8,9,10,11,12]}",
+                "{\"r\":[1,2,3,\"4,5,6,7,8,9,10,11,12]}",
+                "{\"r\":[\"aaaaaaaaaaaaaaaaaaaa\",\"b\\x\",3]}"
+        };
+        for (String json : invalid) {
+            Exception expected = assertThrows(Exception.class, () -> new JsonToXmlStreamService().convert(json), json);
+            Exception actual = assertThrows(Exception.class, () -> parallel(OutputFormat.PRETTY).convert(json), json);
+            assertEquals(expected.getMessage(), actual.getMessage(), json);
+        }
+    }
+
+    private static void assertSameAsStreaming(String json) throws Exception {
+        for (OutputFormat format : new OutputFormat[] {OutputFormat.PRETTY, OutputFormat.COMPACT}) {
+            String expected = new JsonToXmlStreamService(format).convert(json);
+            assertEquals(expected, parallel(format).convert(json));
+
+            // Lectures de quelques caractères : la partie marquée du tampon est recopiée et agrandie
+            StringWriter output = new StringWriter();
+            parallel(format).convert(trickle(json), output);
+            assertEquals(expected, output.toString());
+        }
+    }
+
+    private static ParallelJsonToXmlService parallel(OutputFormat format) {
+        return new ParallelJsonToXmlService(ForkJoinPool.commonPool(), format, SLICE_SIZE);
+    }
+
+    private static Reader trickle(String text) {
+        return new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position == text.length()) {
+                    return -1;
+                }
+                int count = Math.min(Math.min(length, 3), text.length() - position);
+                text.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Le découpage par positions d'octets ne doit rien changer à la sortie du moteur streaming
+ */
+class ParallelXmlToJsonServiceTest {
+
+    // Morceaux minuscules : chaque document de test est découpé
+    private static final int CHUNK_SIZE = 64;
+
+    @Test
+    void recordListMatchesStreaming() throws Exception {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<!-- liste -->\n<root id=\"7\" lang='fr'>\n");
+        for (int i = 0; i < 200; i++) {
+            xml.append("  <rec n=\"").append(i).append("\"><nom>élément ").append(i).append(" – ☃ 𝄞</nom>");
+            if (i % 3 == 0) {
+                xml.append("<a>1</a><b/><a>2</a>");
+            }
+            xml.append("</rec>\n");
+            if (i % 50 == 0) {
+                xml.append("  <!-- <rec> -->\n");
+            }
+        }
+        xml.append("</root>\n");
+
+        assertSameAsStreaming(xml.toString());
+    }
+
+    @Test
+    void otherDocumentsFallBackToStreaming() throws Exception {
+        StringBuilder mixed = new StringBuilder("<root>");
+        for (int i = 0; i < 100; i++) {
+            mixed.append(i % 2 == 0 ? "<a>" : "<b>").append(i).append(i % 2 == 0 ? "</a>" : "</b>");
+        }
+        mixed.append("</root>");
+
+        assertSameAsStreaming(mixed.toString());
+        assertSameAsStreaming("<root><rec>1</rec></root>");
+    }
+
+    private static void assertSameAsStreaming(String xml) throws Exception {
+        for (OutputFormat format : new OutputFormat[] {OutputFormat.PRETTY, OutputFormat.COMPACT}) {
+            String expected = new XmlToJsonStreamService(format).convert(xml);
+            ParallelXmlToJsonService parallel = new ParallelXmlToJsonService(ForkJoinPool.commonPool(), format, CHUNK_SIZE);
+            assertEquals(expected, parallel.convert(xml));
+
+            Path file = Files.createTempFile("parallel", ".xml");
+            try {
+                Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                parallel.convert(file, output);
+                assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Syntaxe des sélecteurs et éléments retenus, évalués en streaming comme dans les moteurs
+ */
+class RecordSelectorTest {
+
+    private static final XMLInputFactory INPUT_FACTORY = XmlFactories.inputFactory(false);
+
+    // Chaque élément porte un identifiant : la sélection se lit comme une liste d'identifiants
+    private static final String DOCUMENT = "<catalog id='c'>"
+            + "<book id='b1' lang='fr'><title id='t1'/><price id='p1'/></book>"
+            + "<book id='b2'><title id='t2'/><part id='x'><price id='p2'/></part></book>"
+            + "<shelf id='s'><book id='b3' lang='en'><book id='b4' lang='fr'/></book></shelf>"
+            + "<price id='p3'/>"
+            + "</catalog>";
+
+    @Test
+    void nameMatchesAtAnyDepth() throws Exception {
+        assertEquals(List.of("b1", "b2", "b3", "b4"), select("book"));
+        assertEquals(List.of("p1", "p2", "p3"), select("price"));
+        assertEquals(List.of("c"), select("catalog"));
+    }
+
+    @Test
+    void absolutePathStartsAtRoot() throws Exception {
+        assertEquals(List.of("b1", "b2"), select("/catalog/book"));
+        assertEquals(List.of("p3"), select("/catalog/price"));
+        assertEquals(List.of("c"), select("/catalog"));
+        assertEquals(List.of(), select("/book"));
+    }
+
+    @Test
+    void relativePathMatchesTheEndOfTheElementPath() throws Exception {
+        assertEquals(List.of("b1", "b2"), select("catalog/book"));
+        assertEquals(List.of("b3"), select("shelf/book"));
+        // Livre imbriqué dans un livre
+        assertEquals(List.of("b4"), select("book/book"));
+        assertEquals(List.of("p1"), select("book/price"));
+    }
+
+    @Test
+    void doubleSlashMatchesDescendants() throws Exception {
+        assertEquals(List.of("p1", "p2", "p3"), select("/catalog//price"));
+        assertEquals(List.of("p1", "p2"), select("/catalog/book//price"));
+        assertEquals(List.of("b3", "b4"), select("/catalog/shelf//book"));
+        assertEquals(List.of("b1", "b2", "b3", "b4"), select("//book"));
+    }
+
+    @Test
+    void starMatchesAnyName() throws Exception {
+        assertEquals(List.of("b1", "b2", "s", "p3"), select("/catalog/*"));
+        assertEquals(List.of("t1", "p1", "t2", "x", "b3"), select("/catalog/*/*"));
+        assertEquals(List.of("p2"), select("part/*"));
+    }
+
+    @Test
+    void attributePredicates() throws Exception {
+        assertEquals(List.of("b1", "b3", "b4"), select("book[@lang]"));
+        assertEquals(List.of("b1", "b4"), select("book[@lang='fr']"));
+        assertEquals(List.of("b1", "b4"), select("book[@lang=\"fr\"]"));
+        assertEquals(List.of("b4"), select("book[@lang='fr'][@id='b4']"));
+        assertEquals(List.of("p1"), select("/catalog/book[@id='b1']/price"));
+        assertEquals(List.of("b1", "b3", "b4"), select("*[@lang]"));
+        assertEquals(List.of(), select("book[@lang='de']"));
+    }
+
+    @Test
+    void nestedMatchesAreAllSelected() throws Exception {
+        // Un élément sélectionné peut contenir d'autres éléments sélectionnés
+        assertEquals(List.of("b3", "b4"), select("shelf//book"));
+        assertEquals(List.of("c", "b1", "t1", "p1", "b2", "t2", "x", "p2", "s", "b3", "b4", "p3"), select("*"));
+    }
+
+    @Test
+    void subtreeWithoutPossibleMatchHasNullState() throws Exception {
+        RecordSelector selector = RecordSelector.parse("/catalog/book/title");
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader("<other><book/></other>"));
+        reader.nextTag();
+        assertEquals(0, selector.nextState(selector.initialState(), reader.getLocalName(), reader));
+    }
+
+    @Test
+    void malformedExpressionsAreRejected() {
+        String[] invalid = {null, "", "  ", "/", "//", "book/", "a//", "a///b", "[@id]", "book[", "book[id]",
+                "book[@]", "book[@id", "book[@id=2]", "book[@id='2]", "book[@id='2'", "book[@id='2']x",
+                "/a".repeat(64)};
+        for (String expression : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> RecordSelector.parse(expression),
+                    String.valueOf(expression));
+        }
+        RecordSelector.parse("/a".repeat(63));
+        assertEquals("/catalog/book", RecordSelector.parse("  /catalog/book ").toString());
+    }
+
+    /**
+     * Identifiants des éléments sélectionnés, dans l'ordre du document
+     */
+    private static List<String> select(String expression) throws Exception {
+        RecordSelector selector = RecordSelector.parse(expression);
+        List<String> selected = new ArrayList<>();
+        Deque<Long> states = new ArrayDeque<>();
+        states.push(selector.initialState());
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(DOCUMENT));
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                long state = selector.nextState(states.peek(), reader.getLocalName(), reader);
+                if (selector.matches(state)) {
+                    selected.add(reader.getAttributeValue(null, "id"));
+                }
+                states.push(state);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                states.pop();
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,140 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.api.JsonToXmlApiService;
+import service.api.XmlToJsonApiService;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Une instance partagée par plusieurs threads : DocumentBuilder et Transformer pris dans les
+ * réservoirs ne sont jamais utilisés par deux conversions à la fois, et un échec (parse ou
+ * écriture interrompus) ne laisse pas d'objet dans un état qui fausserait la conversion suivante
+ */
+class SharedEngineConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 300;
+    private static final int DOCUMENTS = 40;
+
+    @Test
+    void domEnginesConvertXmlFromManyThreads() throws Exception {
+        assertConcurrentMatchesSequential(new XmlToJsonService(), xmlDocuments(), "<r><a>1</a><b>");
+        assertConcurrentMatchesSequential(new XmlToJsonApiService(), xmlDocuments(), "<r><a>1</a><b>");
+    }
+
+    @Test
+    void apiEngineConvertsJsonFromManyThreads() throws Exception {
+        assertConcurrentMatchesSequential(new JsonToXmlApiService(), jsonDocuments(), "{\"r\":{\"a\":1,}");
+        assertConcurrentMatchesSequential(new JsonToXmlService(), jsonDocuments(), "{\"r\":{\"a\":1,}");
+    }
+
+    /**
+     * Chaque thread convertit les documents dans un ordre différent, par chaîne et par flux ;
+     * un tour sur sept échoue à la lecture, un autre à l'écriture de la sortie
+     */
+    private static void assertConcurrentMatchesSequential(ConversionEngine engine, String[] documents,
+                                                          String malformed) throws Exception {
+        String[] expected = new String[documents.length];
+        for (int i = 0; i < documents.length; i++) {
+            expected[i] = engine.convert(documents[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < ROUNDS; i++) {
+                        int n = (seed * 13 + i * 7) % documents.length;
+                        switch (i % 7) {
+                            case 0:
+                                assertThrows(Exception.class, () -> engine.convert(malformed));
+                                break;
+                            case 1:
+                                // IOException, ou enveloppée par le Transformer
+                                assertThrows(Exception.class,
+                                        () -> engine.convert(new StringReader(documents[n]), new FailingWriter()));
+                                break;
+                            case 2:
+                                StringWriter output = new StringWriter();
+                                engine.convert(new StringReader(documents[n]), output);
+                                assertEquals(expected[n], output.toString());
+                                break;
+                            default:
+                                assertEquals(expected[n], engine.convert(documents[n]));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Après les échecs, les objets rendus aux réservoirs convertissent toujours correctement
+        for (int i = 0; i < documents.length; i++) {
+            assertEquals(expected[i], engine.convert(documents[i]));
+        }
+    }
+
+    private static String[] xmlDocuments() {
+        String[] documents = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            StringBuilder xml = new StringBuilder("<doc n=\"").append(i).append("\">");
+            for (int k = 0; k <= i % 9; k++) {
+                xml.append("<item id=\"").append(k).append("\"><nom>é ").append(i).append('-').append(k)
+                        .append("</nom><v>").append(i * k).append("</v></item>");
+            }
+            documents[i] = xml.append("<fin>").append(i).append("</fin></doc>").toString();
+        }
+        return documents;
+    }
+
+    private static String[] jsonDocuments() {
+        String[] documents = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            StringBuilder json = new StringBuilder("{\"doc\":{\"@n\":\"").append(i).append("\",\"item\":[");
+            for (int k = 0; k <= i % 9; k++) {
+                json.append(k > 0 ? "," : "").append("{\"@id\":\"").append(k).append("\",\"nom\":\"é ")
+                        .append(i).append('-').append(k).append("\",\"v\":").append(i * k).append('}');
+            }
+            documents[i] = json.append("],\"fin\":").append(i).append("}}").toString();
+        }
+        return documents;
+    }
+
+    /**
+     * Destination qui refuse toute écriture : la sérialisation échoue en cours de route
+     */
+    private static final class FailingWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            throw new IOException("écriture refusée");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            throw new IOException("écriture refusée");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
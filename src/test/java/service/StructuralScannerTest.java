@@ -0,0 +1,97 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bitmaps de la version scalaire, et même résultat pour la variante SIMD
+ * La comparaison n'a lieu qu'avec la variante chargée : mvn -Pvector test
+ */
+class StructuralScannerTest {
+
+    private static final StructuralScanner SCALAR = new StructuralScanner();
+
+    // Caractères qui changent l'état du balayage, et un caractère neutre
+    private static final char[] ALPHABET = {'"', '\\', '{', '}', '[', ']', ',', 'a', ' '};
+
+    @Test
+    void scalarSkipsStringsAndEscapesInsideThem() {
+        assertArrayEquals(new long[]{bits(0, 5, 7, 9, 10)}, SCALAR.structurals("{\"a\":[1,2]}".toCharArray(), 0, 11));
+        // Guillemet échappé : la chaîne continue, la virgule qui suit est dans la chaîne
+        assertArrayEquals(new long[]{bits(0, 8)}, SCALAR.structurals("[\"\\\",\\\\\"]".toCharArray(), 0, 9));
+        // Hors chaîne, '\' n'échappe rien : le guillemet suivant ouvre une chaîne
+        assertArrayEquals(new long[]{bits(0, 5)}, SCALAR.structurals("[\\\"a\",".toCharArray(), 0, 6));
+        assertNull(SCALAR.structurals("[\"a\\\"]".toCharArray(), 0, 6));
+        assertNull(SCALAR.structurals("[\"a\\".toCharArray(), 0, 4));
+    }
+
+    @Test
+    void vectorMatchesScalarOnRandomText() {
+        StructuralScanner scanner = vector();
+        Random random = new Random(24);
+        for (int i = 0; i < 20_000; i++) {
+            char[] chars = new char[random.nextInt(300)];
+            for (int k = 0; k < chars.length; k++) {
+                chars[k] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            int start = chars.length == 0 ? 0 : random.nextInt(Math.min(chars.length, 70));
+            assertSameBits(scanner, chars, start, chars.length);
+        }
+    }
+
+    @Test
+    void vectorMatchesScalarWithEscapesAtBlockEdges() {
+        StructuralScanner scanner = vector();
+        for (int length = 120; length <= 200; length += 40) {
+            for (int start = 0; start < 3; start++) {
+                for (int at = start + 1; at < length - 1; at++) {
+                    // '\' dans une chaîne ouverte au début, puis '\' hors chaîne, à chaque position
+                    for (boolean inString : new boolean[]{true, false}) {
+                        char[] chars = new char[length];
+                        Arrays.fill(chars, ',');
+                        if (inString) {
+                            chars[start] = '"';
+                            Arrays.fill(chars, start + 1, at, 'a');
+                        }
+                        chars[at] = '\\';
+                        chars[at + 1] = '"';
+                        if (at + 2 < length) {
+                            chars[at + 2] = '"';
+                        }
+                        assertSameBits(scanner, chars, start, length);
+                        // Suite de '\' à cheval sur deux blocs
+                        if (at + 3 < length) {
+                            chars[at + 1] = '\\';
+                            assertSameBits(scanner, chars, start, length);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static StructuralScanner vector() {
+        StructuralScanner scanner = StructuralScanner.get();
+        assumeTrue("vector".equals(scanner.name()), "variante SIMD non chargée (profil Maven \"vector\")");
+        return scanner;
+    }
+
+    private static void assertSameBits(StructuralScanner scanner, char[] chars, int start, int end) {
+        assertArrayEquals(SCALAR.structurals(chars, start, end), scanner.structurals(chars, start, end),
+                () -> "début " + start + " : " + new String(chars));
+    }
+
+    private static long bits(int... positions) {
+        long bits = 0;
+        for (int position : positions) {
+            bits |= 1L << position;
+        }
+        return bits;
+    }
+}
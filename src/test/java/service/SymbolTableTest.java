@@ -0,0 +1,90 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Table des noms : un symbole par nom jusqu'à MAX_SYMBOLS, puis des symboles non mémorisés,
+ * sans éviction des noms déjà vus ; noms et formes de sortie toujours exacts
+ */
+class SymbolTableTest {
+
+    @Test
+    void sameNameGivesSameSymbolFromCharsOrString() {
+        SymbolTable table = new SymbolTable();
+        char[] chars = "xxitemyy".toCharArray();
+        SymbolTable.Symbol symbol = table.lookup(chars, 2, 4);
+        assertEquals("item", symbol.name);
+        assertSame(symbol, table.lookup("item"));
+        assertSame(symbol, table.lookup(new String(chars, 2, 4)));
+        assertSame(symbol, table.lookup("item".toCharArray(), 0, 4));
+        assertNotSame(symbol, table.lookup(chars, 2, 3));
+
+        // Même hashCode, noms différents
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        SymbolTable.Symbol aa = table.lookup("Aa");
+        SymbolTable.Symbol bb = table.lookup("BB".toCharArray(), 0, 2);
+        assertNotSame(aa, bb);
+        assertEquals("Aa", aa.name);
+        assertEquals("BB", bb.name);
+        assertSame(bb, table.lookup("BB"));
+    }
+
+    @Test
+    void fullTableKeepsItsNamesAndStopsMemorizing() {
+        SymbolTable table = new SymbolTable();
+        SymbolTable.Symbol[] kept = new SymbolTable.Symbol[SymbolTable.MAX_SYMBOLS];
+        for (int i = 0; i < kept.length; i++) {
+            // Agrandissements successifs de la table de hachage jusqu'à MAX_SYMBOLS
+            kept[i] = table.lookup(name(i));
+            assertEquals(name(i), kept[i].name);
+        }
+
+        // Au-delà : symbole correct, mais nouveau à chaque recherche
+        for (int i = kept.length; i < kept.length + 100; i++) {
+            SymbolTable.Symbol first = table.lookup(name(i));
+            SymbolTable.Symbol second = table.lookup(name(i).toCharArray(), 0, name(i).length());
+            assertEquals(name(i), first.name);
+            assertEquals(name(i), second.name);
+            assertNotSame(first, second);
+            assertArrayEquals(("</" + name(i) + ">").toCharArray(), second.endTag());
+        }
+
+        // Pas d'éviction : les noms mémorisés restent trouvés, par chaîne comme par caractères
+        for (int i = 0; i < kept.length; i++) {
+            assertSame(kept[i], table.lookup(name(i)));
+            assertSame(kept[i], table.lookup(("." + name(i)).toCharArray(), 1, name(i).length()));
+        }
+    }
+
+    @Test
+    void outputFormsAreEscaped() {
+        SymbolTable.Symbol symbol = new SymbolTable().lookup("a\"b\\é");
+        assertArrayEquals("\"a\\\"b\\\\é\"".toCharArray(), symbol.jsonKey());
+        assertArrayEquals("\"@a\\\"b\\\\é\"".toCharArray(), symbol.jsonAttributeKey());
+        assertArrayEquals("<a\"b\\é".toCharArray(), symbol.startTag());
+        assertArrayEquals("</a\"b\\é>".toCharArray(), symbol.endTag());
+        // Formes calculées une fois
+        assertSame(symbol.jsonKey(), symbol.jsonKey());
+
+        assertArrayEquals(" id=\"".toCharArray(), new SymbolTable().lookup("@id").xmlAttribute());
+    }
+
+    @Test
+    void eachThreadHasItsOwnTable() throws Exception {
+        SymbolTable table = SymbolTable.local();
+        assertSame(table, SymbolTable.local());
+        SymbolTable other = CompletableFuture.supplyAsync(SymbolTable::local).get();
+        assertNotSame(table, other);
+    }
+
+    private static String name(int i) {
+        return "n" + i;
+    }
+}
@@ -0,0 +1,165 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine.Direction;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Le moteur à bande doit produire exactement la sortie des moteurs "from scratch",
+ * dans les deux sens, sur des documents aléatoires (même graine à chaque exécution)
+ */
+class TapeConversionServiceTest {
+
+    private static final int DOCUMENTS = 2000;
+    private static final OutputFormat[] FORMATS = {OutputFormat.PRETTY, OutputFormat.COMPACT, OutputFormat.pretty(4)};
+    private static final String[] NAMES = {"a", "b", "item", "x_1", "é"};
+    private static final String[] TEXTS = {"", " ", "texte", "a<b & c>d", "\"q\" 'a'", "l1\nl2\tt", "é€\uD83D\uDE00",
+            "\\ /", "  espaces  "};
+    private static final String[] NUMBERS = {"0", "-1", "42", "3.14", "-0.5e-3", "1E10", "12345678901234567890", "1.0",
+            "1e400", "-0", "1.10", "-1E-400", "123456789012345678901234567890"};
+
+    @Test
+    void xmlToJsonMatchesScratchEngine() throws Exception {
+        Random random = new Random(23);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            StringBuilder xml = new StringBuilder();
+            element(random, xml, 0);
+            String document = xml.toString();
+            for (OutputFormat format : FORMATS) {
+                // Documents générés valides : une erreur serait une comparaison sans objet
+                String expected = new XmlToJsonService(format).convert(document);
+                assertEquals(expected, new TapeConversionService(Direction.XML_TO_JSON, format).convert(document), document);
+            }
+        }
+    }
+
+    @Test
+    void jsonToXmlMatchesScratchEngine() throws Exception {
+        Random random = new Random(23);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            StringBuilder json = new StringBuilder();
+            object(random, json, 0);
+            String document = json.toString();
+            for (OutputFormat format : FORMATS) {
+                // Documents générés valides : une erreur serait une comparaison sans objet
+                String expected = new JsonToXmlService(format).convert(document);
+                assertEquals(expected, new TapeConversionService(Direction.JSON_TO_XML, format).convert(document), document);
+            }
+        }
+    }
+
+    @Test
+    void malformedDocumentsAreRejectedByBoth() {
+        String[] xml = {"", "<a>", "<a></b>", "<a/><b/>", "texte", "<a x='1' x='2'/>"};
+        for (String document : xml) {
+            assertEquals(result(new XmlToJsonService(), document),
+                    result(new TapeConversionService(Direction.XML_TO_JSON), document), document);
+        }
+        String[] json = {"", "[]", "{", "{\"a\":}", "{\"a\":1,}", "{\"a\":[1,]}", "{\"a\":01}", "{\"a\":1} x",
+                "{'a':1}", "{\"a\":tru}"};
+        for (String document : json) {
+            assertEquals(result(new JsonToXmlService(), document),
+                    result(new TapeConversionService(Direction.JSON_TO_XML), document), document);
+        }
+    }
+
+    private static void element(Random random, StringBuilder xml, int depth) {
+        String name = pick(random, NAMES);
+        xml.append('<').append(name);
+        int attributes = random.nextInt(3);
+        for (int i = 0; i < attributes; i++) {
+            // Noms distincts : un attribut répété rend le document invalide
+            xml.append(" at").append(i).append("=\"").append(escapeXml(pick(random, TEXTS))).append('"');
+        }
+        int children = depth >= 4 ? 0 : random.nextInt(5);
+        if (children == 0 && random.nextBoolean()) {
+            xml.append("/>");
+            return;
+        }
+        xml.append('>');
+        for (int i = 0; i < children; i++) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    xml.append(escapeXml(pick(random, TEXTS)));
+                    break;
+                case 1:
+                    xml.append("<![CDATA[").append(pick(random, TEXTS)).append("]]>");
+                    break;
+                case 2:
+                    xml.append("<!-- commentaire -->");
+                    break;
+                default:
+                    element(random, xml, depth + 1);
+            }
+        }
+        if (children == 0) {
+            xml.append(escapeXml(pick(random, TEXTS)));
+        }
+        xml.append("</").append(name).append('>');
+    }
+
+    private static void object(Random random, StringBuilder json, int depth) {
+        json.append('{');
+        int members = random.nextInt(depth == 0 ? 4 : 5) + (depth == 0 ? 1 : 0);
+        for (int i = 0; i < members; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            // Clés répétées, attributs (y compris après les éléments) et #text
+            String key;
+            switch (random.nextInt(6)) {
+                case 0: key = "@" + pick(random, NAMES); break;
+                case 1: key = "#text"; break;
+                default: key = pick(random, NAMES);
+            }
+            json.append('"').append(key).append("\":");
+            value(random, json, depth + 1);
+        }
+        json.append('}');
+    }
+
+    private static void value(Random random, StringBuilder json, int depth) {
+        switch (random.nextInt(depth >= 4 ? 5 : 7)) {
+            case 0: json.append('"').append(escapeJson(pick(random, TEXTS))).append('"'); break;
+            case 1: json.append(pick(random, NUMBERS)); break;
+            case 2: json.append(random.nextBoolean()); break;
+            case 3: json.append("null"); break;
+            case 4: json.append("\"\\u00e9\\n\\/\""); break;
+            case 5: object(random, json, depth); break;
+            default:
+                json.append('[');
+                int items = random.nextInt(4);
+                for (int i = 0; i < items; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    value(random, json, depth + 1);
+                }
+                json.append(']');
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String escapeJson(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\t", "\\t");
+    }
+
+    // Sortie, ou "erreur" si la conversion est refusée
+    private static String result(ConversionEngine engine, String input) {
+        try {
+            return engine.convert(input);
+        } catch (Exception e) {
+            return "erreur";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Le moteur streaming doit produire exactement la sortie du moteur DOM (XmlToJsonService)
+ */
+class XmlToJsonStreamServiceTest {
+
+    private static final String[] DOCUMENTS = {
+            // Frères de même nom non contigus : un seul tableau, à la place du premier
+            "<r><b>1</b><c>2</c><b>3</b></r>",
+            "<r><b/><c/><b/></r>",
+            // Texte : le dernier non vide, avant les enfants ; ignoré avec des attributs seuls
+            "<r>avant<a>1</a>après<a>2</a></r>",
+            "<r><b id=\"4\">y</b></r>",
+            // CDATA, commentaires et instructions de traitement séparent les textes et sont ignorés
+            "<r> x <!--c--> y <![CDATA[z]]><?pi d?></r>",
+            "<r><a z=\"v&amp;1\" id=\"2\"><a>x&lt;y</a><c/><a/></a><c>t</c></r>",
+    };
+
+    @Test
+    void sameOutputAsDom() throws Exception {
+        for (OutputFormat format : new OutputFormat[]{OutputFormat.PRETTY, OutputFormat.COMPACT, OutputFormat.pretty(4)}) {
+            for (String xml : DOCUMENTS) {
+                assertEquals(new XmlToJsonService(format).convert(xml),
+                        new XmlToJsonStreamService(format).convert(xml), xml);
+            }
+        }
+    }
+
+    @Test
+    void spilledGroupsKeepDomOutput() throws Exception {
+        // Enveloppes imbriquées et enregistrements entrecoupés : plusieurs Mo débordent sur disque
+        StringBuilder xml = new StringBuilder();
+        for (int level = 0; level < 6; level++) {
+            xml.append("<w").append(level).append("><header a=\"").append(level).append("\"/>");
+        }
+        for (int i = 0; i < 40000; i++) {
+            xml.append("<rec id=\"").append(i).append("\"><name>Item ").append(i).append("</name><v>x</v><v>y</v></rec>");
+            if (i % 1000 == 0) {
+                xml.append("<note>").append(i).append("</note>");
+            }
+        }
+        for (int level = 5; level >= 0; level--) {
+            xml.append("<trailer/></w").append(level).append(">");
+        }
+        String document = xml.toString();
+        assertEquals(new XmlToJsonService().convert(document), new XmlToJsonStreamService().convert(document));
+    }
+}
@@ -0,0 +1,32 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Chaque ligne NDJSON doit être la valeur que le moteur DOM donne à l'élément
+ */
+class XmlToNdjsonServiceTest {
+
+    @Test
+    void lineIsDomValueOfRecord() throws Exception {
+        String[] records = {
+                "<rec><a>1</a><b>2</b><a>3</a></rec>",
+                "<rec><b id=\"4\">y</b></rec>",
+                "<rec k=\"v\">t<x/>u<!--c--><x>2</x></rec>",
+                "<rec/>"
+        };
+        StringBuilder xml = new StringBuilder("<root>");
+        StringBuilder expected = new StringBuilder();
+        for (String record : records) {
+            xml.append(record);
+            String dom = new XmlToJsonService(OutputFormat.COMPACT).convert(record);
+            // {"rec":valeur} → valeur
+            expected.append(dom, "{\"rec\":".length(), dom.length() - 1).append('\n');
+        }
+        xml.append("</root>");
+
+        assertEquals(expected.toString(), new XmlToNdjsonService(RecordSelector.parse("rec")).convert(xml.toString()));
+    }
+}
@@ -0,0 +1,33 @@
+package service.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Correspondance XML → JSON du moteur API : celle de la version DOM + ObjectNode d'origine
+ */
+class XmlToJsonApiServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void sameNameSiblingsAreGroupedEvenWhenApart() throws Exception {
+        assertEquals("{\"b\":[{},{}],\"c\":{}}", convert("<r><b/><c/><b/></r>"));
+        assertEquals("{\"a\":[\"1\",{\"@k\":\"v\"},\"3\"],\"b\":\"2\"}",
+                convert("<r><a>1</a><b>2</b><a k=\"v\"/><a>3</a></r>"));
+    }
+
+    @Test
+    void textSkipsCdataAndIsWrittenLast() throws Exception {
+        assertEquals("{\"@k\":\"v\",\"c\":\"1\",\"#text\":\"ab\"}",
+                convert("<r k=\"v\">a<!--x-->b<![CDATA[c]]><c>1</c></r>"));
+        assertEquals("\"x y\"", convert("<r>  x y  </r>"));
+    }
+
+    // Sortie compacte, dans l'ordre des champs
+    private static String convert(String xml) throws Exception {
+        return MAPPER.readTree(new XmlToJsonApiService().convert(xml)).toString();
+    }
+}
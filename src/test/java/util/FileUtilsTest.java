@@ -0,0 +1,51 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lecture d'un petit fichier (lecture simple) et d'un grand fichier (segments mappés)
+ */
+class FileUtilsTest {
+
+    @Test
+    void smallAndLargeFilesReadTheSame() throws Exception {
+        StringBuilder small = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            small.append("<a>élément ").append(i).append(" – 𝄞</a>\n");
+        }
+        assertReadBack(small.toString());
+
+        // Au-delà du seuil de mappage (1 Mo)
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 3 << 20) {
+            large.append(small);
+        }
+        assertReadBack(large.toString());
+    }
+
+    private static void assertReadBack(String content) throws Exception {
+        Path path = Files.createTempFile("fileutils", ".xml");
+        try {
+            Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+            File file = path.toFile();
+            assertEquals(content, FileUtils.readFile(file));
+
+            StringWriter streamed = new StringWriter();
+            try (Reader reader = FileUtils.openReader(file)) {
+                reader.transferTo(streamed);
+            }
+            assertEquals(content, streamed.toString());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
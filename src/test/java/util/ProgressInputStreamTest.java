@@ -0,0 +1,54 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * La progression d'un fichier lu en entier atteint File.length(), même hors ASCII
+ */
+class ProgressInputStreamTest {
+
+    @Test
+    void progressReachesFileLengthWithNonAsciiText() throws Exception {
+        Path path = Files.createTempFile("progress", ".xml");
+        try {
+            // Plus d'octets que de caractères : compter les caractères s'arrêterait vers 40 %
+            Files.writeString(path, "<a>€𝄞é</a>\n".repeat(100_000));
+            AtomicLong last = new AtomicLong();
+            StringWriter text = new StringWriter();
+            try (Reader reader = new InputStreamReader(new ProgressInputStream(
+                    FileUtils.openInputStream(path.toFile()), last::set, () -> false), StandardCharsets.UTF_8)) {
+                reader.transferTo(text);
+            }
+            assertEquals(Files.size(path), last.get());
+            assertEquals(Files.readString(path), text.toString());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void cancellationStopsTheNextRead() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        try (ProgressInputStream in = new ProgressInputStream(
+                new ByteArrayInputStream(new byte[100]), count -> { }, cancelled::get)) {
+            assertEquals(10, in.read(new byte[10]));
+            cancelled.set(true);
+            assertThrows(InterruptedIOException.class, in::read);
+            assertEquals(10, in.getConsumed());
+        }
+    }
+}
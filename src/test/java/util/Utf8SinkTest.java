@@ -0,0 +1,123 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import service.ConversionEngine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Encodage identique à String.getBytes(UTF_8), quel que soit le découpage des écritures :
+ * paires de substitution coupées entre deux appels ou au bord du tampon, substituts isolés
+ */
+class Utf8SinkTest {
+
+    // Taille du tampon d'octets, et des copies de chaînes (BUFFER_SIZE / 4)
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CHUNK = BUFFER_SIZE / 4;
+
+    private static final String PAIR = "𝄞";
+
+    @Test
+    void pairSplitAcrossWriteCalls() throws Exception {
+        String text = "a" + PAIR + "é€" + PAIR;
+        for (int cut = 0; cut <= text.length(); cut++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Utf8Sink sink = new Utf8Sink(bytes);
+            sink.write(text.substring(0, cut));
+            sink.write(text.substring(cut).toCharArray());
+            sink.finish();
+            assertEncoded(text, bytes.toByteArray());
+        }
+
+        // Caractère par caractère, et avec un flush() entre les deux moitiés d'une paire
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Sink sink = new Utf8Sink(bytes);
+        for (char c : text.toCharArray()) {
+            sink.write(c);
+            sink.flush();
+        }
+        sink.finish();
+        assertEncoded(text, bytes.toByteArray());
+    }
+
+    @Test
+    void pairAcrossBufferBoundary() throws Exception {
+        // Paire placée à chaque position autour de la fin du tampon d'octets et d'une copie de chaîne
+        for (int boundary : new int[]{BUFFER_SIZE, CHUNK}) {
+            for (int at = boundary - 6; at <= boundary + 2; at++) {
+                String text = "x".repeat(at) + PAIR + "y";
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                Utf8Sink sink = new Utf8Sink(bytes);
+                sink.write(text);
+                sink.finish();
+                assertEncoded(text, bytes.toByteArray());
+            }
+        }
+
+        // Caractères de 2 et 3 octets devant : le tampon est vidé à des positions variées
+        Random random = new Random(14);
+        String[] pieces = {"a", "é", "€", PAIR};
+        for (int i = 0; i < 50; i++) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 3 * BUFFER_SIZE) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (Utf8Sink sink = new Utf8Sink(Channels.newChannel(bytes))) {
+                for (int from = 0; from < text.length(); ) {
+                    int to = Math.min(text.length(), from + 1 + random.nextInt(2 * CHUNK));
+                    sink.write(text.toString(), from, to - from);
+                    from = to;
+                }
+            }
+            assertEncoded(text.toString(), bytes.toByteArray());
+        }
+    }
+
+    @Test
+    void loneSurrogatesBecomeQuestionMarks() throws Exception {
+        for (String text : new String[]{"a\uDD1Eb", "a\uD834b", "\uD834𝄞", "\uDD1E\uD834", "fin\uD834"}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Utf8Sink sink = new Utf8Sink(bytes);
+            sink.write(text);
+            sink.finish();
+            assertEncoded(text, bytes.toByteArray());
+        }
+    }
+
+    @Test
+    void trailingHighSurrogateIsWrittenAtTheEndOfAConversion() throws Exception {
+        // Moteur qui recopie l'entrée : seule la méthode par défaut vers un OutputStream est testée
+        ConversionEngine copy = new ConversionEngine() {
+            public String convert(String content) {
+                return content;
+            }
+
+            public void convert(Reader input, Writer output) throws Exception {
+                input.transferTo(output);
+                output.flush();
+            }
+        };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        copy.convert(new StringReader("fin\uD834"), bytes);
+        assertEquals("fin?", bytes.toString(StandardCharsets.UTF_8));
+
+        bytes.reset();
+        copy.convert(new StringReader("fin\uD834"), Channels.newChannel(bytes));
+        assertEquals("fin?", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void assertEncoded(String text, byte[] actual) {
+        // String.getBytes remplace aussi chaque substitut isolé par '?'
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), actual, () -> "longueur " + text.length());
+    }
+}
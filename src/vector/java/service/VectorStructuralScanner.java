@@ -0,0 +1,162 @@
+package service;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Variante SIMD de {@link StructuralScanner} (API Vector de la JDK, module incubateur)
+ *
+ * Le texte est traité par blocs de 64 caractères (quatre vecteurs de 16 caractères) :
+ * chaque comparaison vectorielle donne un masque, replié en 16 bits d'un long
+ * (guillemets, barres obliques inverses, caractères structurels).
+ * Dans un bloc sans '\', l'intérieur des chaînes est le XOR préfixe des guillemets, sans branche
+ * par caractère, avec une retenue d'un bloc au suivant (chaîne ouverte). Un bloc qui contient
+ * une '\' (ou commence par un caractère échappé) est parcouru en scalaire : comme dans
+ * {@link StructuralScanner}, '\' n'échappe que dans une chaîne, et seul ce parcours le sait.
+ * Le résultat est ainsi le même que celui de la version scalaire, y compris sur un JSON invalide.
+ *
+ * Le repli des masques passe par blend + reduceLanes(OR), compilés en instructions SIMD
+ * dès la JDK 17 (VectorMask.toLong ne l'est qu'à partir de la JDK 18).
+ * Compilée seulement avec le profil Maven "vector" ; chargée par réflexion,
+ * la version scalaire la remplace si le module ou les registres de 256 bits manquent.
+ */
+final class VectorStructuralScanner extends StructuralScanner {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_256;
+    private static final int LANES = 16;
+
+    // Poids 1 << lane, pour replier un masque en bits
+    private static final ShortVector WEIGHTS = weights();
+    private static final ShortVector ZERO = ShortVector.zero(SPECIES);
+
+    VectorStructuralScanner() {
+        if (ShortVector.SPECIES_PREFERRED.vectorBitSize() < SPECIES.vectorBitSize()) {
+            // Vecteurs de 256 bits émulés : plus lents que la version scalaire
+            throw new IllegalStateException("Vecteurs de 256 bits non disponibles");
+        }
+    }
+
+    @Override
+    String name() {
+        return "vector";
+    }
+
+    /**
+     * Les chaînes sont souvent courtes : les 16 premiers caractères sont lus un par un,
+     * les suivants par vecteurs (le vecteur qui contient l'arrêt est relu en scalaire)
+     */
+    @Override
+    int stringEnd(char[] chars, int from, int to) {
+        int head = Math.min(to, from + LANES);
+        int stop = super.stringEnd(chars, from, head);
+        if (stop < head || head == to) {
+            return stop;
+        }
+        int i = head;
+        for (; i + LANES <= to; i += LANES) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            if (v.eq((short) '"')
+                    .or(v.eq((short) '\\'))
+                    .or(v.lanewise(VectorOperators.AND, (short) 0xFFE0).eq((short) 0))
+                    .anyTrue()) {
+                break;
+            }
+        }
+        return super.stringEnd(chars, i, to);
+    }
+
+    @Override
+    long[] structurals(char[] chars, int start, int end) {
+        long[] bits = new long[(end - start + 63) >>> 6];
+        long escapeCarry = 0;   // 1 si le premier caractère du bloc est échappé (dans une chaîne)
+        long stringCarry = 0;   // -1 si le bloc commence dans une chaîne
+
+        for (int word = 0; word < bits.length; word++) {
+            int base = start + (word << 6);
+            long quotes = 0;
+            long backslashes = 0;
+            long structural = 0;
+
+            if (base + 64 <= end) {
+                for (int k = 0; k < 64; k += LANES) {
+                    ShortVector v = ShortVector.fromCharArray(SPECIES, chars, base + k);
+                    // '[' | 0x20 == '{' et ']' | 0x20 == '}'
+                    ShortVector folded = v.lanewise(VectorOperators.OR, (short) 0x20);
+                    quotes |= bits(v.eq((short) '"')) << k;
+                    backslashes |= bits(v.eq((short) '\\')) << k;
+                    structural |= bits(folded.eq((short) '{')
+                            .or(folded.eq((short) '}'))
+                            .or(v.eq((short) ','))) << k;
+                }
+            } else {
+                // Dernier bloc incomplet
+                for (int k = 0; base + k < end; k++) {
+                    char c = chars[base + k];
+                    if (c == '"') {
+                        quotes |= 1L << k;
+                    } else if (c == '\\') {
+                        backslashes |= 1L << k;
+                    } else if (c == '{' || c == '}' || c == '[' || c == ']' || c == ',') {
+                        structural |= 1L << k;
+                    }
+                }
+            }
+
+            if (backslashes != 0 || escapeCarry != 0) {
+                // '\\' n'échappe que dans une chaîne, et l'intérieur des chaînes dépend des échappements :
+                // bloc parcouru caractère par caractère, comme la version scalaire
+                long outside = 0;
+                boolean inString = stringCarry != 0;
+                boolean escaped = escapeCarry != 0;
+                for (int k = 0; k < 64 && base + k < end; k++) {
+                    char c = chars[base + k];
+                    if (escaped) {
+                        escaped = false;
+                    } else if (inString) {
+                        if (c == '\\') {
+                            escaped = true;
+                        } else if (c == '"') {
+                            inString = false;
+                        }
+                    } else if (c == '"') {
+                        inString = true;
+                    } else {
+                        outside |= 1L << k;
+                    }
+                }
+                escapeCarry = escaped ? 1 : 0;
+                stringCarry = inString ? -1 : 0;
+                bits[word] = structural & outside;
+                continue;
+            }
+
+            // Sans '\\' : intérieur des chaînes par XOR préfixe des guillemets
+            long inside = quotes;
+            inside ^= inside << 1;
+            inside ^= inside << 2;
+            inside ^= inside << 4;
+            inside ^= inside << 8;
+            inside ^= inside << 16;
+            inside ^= inside << 32;
+            inside ^= stringCarry;
+            stringCarry = inside >> 63;
+
+            bits[word] = structural & ~inside;
+        }
+        return stringCarry != 0 ? null : bits;
+    }
+
+    private static long bits(VectorMask<Short> mask) {
+        return ZERO.blend(WEIGHTS, mask).reduceLanes(VectorOperators.OR) & 0xFFFFL;
+    }
+
+    private static ShortVector weights() {
+        short[] weights = new short[LANES];
+        for (int i = 0; i < LANES; i++) {
+            weights[i] = (short) (1 << i);
+        }
+        return ShortVector.fromArray(SPECIES, weights, 0);
+    }
+}